@@ -0,0 +1,221 @@
+package dev.houshce29.cliform.processor;
+
+import dev.houshce29.cliform.lang.ParsedLine;
+import dev.houshce29.cliform.lang.SegmentPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the Java source of a compiled template.
+ */
+final class CompiledTemplateWriter {
+    // Keeps each generated method well below the JVM's method size limit
+    private static final int LINES_PER_METHOD = 100;
+    private static final String LANG = "dev.houshce29.cliform.lang.";
+    private static final String GENERATORS = "java.util.List<" + LANG + "ElementGenerator>";
+    private final String formName;
+    private final String compiledName;
+
+    /**
+     * @param formName Canonical name of the form class.
+     * @param compiledName Binary name of the compiled template class.
+     */
+    CompiledTemplateWriter(String formName, String compiledName) {
+        this.formName = formName;
+        this.compiledName = compiledName;
+    }
+
+    /**
+     * Writes the compiled template.
+     * @param lines Parsed lines of the template, with well formed loop blocks.
+     * @param calls Handler call of each line, or <code>null</code> for other lines.
+     * @return Java source code.
+     */
+    String write(List<ParsedLine> lines, List<HandlerCall> calls) {
+        int packageEnd = compiledName.lastIndexOf('.');
+        String simpleName = compiledName.substring(packageEnd + 1);
+        StringBuilder out = new StringBuilder();
+        if (packageEnd > 0) {
+            out.append("package ").append(compiledName, 0, packageEnd).append(";\n\n");
+        }
+        out.append("/**\n")
+                .append(" * Compiled template of {@link ").append(formName).append("}.\n")
+                .append(" * Generated by the cliform template processor; do not edit.\n")
+                .append(" */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements ").append(LANG).append("CompiledTemplate {\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(GENERATORS).append(" getGenerators() {\n")
+                .append("        ").append(GENERATORS).append(" generators = new java.util.ArrayList<>(")
+                .append(lines.size()).append(");\n");
+        // Loop blocks span several lines but make up a single generator
+        List<Integer> starts = new ArrayList<>();
+        for (int line = 0; line < lines.size(); line = blockEnd(lines, line)) {
+            starts.add(line);
+        }
+        int methods = (starts.size() + LINES_PER_METHOD - 1) / LINES_PER_METHOD;
+        for (int i = 0; i < methods; i++) {
+            out.append("        lines").append(i).append("(generators);\n");
+        }
+        out.append("        return generators;\n")
+                .append("    }\n");
+        for (int i = 0; i < methods; i++) {
+            out.append("\n    private static void lines").append(i)
+                    .append("(").append(GENERATORS).append(" generators) {\n");
+            int end = Math.min(starts.size(), (i + 1) * LINES_PER_METHOD);
+            for (int start = i * LINES_PER_METHOD; start < end; start++) {
+                out.append("        generators.add(");
+                writeGenerator(lines, calls, starts.get(start), out);
+                out.append(");\n");
+            }
+            out.append("    }\n");
+        }
+        return out.append("}\n").toString();
+    }
+
+    /**
+     * Writes the generator starting at the given line.
+     * @return Index of the line after the generator.
+     */
+    private int writeGenerator(List<ParsedLine> lines, List<HandlerCall> calls, int index, StringBuilder out) {
+        ParsedLine line = lines.get(index);
+        if (!line.isLoopStart()) {
+            writeGenerator(line, calls.get(index), out);
+            return index + 1;
+        }
+        out.append(LANG).append("LoopElementGenerator.of(")
+                .append(quote(line.getLoopVariable())).append(", ")
+                .append(quote(line.getLoopSource())).append(", java.util.Arrays.<")
+                .append(LANG).append("ElementGenerator>asList(");
+        int next = index + 1;
+        boolean first = true;
+        while (!lines.get(next).isLoopEnd()) {
+            if (!first) {
+                out.append(", ");
+            }
+            first = false;
+            next = writeGenerator(lines, calls, next, out);
+        }
+        out.append("))");
+        return next + 1;
+    }
+
+    /**
+     * @return Index of the line after the generator starting at the given line.
+     */
+    private static int blockEnd(List<ParsedLine> lines, int index) {
+        if (!lines.get(index).isLoopStart()) {
+            return index + 1;
+        }
+        int next = index + 1;
+        while (!lines.get(next).isLoopEnd()) {
+            next = blockEnd(lines, next);
+        }
+        return next + 1;
+    }
+
+    private void writeGenerator(ParsedLine line, HandlerCall call, StringBuilder out) {
+        if (!line.isInput()) {
+            out.append(LANG).append("TextElementGenerator.of(");
+            writePlan(line.getPlan(), out);
+            out.append(")");
+            return;
+        }
+        out.append(LANG).append("InputElementGenerator.of(");
+        writePlan(line.getPlan(), out);
+        out.append(", ").append(line.isObscure()).append(",\n                ");
+        writeInvoker(call, out);
+        out.append(")");
+    }
+
+    private void writeInvoker(HandlerCall call, StringBuilder out) {
+        out.append("(source, input, context, console) -> ");
+        if (call.isNoop()) {
+            out.append("dev.houshce29.cliform.core.FormAction.noop()");
+            return;
+        }
+        out.append("{\n");
+        // Arguments are bound before the try, so that binding failures aren't
+        // mistaken for handler failures (as with HandlerInvokers)
+        List<String> args = call.getArgs();
+        List<String> argNames = new ArrayList<>(args.size());
+        for (int i = 0; i < args.size(); i++) {
+            String name = "arg" + i;
+            out.append("                    ").append(call.getArgTypes().get(i)).append(' ').append(name)
+                    .append(" = ").append(args.get(i)).append(";\n");
+            argNames.add(name);
+        }
+        StringBuilder invocation = new StringBuilder();
+        if (call.isStatic()) {
+            invocation.append(formName);
+        }
+        else {
+            invocation.append("((").append(formName).append(") source)");
+        }
+        invocation.append('.').append(call.getMethodName())
+                .append('(').append(String.join(", ", argNames)).append(')');
+        out.append("                    try {\n");
+        if (call.returnsVoid()) {
+            out.append("                        ").append(invocation).append(";\n")
+                    .append("                        return dev.houshce29.cliform.core.FormAction.noop();\n");
+        }
+        else {
+            out.append("                        return ").append(LANG).append("HandlerInvoker.toAction(")
+                    .append(invocation).append(");\n");
+        }
+        out.append("                    }\n")
+                .append("                    catch (Exception ex) {\n")
+                .append("                        throw new IllegalStateException(\"Failed to invoke ")
+                .append(call.getMethodName()).append(".\", ex);\n")
+                .append("                    }\n")
+                .append("                }");
+    }
+
+    private static void writePlan(SegmentPlan plan, StringBuilder out) {
+        List<String> literals = plan.getLiterals();
+        List<String> slots = plan.getSlots();
+        out.append(LANG).append("SegmentPlan.builder()");
+        for (int i = 0; i < literals.size(); i++) {
+            if (i > 0) {
+                out.append(".slot(").append(quote(slots.get(i - 1))).append(")");
+            }
+            if (!literals.get(i).isEmpty()) {
+                out.append(".literal(").append(quote(literals.get(i))).append(")");
+            }
+        }
+        out.append(".build()");
+    }
+
+    static String quote(String value) {
+        StringBuilder out = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"').toString();
+    }
+}
@@ -0,0 +1,74 @@
+package dev.houshce29.cliform.processor;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A direct call to an input handler method, resolved at compile time.
+ */
+final class HandlerCall {
+    private static final HandlerCall NOOP = new HandlerCall(null, Collections.emptyList(),
+            Collections.emptyList(), true, false, true);
+    private final String methodName;
+    private final List<String> args;
+    private final List<String> argTypes;
+    private final boolean returnsVoid;
+    private final boolean staticMethod;
+    private final boolean accessible;
+
+    HandlerCall(String methodName,
+                List<String> args,
+                List<String> argTypes,
+                boolean returnsVoid,
+                boolean staticMethod,
+                boolean accessible) {
+        this.methodName = methodName;
+        this.args = args;
+        this.argTypes = argTypes;
+        this.returnsVoid = returnsVoid;
+        this.staticMethod = staticMethod;
+        this.accessible = accessible;
+    }
+
+    /**
+     * @return A call for input lines without a handler.
+     */
+    static HandlerCall noop() {
+        return NOOP;
+    }
+
+    boolean isNoop() {
+        return methodName == null;
+    }
+
+    String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return Java expressions for each argument, in terms of the
+     *         parameters of {@link dev.houshce29.cliform.lang.HandlerInvoker}.
+     */
+    List<String> getArgs() {
+        return args;
+    }
+
+    /**
+     * @return Erased type of each argument, in order.
+     */
+    List<String> getArgTypes() {
+        return argTypes;
+    }
+
+    boolean returnsVoid() {
+        return returnsVoid;
+    }
+
+    boolean isStatic() {
+        return staticMethod;
+    }
+
+    boolean isAccessible() {
+        return accessible;
+    }
+}
@@ -0,0 +1,305 @@
+package dev.houshce29.cliform.processor;
+
+import dev.houshce29.cliform.ContextKey;
+import dev.houshce29.cliform.FormId;
+import dev.houshce29.cliform.Template;
+import dev.houshce29.cliform.lang.CompiledTemplate;
+import dev.houshce29.cliform.lang.ParsedLine;
+import dev.houshce29.cliform.lang.TemplateParser;
+import dev.houshce29.cliform.util.CollectionUtils;
+import dev.houshce29.cliform.util.StringUtils;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Annotation processor that compiles {@link Template} annotated forms at
+ * build time. Template syntax errors are reported as compile errors, and
+ * a {@link CompiledTemplate} is generated for each form so that the
+ * template doesn't need to be read, parsed or reflectively bound when the
+ * application starts.
+ *
+ * Forms that can't be compiled ahead of time (e.g. templates on the host
+ * file system or handlers that can't be called directly) are left alone,
+ * and are parsed at runtime as usual.
+ */
+@SupportedAnnotationTypes("dev.houshce29.cliform.Template")
+@SupportedOptions(TemplateProcessor.RESOURCE_DIRS_OPTION)
+public class TemplateProcessor extends AbstractProcessor {
+    /**
+     * Option holding extra directories to resolve template resources from,
+     * separated by the path separator (e.g. <code>src/main/resources</code>).
+     */
+    public static final String RESOURCE_DIRS_OPTION = "cliform.resourceDirs";
+    private static final String BINDERS = "dev.houshce29.cliform.lang.ArgumentBinders.";
+    private final TemplateParser parser = new TemplateParser();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Template.class)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                processForm((TypeElement) element);
+            }
+        }
+        return false;
+    }
+
+    private void processForm(TypeElement form) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(form).toString();
+        Optional<List<String>> lines = readLines(form, form.getAnnotation(Template.class));
+        if (!lines.isPresent()) {
+            return;
+        }
+        // Parse every line so that all syntax errors are reported at once
+        List<ParsedLine> parsedLines = new ArrayList<>();
+        List<HandlerCall> calls = new ArrayList<>();
+        boolean failed = false;
+        String sourceName = "class " + binaryName;
+        // Line numbers of the loops currently open
+        Deque<Integer> loops = new ArrayDeque<>();
+        int lineNumber = 0;
+        for (String line : lines.get()) {
+            lineNumber++;
+            try {
+                ParsedLine parsed = parser.readLine(sourceName, lineNumber, line);
+                checkBlock(parsed, sourceName, lineNumber, loops);
+                parsedLines.add(parsed);
+                calls.add(parsed.isInput() ? resolveCall(form, parsed.getHandlerRef()) : null);
+            }
+            catch (IllegalStateException | IllegalArgumentException ex) {
+                error(ex.getMessage(), form);
+                failed = true;
+            }
+        }
+        if (!loops.isEmpty()) {
+            error("Incomplete loop starting on line " + loops.peek() + " in template for " + sourceName + ".", form);
+            failed = true;
+        }
+        if (failed) {
+            return;
+        }
+        if (!isAccessible(form) || calls.stream().anyMatch(call -> call != null && !call.isAccessible())) {
+            note("Template for " + binaryName + " has members that can't be called directly;"
+                    + " it will be parsed at runtime.", form);
+            return;
+        }
+        writeCompiledTemplate(form, binaryName, parsedLines, calls);
+    }
+
+    /**
+     * Checks that loop blocks are well formed, the same way they're
+     * checked at runtime.
+     */
+    private static void checkBlock(ParsedLine parsed, String sourceName, int lineNumber, Deque<Integer> loops) {
+        if (parsed.isLoopStart()) {
+            loops.push(lineNumber);
+        }
+        else if (parsed.isLoopEnd()) {
+            if (loops.isEmpty()) {
+                throw new IllegalStateException("Unexpected %end on line " + lineNumber
+                        + " in template for " + sourceName + ".");
+            }
+            loops.pop();
+        }
+        else if (parsed.isInput() && !loops.isEmpty()) {
+            throw new IllegalStateException("Input is not allowed inside a loop on line " + lineNumber
+                    + " in template for " + sourceName + ".");
+        }
+    }
+
+    private Optional<List<String>> readLines(TypeElement form, Template template) {
+        if (!CollectionUtils.isArrayEmpty(template.value())) {
+            return Optional.of(Arrays.asList(template.value()));
+        }
+        else if (StringUtils.isNotBlank(template.resource())) {
+            Optional<List<String>> lines = readResource(template.resource());
+            if (!lines.isPresent()) {
+                note("Template resource " + template.resource() + " was not found at compile time;"
+                        + " it will be parsed at runtime.", form);
+            }
+            return lines;
+        }
+        else if (StringUtils.isNotBlank(template.path())) {
+            // Only resolvable on the host running the application
+            return Optional.empty();
+        }
+        error("No template source defined.", form);
+        return Optional.empty();
+    }
+
+    private Optional<List<String>> readResource(String resource) {
+        String dirs = processingEnv.getOptions().get(RESOURCE_DIRS_OPTION);
+        if (StringUtils.isNotBlank(dirs)) {
+            for (String dir : dirs.split(java.io.File.pathSeparator)) {
+                Path path = Paths.get(dir, resource);
+                if (Files.isRegularFile(path)) {
+                    try {
+                        return Optional.of(Files.readAllLines(path, StandardCharsets.UTF_8));
+                    }
+                    catch (IOException ex) {
+                        return Optional.empty();
+                    }
+                }
+            }
+        }
+        for (StandardLocation location : Arrays.asList(StandardLocation.SOURCE_PATH,
+                StandardLocation.CLASS_OUTPUT, StandardLocation.CLASS_PATH)) {
+            try {
+                FileObject file = processingEnv.getFiler().getResource(location, "", resource);
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(file.openInputStream(), StandardCharsets.UTF_8))) {
+                    return Optional.of(reader.lines().collect(Collectors.toList()));
+                }
+            }
+            catch (IOException | IllegalArgumentException ex) {
+                // Not in this location, try the next one
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolves the handler method the same way it is resolved at runtime:
+     * public methods first, then any method declared on the form itself.
+     */
+    private HandlerCall resolveCall(TypeElement form, String handlerRef) {
+        if (StringUtils.isBlank(handlerRef)) {
+            return HandlerCall.noop();
+        }
+        List<ExecutableElement> candidates = ElementFilter.methodsIn(
+                processingEnv.getElementUtils().getAllMembers(form)).stream()
+                .filter(method -> method.getSimpleName().contentEquals(handlerRef))
+                .collect(Collectors.toList());
+        Optional<ExecutableElement> handler = candidates.stream()
+                .filter(method -> method.getModifiers().contains(Modifier.PUBLIC))
+                .findFirst();
+        if (!handler.isPresent()) {
+            handler = candidates.stream()
+                    .filter(method -> method.getEnclosingElement().equals(form))
+                    .findFirst();
+        }
+        if (!handler.isPresent()) {
+            warning("No handler method named " + handlerRef + " exists; its input will be ignored.", form);
+            return HandlerCall.noop();
+        }
+        ExecutableElement method = handler.get();
+        List<String> args = new ArrayList<>();
+        List<String> argTypes = new ArrayList<>();
+        for (VariableElement param : method.getParameters()) {
+            String type = processingEnv.getTypeUtils().erasure(param.asType()).toString();
+            argTypes.add(type);
+            ContextKey key = param.getAnnotation(ContextKey.class);
+            if (key != null) {
+                args.add(BINDERS + "contextValue((java.util.Map) context, "
+                        + CompiledTemplateWriter.quote(key.value()) + ", " + type + ".class)");
+            }
+            else if (param.getAnnotation(FormId.class) != null) {
+                if (!String.class.getName().equals(type)) {
+                    throw new IllegalArgumentException("@FormId arguments must be of type String ("
+                            + handlerRef + ").");
+                }
+                args.add(BINDERS + "formId(source)");
+            }
+            else if (String.class.getName().equals(type)) {
+                args.add("input");
+            }
+            else if (java.util.Map.class.getName().equals(type)) {
+                args.add("(java.util.Map) context");
+            }
+            else if ("dev.houshce29.cliform.core.Console".equals(type)) {
+                args.add("console");
+            }
+            else if ("dev.houshce29.cliform.core.FormActions".equals(type)) {
+                args.add(BINDERS + "actions(source)");
+            }
+            else {
+                throw new IllegalArgumentException("Handler method arguments can only be of type String,"
+                        + " Map<String, Object>, Console, FormActions, a @FormId String, or a @ContextKey"
+                        + " value (" + handlerRef + ").");
+            }
+        }
+        return new HandlerCall(method.getSimpleName().toString(), args, argTypes,
+                method.getReturnType().getKind() == TypeKind.VOID,
+                method.getModifiers().contains(Modifier.STATIC),
+                !method.getModifiers().contains(Modifier.PRIVATE));
+    }
+
+    private void writeCompiledTemplate(TypeElement form,
+                                       String binaryName,
+                                       List<ParsedLine> lines,
+                                       List<HandlerCall> calls) {
+        String compiledName = CompiledTemplate.classNameFor(binaryName);
+        String source = new CompiledTemplateWriter(form.getQualifiedName().toString(), compiledName)
+                .write(lines, calls);
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(compiledName, form);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source);
+            }
+        }
+        catch (IOException ex) {
+            error("Failed to write compiled template " + compiledName + ": " + ex.getMessage(), form);
+        }
+    }
+
+    private static boolean isAccessible(TypeElement form) {
+        Element current = form;
+        while (current instanceof TypeElement) {
+            // The compiled template lives in the same package, so only
+            // private classes (or classes nested in them) are out of reach
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private void warning(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+    }
+
+    private void note(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+    }
+}
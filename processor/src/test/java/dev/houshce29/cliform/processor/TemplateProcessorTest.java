@@ -0,0 +1,353 @@
+package dev.houshce29.cliform.processor;
+
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.TextElement;
+import dev.houshce29.cliform.lang.CompiledTemplate;
+import dev.houshce29.cliform.lang.ElementGenerator;
+import dev.houshce29.cliform.lang.LoopElementGenerator;
+import dev.houshce29.cliform.lang.TemplateParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class TemplateProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+    private File classes;
+    private ClassLoader loader;
+
+    @Before
+    public void beforeEach() throws Exception {
+        diagnostics = new DiagnosticCollector<>();
+        classes = folder.newFolder("classes");
+    }
+
+    @Test
+    public void testGenerateCompiledTemplate() throws Exception {
+        Assert.assertTrue(compile("forms/Login.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "import dev.houshce29.cliform.core.FormAction;",
+                "import java.util.Map;",
+                "@Template({",
+                "    \"LOGIN \\\"100%\\\"\",",
+                "    \"Hello, ${user}!\",",
+                "    \"Username: [readUsername]\",",
+                "    \"Password: [!readPassword]\",",
+                "    \"Anything: []\"",
+                "})",
+                "public class Login {",
+                "    public void readUsername(String input, Map<String, String> context) {",
+                "        context.put(\"user\", input);",
+                "    }",
+                "    FormAction readPassword(String input) {",
+                "        return FormAction.goTo(input);",
+                "    }",
+                "}"));
+        Object form = load("forms.Login").getDeclaredConstructor().newInstance();
+        List<ElementGenerator> generators = loadCompiled("forms.Login").getGenerators();
+        Assert.assertEquals(5, generators.size());
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("user", "houshce29");
+        Assert.assertEquals("LOGIN \"100%\"", render(generators.get(0), form, context));
+        Assert.assertEquals("Hello, houshce29!", render(generators.get(1), form, context));
+
+        InputElement username = (InputElement) generators.get(2).generate(form, context);
+        Assert.assertEquals("Username: ", username.getPrompt());
+        Assert.assertFalse(username.isObscured());
+        FormAction action = username.getHandler().onInput("bob", context, null);
+        Assert.assertEquals(FormAction.Type.NOOP, action.getType());
+        Assert.assertEquals("bob", context.get("user"));
+
+        InputElement password = (InputElement) generators.get(3).generate(form, context);
+        Assert.assertTrue(password.isObscured());
+        action = password.getHandler().onInput("next-form", context, null);
+        Assert.assertEquals(FormAction.Type.FLOW_TO_FORM, action.getType());
+        Assert.assertEquals("next-form", action.getValue());
+
+        InputElement anything = (InputElement) generators.get(4).generate(form, context);
+        Assert.assertEquals(FormAction.Type.NOOP, anything.getHandler().onInput("", context, null).getType());
+    }
+
+    @Test
+    public void testGenerateForNestedClass() throws Exception {
+        Assert.assertTrue(compile("forms/Outer.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "public class Outer {",
+                "    @Template(\"Nested\")",
+                "    public static class Inner {",
+                "    }",
+                "}"));
+        Assert.assertEquals(1, loadCompiled("forms.Outer$Inner").getGenerators().size());
+    }
+
+    @Test
+    public void testHandlerErrorIsWrapped() throws Exception {
+        Assert.assertTrue(compile("forms/Failing.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template(\"Input: [fail]\")",
+                "public class Failing {",
+                "    public void fail() throws Exception {",
+                "        throw new Exception();",
+                "    }",
+                "}"));
+        Object form = load("forms.Failing").getDeclaredConstructor().newInstance();
+        InputElement input = (InputElement) loadCompiled("forms.Failing").getGenerators().get(0)
+                .generate(form, new HashMap<>());
+        try {
+            input.getHandler().onInput("", new HashMap<>(), null);
+            Assert.fail();
+        }
+        catch (IllegalStateException ex) {
+            Assert.assertEquals("Failed to invoke fail.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testGenerateInjectedArgs() throws Exception {
+        Assert.assertTrue(compile("forms/Injected.java",
+                "package forms;",
+                "import dev.houshce29.cliform.ContextKey;",
+                "import dev.houshce29.cliform.FormId;",
+                "import dev.houshce29.cliform.Template;",
+                "import dev.houshce29.cliform.core.AbstractForm;",
+                "import dev.houshce29.cliform.core.Element;",
+                "import dev.houshce29.cliform.core.FormAction;",
+                "import dev.houshce29.cliform.core.FormActions;",
+                "import java.util.List;",
+                "import java.util.Map;",
+                "@Template(\"Age: [read]\")",
+                "public class Injected extends AbstractForm {",
+                "    public Injected() {",
+                "        super(\"injected\");",
+                "    }",
+                "    public List<Element> create(Map<String, Object> context) {",
+                "        return null;",
+                "    }",
+                "    public FormAction read(@FormId String id, @ContextKey(\"age\") int age, FormActions actions) {",
+                "        return age > 17 ? actions.goTo(id + \"-adult\") : actions.restart();",
+                "    }",
+                "}"));
+        Object form = load("forms.Injected").getDeclaredConstructor().newInstance();
+        Map<String, Object> context = new HashMap<>();
+        context.put("age", 18);
+        InputElement input = (InputElement) loadCompiled("forms.Injected").getGenerators().get(0)
+                .generate(form, context);
+        Assert.assertEquals("injected-adult", input.getHandler().onInput("", context, null).getValue());
+        context.put("age", 3);
+        Assert.assertEquals("injected", input.getHandler().onInput("", context, null).getValue());
+    }
+
+    @Test
+    public void testBindingFailureMatchesParsed() throws Exception {
+        Assert.assertTrue(compile("forms/Unbound.java",
+                "package forms;",
+                "import dev.houshce29.cliform.ContextKey;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template(\"Age: [read]\")",
+                "public class Unbound {",
+                "    public void read(@ContextKey(\"age\") int age) {",
+                "    }",
+                "}"));
+        Class<?> formClass = load("forms.Unbound");
+        Object form = formClass.getDeclaredConstructor().newInstance();
+        ElementGenerator compiled = loadCompiled("forms.Unbound").getGenerators().get(0);
+        ElementGenerator parsed = new TemplateParser().parse(formClass).get(0);
+        RuntimeException compiledFailure = inputFailure(compiled, form);
+        RuntimeException parsedFailure = inputFailure(parsed, form);
+        Assert.assertEquals(parsedFailure.getClass(), compiledFailure.getClass());
+        Assert.assertEquals(parsedFailure.getMessage(), compiledFailure.getMessage());
+        Assert.assertEquals("No context value for age to pass as int.", compiledFailure.getMessage());
+    }
+
+    @Test
+    public void testGenerateLoops() throws Exception {
+        Assert.assertTrue(compile("forms/Inventory.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template({",
+                "    \"Inventory\",",
+                "    \"%for group in ${groups}\",",
+                "    \"${group.name}:\",",
+                "    \"%for item in ${group.items}\",",
+                "    \"- ${item}\",",
+                "    \"%end\",",
+                "    \"%end\",",
+                "    \"Done\"",
+                "})",
+                "public class Inventory {",
+                "}"));
+        List<ElementGenerator> generators = loadCompiled("forms.Inventory").getGenerators();
+        Assert.assertEquals(3, generators.size());
+        LoopElementGenerator loop = (LoopElementGenerator) generators.get(1);
+        Assert.assertEquals("group", loop.getVariable());
+        Assert.assertEquals("groups", loop.getSourceKey());
+        Assert.assertEquals(2, loop.getBody().size());
+        LoopElementGenerator inner = (LoopElementGenerator) loop.getBody().get(1);
+        Assert.assertEquals("group.items", inner.getSourceKey());
+        Assert.assertEquals("Done", render(generators.get(2), null, new HashMap<>()));
+    }
+
+    @Test
+    public void testReportLoopErrors() throws Exception {
+        Assert.assertFalse(compile("forms/BadLoops.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template({",
+                "    \"%end\",",
+                "    \"%for item in ${items}\",",
+                "    \"Input: []\"",
+                "})",
+                "public class BadLoops {",
+                "}"));
+        List<String> errors = errors();
+        Assert.assertEquals(3, errors.size());
+        Assert.assertTrue(errors.get(0).startsWith("Unexpected %end on line 1"));
+        Assert.assertTrue(errors.get(1).startsWith("Input is not allowed inside a loop on line 3"));
+        Assert.assertTrue(errors.get(2).startsWith("Incomplete loop starting on line 2"));
+    }
+
+    @Test
+    public void testReportSyntaxErrors() throws Exception {
+        Assert.assertFalse(compile("forms/Broken.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template({",
+                "    \"My name is ${name\",",
+                "    \"Password: [read\"",
+                "})",
+                "public class Broken {",
+                "}"));
+        List<String> errors = errors();
+        Assert.assertEquals(2, errors.size());
+        Assert.assertTrue(errors.get(0).startsWith("Incomplete variable block on line 1"));
+        Assert.assertTrue(errors.get(1).startsWith("Incomplete input block on line 2"));
+    }
+
+    @Test
+    public void testReportInvalidHandlerArgs() throws Exception {
+        Assert.assertFalse(compile("forms/BadHandler.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template(\"Input: [read]\")",
+                "public class BadHandler {",
+                "    public void read(int input) {",
+                "    }",
+                "}"));
+        Assert.assertEquals(1, errors().size());
+    }
+
+    @Test
+    public void testReportNoTemplateSource() throws Exception {
+        Assert.assertFalse(compile("forms/Empty.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template",
+                "public class Empty {",
+                "}"));
+        Assert.assertEquals(Arrays.asList("No template source defined."), errors());
+    }
+
+    @Test
+    public void testPrivateHandlerNotCompiled() throws Exception {
+        Assert.assertTrue(compile("forms/Private.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template(\"Input: [read]\")",
+                "public class Private {",
+                "    private void read() {",
+                "    }",
+                "}"));
+        Assert.assertFalse(new File(classes, "forms/Private" + CompiledTemplate.CLASS_SUFFIX + ".class").exists());
+    }
+
+    @Test
+    public void testPathTemplateNotCompiled() throws Exception {
+        Assert.assertTrue(compile("forms/OnDisk.java",
+                "package forms;",
+                "import dev.houshce29.cliform.Template;",
+                "@Template(path = \"/some/where.txt\")",
+                "public class OnDisk {",
+                "}"));
+        Assert.assertFalse(new File(classes, "forms/OnDisk" + CompiledTemplate.CLASS_SUFFIX + ".class").exists());
+    }
+
+    private boolean compile(String fileName, String... source) throws Exception {
+        Path file = folder.getRoot().toPath().resolve("src").resolve(fileName);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(source), StandardCharsets.UTF_8);
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-d", classes.getPath(),
+                    "-s", folder.newFolder().getPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, diagnostics, options, null,
+                    files.getJavaFileObjects(file.toFile()));
+            task.setProcessors(Arrays.asList(new TemplateProcessor()));
+            return task.call();
+        }
+    }
+
+    private List<String> errors() {
+        return diagnostics.getDiagnostics().stream()
+                .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                .map(diagnostic -> diagnostic.getMessage(null))
+                .collect(Collectors.toList());
+    }
+
+    private Class<?> load(String name) throws Exception {
+        if (loader == null) {
+            loader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+        }
+        return Class.forName(name, true, loader);
+    }
+
+    private CompiledTemplate loadCompiled(String formName) throws Exception {
+        return (CompiledTemplate) load(CompiledTemplate.classNameFor(formName))
+                .getDeclaredConstructor()
+                .newInstance();
+    }
+
+    private static RuntimeException inputFailure(ElementGenerator generator, Object form) {
+        InputElement input = (InputElement) generator.generate(form, new HashMap<>());
+        try {
+            input.getHandler().onInput("", new HashMap<>(), null);
+        }
+        catch (RuntimeException ex) {
+            return ex;
+        }
+        throw new AssertionError("Handler didn't fail.");
+    }
+
+    private static String render(ElementGenerator generator, Object form, Map<String, Object> context) {
+        Element element = generator.generate(form, context);
+        return ((TextElement) element).getText();
+    }
+}
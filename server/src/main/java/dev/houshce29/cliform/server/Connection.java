@@ -0,0 +1,134 @@
+package dev.houshce29.cliform.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A client connected to a {@link FormServer}, and the buffers between it
+ * and its session. Its socket is only ever touched by the selector thread;
+ * the session only touches the buffers, and asks the selector thread to
+ * look at the connection again when it reads or writes.
+ */
+final class Connection {
+    private final SocketChannel socket;
+    private final Inbound inbound;
+    private final Outbound outbound;
+    private final Consumer<Connection> updates;
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+    private volatile boolean sessionOver = false;
+    private SelectionKey key;
+
+    /**
+     * @param socket Socket of the client, in non-blocking mode.
+     * @param inputBufferSize Max number of bytes received but not read yet.
+     * @param outputBufferSize Max number of bytes written but not sent yet.
+     * @param updates Takes connections for the selector thread to look at again.
+     */
+    Connection(SocketChannel socket, int inputBufferSize, int outputBufferSize, Consumer<Connection> updates) {
+        this.socket = socket;
+        this.updates = updates;
+        this.inbound = new Inbound(inputBufferSize, this::requestUpdate);
+        this.outbound = new Outbound(outputBufferSize, this::requestUpdate);
+    }
+
+    void register(Selector selector) throws ClosedChannelException {
+        key = socket.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * @return What the session reads from.
+     */
+    Inbound getInbound() {
+        return inbound;
+    }
+
+    /**
+     * @return What the session writes to.
+     */
+    Outbound getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * Moves bytes between the socket and the buffers, as far as the socket
+     * is ready to. Only called by the selector thread.
+     * @throws IOException If the socket fails.
+     */
+    void onReady() throws IOException {
+        if (key.isReadable()) {
+            inbound.fill(socket);
+        }
+        if (key.isValid() && key.isWritable()) {
+            outbound.drain(socket);
+        }
+    }
+
+    /**
+     * Sets what to wait for on the socket, or closes it once the session
+     * is over and everything it wrote has been sent. Only called by the
+     * selector thread.
+     * @return <code>false</code> if the connection was closed.
+     */
+    boolean update() {
+        updateQueued.set(false);
+        if (!key.isValid()) {
+            disconnect();
+            return false;
+        }
+        boolean pending = outbound.hasPending();
+        if ((sessionOver || !outbound.isOpen()) && !pending) {
+            disconnect();
+            return false;
+        }
+        int ops = (inbound.wantsInput() ? SelectionKey.OP_READ : 0) | (pending ? SelectionKey.OP_WRITE : 0);
+        try {
+            key.interestOps(ops);
+        }
+        catch (CancelledKeyException ex) {
+            // The socket was closed under us
+            disconnect();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marks the session as over, so that the connection is closed once
+     * everything has been sent.
+     */
+    void sessionEnded() {
+        sessionOver = true;
+        inbound.close();
+        outbound.close();
+    }
+
+    /**
+     * Closes the socket straight away, failing the session's reads and
+     * writes from then on.
+     */
+    void disconnect() {
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            socket.close();
+        }
+        catch (IOException ex) {
+            // Closed either way
+        }
+        inbound.end();
+        outbound.disconnect();
+    }
+
+    private void requestUpdate() {
+        if (updateQueued.compareAndSet(false, true)) {
+            updates.accept(this);
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package dev.houshce29.cliform.server;
+
+import dev.houshce29.cliform.MultiSessionEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Serves forms over a plain, line-oriented protocol on TCP or Unix domain
+ * sockets, so that operators can connect with e.g. <code>nc</code> or
+ * <code>telnet</code> to one long-lived process. Each connection gets a
+ * session of a {@link MultiSessionEngine}: output is sent as text, and
+ * each line received answers a prompt.
+ *
+ * All socket I/O happens on a single selector thread, while sessions run
+ * on their own threads and only ever touch the connection's buffers.
+ * When a client sends faster than its session reads, the selector stops
+ * reading from it; when it reads slower than its session writes, the
+ * session waits. Either way, only that client's session is held up.
+ */
+public final class FormServer implements Closeable {
+    /**
+     * Default max number of bytes received from a client but not read yet.
+     */
+    public static final int DEFAULT_INPUT_BUFFER_SIZE = 4 * 1024;
+    /**
+     * Default max number of bytes written for a client but not sent yet.
+     */
+    public static final int DEFAULT_OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] BUSY = "Too many connections.\n".getBytes(StandardCharsets.UTF_8);
+    private final MultiSessionEngine engine;
+    private final String initialFormId;
+    private final int inputBufferSize;
+    private final int outputBufferSize;
+    private final int maxConnections;
+    private final Selector selector;
+    private final List<ServerSocketChannel> listeners;
+    private final List<SocketAddress> addresses = new ArrayList<>();
+    private final List<Path> socketFiles;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Queue<Connection> updates = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private FormServer(Builder builder, Selector selector, List<ServerSocketChannel> listeners) throws IOException {
+        this.engine = builder.engine;
+        this.initialFormId = builder.initialFormId;
+        this.inputBufferSize = builder.inputBufferSize;
+        this.outputBufferSize = builder.outputBufferSize;
+        this.maxConnections = builder.maxConnections;
+        this.selector = selector;
+        this.listeners = listeners;
+        this.socketFiles = new ArrayList<>(builder.unixPaths);
+        for (ServerSocketChannel listener : listeners) {
+            addresses.add(listener.getLocalAddress());
+        }
+        this.thread = new Thread(this::run, "cliform-server-selector");
+    }
+
+    /**
+     * @param engine Engine to run a session of for each connection.
+     * @param initialFormId The form each session starts at.
+     * @return A new builder.
+     */
+    public static Builder newBuilder(MultiSessionEngine engine, String initialFormId) {
+        return new Builder(Objects.requireNonNull(engine, "engine"), Objects.requireNonNull(initialFormId, "initialFormId"));
+    }
+
+    /**
+     * @return The addresses listened on; TCP addresses have their actual port.
+     */
+    public List<SocketAddress> getAddresses() {
+        return Collections.unmodifiableList(addresses);
+    }
+
+    /**
+     * @return Number of clients connected.
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops listening and drops every client, which fails their sessions.
+     * The engine itself is left open.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Connection connection;
+                while ((connection = updates.poll()) != null) {
+                    update(connection);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                    }
+                    else {
+                        ready((Connection) key.attachment());
+                    }
+                }
+            }
+        }
+        catch (IOException ex) {
+            // Only the selector itself failing ends the server; clients fail on their own
+            throw new UncheckedIOException(ex);
+        }
+        finally {
+            shutDown();
+        }
+    }
+
+    private void accept(ServerSocketChannel listener) {
+        SocketChannel client;
+        try {
+            client = listener.accept();
+        }
+        catch (IOException ex) {
+            // E.g. out of file descriptors; the clients already connected are served on
+            return;
+        }
+        if (client == null) {
+            return;
+        }
+        try {
+            open(client);
+        }
+        catch (IOException ex) {
+            // E.g. the client reset the connection before it was set up; only it is dropped
+            closeQuietly(client);
+        }
+    }
+
+    private void open(SocketChannel client) throws IOException {
+        client.configureBlocking(false);
+        if (maxConnections > 0 && connections.size() >= maxConnections) {
+            // Best effort; the client is dropped either way
+            client.write(ByteBuffer.wrap(BUSY));
+            client.close();
+            return;
+        }
+        if (client.supportedOptions().contains(StandardSocketOptions.TCP_NODELAY)) {
+            // Prompts are small, and the client waits on each of them
+            client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        Connection connection = new Connection(client, inputBufferSize, outputBufferSize, this::queueUpdate);
+        connection.register(selector);
+        connections.add(connection);
+        try {
+            engine.startSession(initialFormId, connection.getInbound(), connection.getOutbound())
+                    .whenComplete((context, failure) -> connection.sessionEnded());
+        }
+        catch (IllegalStateException ex) {
+            // The engine was closed
+            drop(connection);
+        }
+    }
+
+    private void ready(Connection connection) {
+        try {
+            connection.onReady();
+        }
+        catch (IOException | CancelledKeyException ex) {
+            drop(connection);
+            return;
+        }
+        update(connection);
+    }
+
+    private void update(Connection connection) {
+        if (!connection.update()) {
+            connections.remove(connection);
+        }
+    }
+
+    private void drop(Connection connection) {
+        connection.disconnect();
+        connections.remove(connection);
+    }
+
+    private void queueUpdate(Connection connection) {
+        updates.add(connection);
+        selector.wakeup();
+    }
+
+    private void shutDown() {
+        for (Connection connection : connections) {
+            connection.disconnect();
+        }
+        connections.clear();
+        for (ServerSocketChannel listener : listeners) {
+            closeQuietly(listener);
+        }
+        closeQuietly(selector);
+        for (Path socketFile : socketFiles) {
+            deleteQuietly(socketFile);
+        }
+    }
+
+    private static void deleteQuietly(Path socketFile) {
+        try {
+            Files.deleteIfExists(socketFile);
+        }
+        catch (IOException ex) {
+            // Left behind; binding to it again fails until it's deleted
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException ex) {
+            // Closed either way
+        }
+    }
+
+    /**
+     * Opens a server socket on a Unix domain socket file. Looked up
+     * reflectively, so that the server still runs on runtimes without
+     * Unix domain socket channels (before Java 16).
+     */
+    private static ServerSocketChannel openUnix(Path path) throws IOException {
+        SocketAddress address;
+        ServerSocketChannel channel;
+        try {
+            address = (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress")
+                    .getMethod("of", Path.class)
+                    .invoke(null, path);
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            channel = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+        }
+        catch (ReflectiveOperationException | IllegalArgumentException ex) {
+            throw new UnsupportedOperationException("Unix domain sockets need Java 16 or later.", ex);
+        }
+        try {
+            channel.bind(address);
+        }
+        catch (IOException ex) {
+            closeQuietly(channel);
+            throw ex;
+        }
+        return channel;
+    }
+
+    /**
+     * Builder of form servers.
+     */
+    public static class Builder {
+        private final MultiSessionEngine engine;
+        private final String initialFormId;
+        private final List<InetSocketAddress> tcpAddresses = new ArrayList<>();
+        private final List<Path> unixPaths = new ArrayList<>();
+        private int inputBufferSize = DEFAULT_INPUT_BUFFER_SIZE;
+        private int outputBufferSize = DEFAULT_OUTPUT_BUFFER_SIZE;
+        private int maxConnections = 0;
+
+        private Builder(MultiSessionEngine engine, String initialFormId) {
+            this.engine = engine;
+            this.initialFormId = initialFormId;
+        }
+
+        /**
+         * Listens on the given TCP port of the loopback interface only.
+         * @param port Port to listen on, or 0 for any free port.
+         * @return This builder.
+         */
+        public Builder bindTcp(int port) {
+            return bindTcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+
+        /**
+         * Listens on the given TCP address. The protocol has no
+         * authentication or encryption, so think twice before listening
+         * on anything but the loopback interface.
+         * @param address Address to listen on.
+         * @return This builder.
+         */
+        public Builder bindTcp(InetSocketAddress address) {
+            tcpAddresses.add(Objects.requireNonNull(address, "address"));
+            return this;
+        }
+
+        /**
+         * Listens on a Unix domain socket, whose file is created when the
+         * server starts and deleted when it's closed. Access to the server
+         * can then be controlled by the file's permissions. Needs Java 16
+         * or later.
+         * @param path Path of the socket file; must not exist yet.
+         * @return This builder.
+         */
+        public Builder bindUnix(Path path) {
+            unixPaths.add(Objects.requireNonNull(path, "path"));
+            return this;
+        }
+
+        /**
+         * Sets the max number of bytes received from a client but not read
+         * by its session yet. Defaults to {@link #DEFAULT_INPUT_BUFFER_SIZE}.
+         * @param inputBufferSize Max number of bytes.
+         * @return This builder.
+         * @throws IllegalArgumentException If the size isn't positive.
+         */
+        public Builder setInputBufferSize(int inputBufferSize) {
+            this.inputBufferSize = requirePositive(inputBufferSize, "Input buffer size");
+            return this;
+        }
+
+        /**
+         * Sets the max number of bytes written by a session but not sent to
+         * its client yet; sessions wait once it's reached. Defaults to
+         * {@link #DEFAULT_OUTPUT_BUFFER_SIZE}.
+         * @param outputBufferSize Max number of bytes.
+         * @return This builder.
+         * @throws IllegalArgumentException If the size isn't positive.
+         */
+        public Builder setOutputBufferSize(int outputBufferSize) {
+            this.outputBufferSize = requirePositive(outputBufferSize, "Output buffer size");
+            return this;
+        }
+
+        /**
+         * Sets the max number of clients connected at once; any more are
+         * told so and dropped. Unlimited by default.
+         * @param maxConnections Max number of clients, or 0 for no limit.
+         * @return This builder.
+         * @throws IllegalArgumentException If the number is negative.
+         */
+        public Builder setMaxConnections(int maxConnections) {
+            if (maxConnections < 0) {
+                throw new IllegalArgumentException("Max connections cannot be negative: " + maxConnections);
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Binds every address and starts serving.
+         * @return The running server.
+         * @throws IllegalStateException If no address was given.
+         * @throws UncheckedIOException If an address can't be bound.
+         * @throws UnsupportedOperationException If a Unix domain socket was
+         *                                       given, but the runtime has none.
+         */
+        public FormServer start() {
+            if (tcpAddresses.isEmpty() && unixPaths.isEmpty()) {
+                throw new IllegalStateException("No address to listen on.");
+            }
+            List<ServerSocketChannel> listeners = new ArrayList<>();
+            List<Path> socketFiles = new ArrayList<>();
+            Selector selector = null;
+            try {
+                selector = Selector.open();
+                for (InetSocketAddress address : tcpAddresses) {
+                    ServerSocketChannel listener = ServerSocketChannel.open();
+                    listeners.add(listener);
+                    listener.bind(address);
+                }
+                for (Path path : unixPaths) {
+                    listeners.add(openUnix(path));
+                    socketFiles.add(path);
+                }
+                for (ServerSocketChannel listener : listeners) {
+                    listener.configureBlocking(false);
+                    listener.register(selector, SelectionKey.OP_ACCEPT);
+                }
+                FormServer server = new FormServer(this, selector, listeners);
+                server.thread.start();
+                return server;
+            }
+            catch (IOException | RuntimeException ex) {
+                for (ServerSocketChannel listener : listeners) {
+                    closeQuietly(listener);
+                }
+                if (selector != null) {
+                    closeQuietly(selector);
+                }
+                for (Path socketFile : socketFiles) {
+                    deleteQuietly(socketFile);
+                }
+                if (ex instanceof IOException) {
+                    throw new UncheckedIOException((IOException) ex);
+                }
+                throw (RuntimeException) ex;
+            }
+        }
+
+        private static int requirePositive(int size, String name) {
+            if (size < 1) {
+                throw new IllegalArgumentException(name + " must be at least 1: " + size);
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package dev.houshce29.cliform.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bytes received from a client, waiting to be read by its session. The
+ * selector thread fills the buffer; the session blocks reading it. Once
+ * the buffer is full, the selector stops reading from the client until
+ * the session catches up, so TCP pushes back on clients that type faster
+ * than their session reads.
+ */
+final class Inbound implements ReadableByteChannel {
+    // Kept ready to be filled: bytes held are those before the position
+    private final ByteBuffer buffer;
+    private final Runnable onSpace;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private boolean eof = false;
+    private boolean open = true;
+
+    /**
+     * @param capacity Max number of bytes held.
+     * @param onSpace Invoked when a full buffer frees up.
+     */
+    Inbound(int capacity, Runnable onSpace) {
+        this.buffer = ByteBuffer.allocate(capacity);
+        this.onSpace = onSpace;
+    }
+
+    /**
+     * Reads what the client sent, as much as fits. Only called by the
+     * selector thread.
+     * @param client Client to read from.
+     * @return Number of bytes read, or -1 if the client shut its output.
+     * @throws IOException If the client can't be read.
+     */
+    int fill(ReadableByteChannel client) throws IOException {
+        lock.lock();
+        try {
+            if (!buffer.hasRemaining()) {
+                return 0;
+            }
+            int read = client.read(buffer);
+            if (read < 0) {
+                eof = true;
+            }
+            if (read != 0) {
+                available.signalAll();
+            }
+            return read;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if more can be read from the client.
+     */
+    boolean wantsInput() {
+        lock.lock();
+        try {
+            return open && !eof && buffer.hasRemaining();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the input as over, e.g. when the client goes away.
+     */
+    void end() {
+        lock.lock();
+        try {
+            eof = true;
+            available.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there's something to read.
+     * @throws ClosedByInterruptException If the session is interrupted
+     *                                    while waiting, which closes this channel.
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        lock.lock();
+        try {
+            while (buffer.position() == 0 && !eof && open) {
+                try {
+                    available.await();
+                }
+                catch (InterruptedException ex) {
+                    open = false;
+                    Thread.currentThread().interrupt();
+                    throw new ClosedByInterruptException();
+                }
+            }
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (buffer.position() == 0) {
+                return -1;
+            }
+            boolean full = !buffer.hasRemaining();
+            buffer.flip();
+            int count = Math.min(dst.remaining(), buffer.remaining());
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + count);
+            dst.put(buffer);
+            buffer.limit(limit);
+            buffer.compact();
+            if (full) {
+                onSpace.run();
+            }
+            return count;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return open;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            open = false;
+            available.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+}
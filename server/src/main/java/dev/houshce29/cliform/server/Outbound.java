@@ -0,0 +1,159 @@
+package dev.houshce29.cliform.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bytes written by a session, waiting to be sent to its client. The
+ * session fills the buffer; the selector thread sends it as the client
+ * takes it. Once the buffer is full, the session blocks until the client
+ * catches up, so a slow client holds up its own session and nothing else.
+ */
+final class Outbound implements WritableByteChannel {
+    // Kept ready to be filled: bytes held are those before the position
+    private final ByteBuffer buffer;
+    private final Runnable onData;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition space = lock.newCondition();
+    private boolean open = true;
+    private boolean disconnected = false;
+
+    /**
+     * @param capacity Max number of bytes held.
+     * @param onData Invoked when there's something new to send, or when
+     *               the channel is closed.
+     */
+    Outbound(int capacity, Runnable onData) {
+        this.buffer = ByteBuffer.allocate(capacity);
+        this.onData = onData;
+    }
+
+    /**
+     * Waits for space in the buffer whenever it's full.
+     * @throws ClosedByInterruptException If the session is interrupted
+     *                                    while waiting, which closes this channel.
+     */
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        lock.lock();
+        try {
+            while (src.hasRemaining()) {
+                if (!open) {
+                    throw new ClosedChannelException();
+                }
+                if (disconnected) {
+                    throw new IOException("Client disconnected.");
+                }
+                if (!buffer.hasRemaining()) {
+                    onData.run();
+                    awaitSpace();
+                    continue;
+                }
+                int count = Math.min(src.remaining(), buffer.remaining());
+                int limit = src.limit();
+                src.limit(src.position() + count);
+                buffer.put(src);
+                src.limit(limit);
+                written += count;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        onData.run();
+        return written;
+    }
+
+    /**
+     * Sends as much as the client takes. Only called by the selector thread.
+     * @param client Client to write to.
+     * @return <code>true</code> if anything is still waiting to be sent.
+     * @throws IOException If the client can't be written to.
+     */
+    boolean drain(WritableByteChannel client) throws IOException {
+        lock.lock();
+        try {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                client.write(buffer);
+                buffer.compact();
+                space.signalAll();
+            }
+            return buffer.position() > 0;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return <code>true</code> if anything is waiting to be sent.
+     */
+    boolean hasPending() {
+        lock.lock();
+        try {
+            return buffer.position() > 0;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails current and future writes, e.g. when the client goes away.
+     */
+    void disconnect() {
+        lock.lock();
+        try {
+            disconnected = true;
+            space.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return open;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops taking writes; whatever is pending is still sent.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            open = false;
+            space.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+        onData.run();
+    }
+
+    private void awaitSpace() throws ClosedByInterruptException {
+        try {
+            space.await();
+        }
+        catch (InterruptedException ex) {
+            open = false;
+            Thread.currentThread().interrupt();
+            throw new ClosedByInterruptException();
+        }
+    }
+}
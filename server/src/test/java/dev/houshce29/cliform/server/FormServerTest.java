@@ -0,0 +1,349 @@
+package dev.houshce29.cliform.server;
+
+import dev.houshce29.cliform.FormEngine;
+import dev.houshce29.cliform.MultiSessionEngine;
+import dev.houshce29.cliform.core.AbstractForm;
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.TextElement;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class FormServerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private MultiSessionEngine engine;
+    private FormServer server;
+
+    @Before
+    public void beforeEach() {
+        engine = FormEngine.newBuilder()
+                .addForm(NameForm.class, NameForm::new)
+                .addForm(ReportForm.class, ReportForm::new)
+                .buildMultiSession();
+    }
+
+    @After
+    public void afterEach() {
+        if (server != null) {
+            server.close();
+        }
+        engine.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void testTcpSession() throws Exception {
+        server = FormServer.newBuilder(engine, "NAME").bindTcp(0).start();
+        try (Client client = new Client(tcp())) {
+            client.readUntil("Name: ");
+            client.send("Alice\r\n");
+            Assert.assertTrue(client.readUntil("Name: ").contains("Hello Alice"));
+            client.send("q\n");
+            client.readToEnd();
+        }
+        awaitNoConnections();
+    }
+
+    @Test(timeout = 10_000)
+    public void testUnixSession() throws Exception {
+        Path socketFile = folder.getRoot().toPath().resolve("forms.sock");
+        try {
+            server = FormServer.newBuilder(engine, "NAME").bindUnix(socketFile).start();
+        }
+        catch (UnsupportedOperationException ex) {
+            Assume.assumeNoException(ex);
+        }
+        Assert.assertTrue(Files.exists(socketFile));
+        try (Client client = new Client(unix(server.getAddresses().get(0)))) {
+            client.readUntil("Name: ");
+            client.send("Bob\n");
+            Assert.assertTrue(client.readUntil("Name: ").contains("Hello Bob"));
+        }
+        server.close();
+        Assert.assertFalse(Files.exists(socketFile));
+    }
+
+    @Test(timeout = 20_000)
+    public void testManyClients() throws Exception {
+        server = FormServer.newBuilder(engine, "NAME").bindTcp(0).start();
+        List<CompletableFuture<String>> clients = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String name = "User " + i;
+            clients.add(CompletableFuture.supplyAsync(() -> {
+                try (Client client = new Client(tcp())) {
+                    client.readUntil("Name: ");
+                    client.send(name + "\n");
+                    String screen = client.readUntil("Name: ");
+                    client.send("q\n");
+                    client.readToEnd();
+                    return screen;
+                }
+                catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }));
+        }
+        for (int i = 0; i < clients.size(); i++) {
+            Assert.assertTrue(clients.get(i).get(15, TimeUnit.SECONDS).contains("Hello User " + i));
+        }
+        awaitNoConnections();
+    }
+
+    @Test(timeout = 10_000)
+    public void testSlowClient() throws Exception {
+        server = FormServer.newBuilder(engine, "REPORT")
+                .bindTcp(0)
+                .setOutputBufferSize(256)
+                .start();
+        try (Client slow = new Client(tcp()); Client fast = new Client(tcp())) {
+            // The slow client's session is held up by its full buffer, but the other one isn't
+            String report = fast.readUntil("Done? ");
+            Assert.assertTrue(report.contains("Line 9999"));
+            Thread.sleep(100);
+            Assert.assertTrue(slow.readUntil("Done? ").contains("Line 9999"));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testClientDisconnects() throws Exception {
+        server = FormServer.newBuilder(engine, "NAME").bindTcp(0).start();
+        try (Client client = new Client(tcp())) {
+            client.readUntil("Name: ");
+            Assert.assertEquals(1, server.getConnectionCount());
+        }
+        awaitNoConnections();
+    }
+
+    @Test(timeout = 10_000)
+    public void testMaxConnections() throws Exception {
+        server = FormServer.newBuilder(engine, "NAME").bindTcp(0).setMaxConnections(1).start();
+        try (Client first = new Client(tcp())) {
+            first.readUntil("Name: ");
+            try (Client second = new Client(tcp())) {
+                Assert.assertEquals("Too many connections.\n", second.readToEnd());
+            }
+            first.send("q\n");
+            first.readToEnd();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testClientResetsWhileAccepted() throws Exception {
+        server = FormServer.newBuilder(engine, "NAME").bindTcp(0).setMaxConnections(2).start();
+        try (Client client = new Client(tcp())) {
+            client.readUntil("Name: ");
+            // Clients that reset straight away, both while being set up and once turned away
+            for (int i = 0; i < 20; i++) {
+                Socket reset = new Socket();
+                reset.setSoLinger(true, 0);
+                reset.connect(server.getAddresses().get(0));
+                reset.close();
+            }
+            client.send("Alice\n");
+            Assert.assertTrue(client.readUntil("Name: ").contains("Hello Alice"));
+            // Reset clients that were set up are dropped once their sessions
+            // notice, though some may still be waiting to be accepted
+            Client other = null;
+            while (other == null) {
+                Client candidate = new Client(tcp());
+                try {
+                    candidate.readUntil("Name: ");
+                    other = candidate;
+                }
+                catch (IOException ex) {
+                    candidate.close();
+                    Assert.assertTrue(ex.getMessage().endsWith("Too many connections.\n"));
+                    Thread.sleep(10);
+                }
+            }
+            try (Client session = other) {
+                session.send("Bob\n");
+                Assert.assertTrue(session.readUntil("Name: ").contains("Hello Bob"));
+            }
+            client.send("q\n");
+            client.readToEnd();
+        }
+        awaitNoConnections();
+    }
+
+    @Test(timeout = 10_000)
+    public void testClose() throws Exception {
+        server = FormServer.newBuilder(engine, "NAME").bindTcp(0).start();
+        try (Client client = new Client(tcp())) {
+            client.readUntil("Name: ");
+            server.close();
+            client.readToEnd();
+            Assert.assertEquals(0, server.getConnectionCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoAddress() {
+        FormServer.newBuilder(engine, "NAME").start();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() {
+        FormServer.newBuilder(engine, "NAME").setInputBufferSize(0);
+    }
+
+    private Socket tcp() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(server.getAddresses().get(0));
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static SocketChannel unix(SocketAddress address) throws Exception {
+        ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+        SocketChannel channel = (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class)
+                .invoke(null, unix);
+        channel.connect(address);
+        return channel;
+    }
+
+    private void awaitNoConnections() throws InterruptedException {
+        while (server.getConnectionCount() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * A blocking client of the server.
+     */
+    private static final class Client implements AutoCloseable {
+        private final AutoCloseable connection;
+        private final InputStream in;
+        private final OutputStream out;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+
+        private Client(Socket socket) throws IOException {
+            this.connection = socket;
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+        }
+
+        private Client(SocketChannel channel) {
+            this.connection = channel;
+            this.in = Channels.newInputStream(channel);
+            this.out = Channels.newOutputStream(channel);
+        }
+
+        private void send(String text) throws IOException {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        /**
+         * @return Everything received since the last read, up to the text.
+         */
+        private String readUntil(String text) throws IOException {
+            byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+            while (!endsWith(expected)) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new IOException("Connection closed before \"" + text + "\": " + received);
+                }
+                received.write(b);
+            }
+            return take();
+        }
+
+        private String readToEnd() throws IOException {
+            int b;
+            while ((b = in.read()) >= 0) {
+                received.write(b);
+            }
+            return take();
+        }
+
+        private boolean endsWith(byte[] expected) {
+            byte[] bytes = received.toByteArray();
+            if (bytes.length < expected.length) {
+                return false;
+            }
+            return Arrays.equals(expected, Arrays.copyOfRange(bytes, bytes.length - expected.length, bytes.length));
+        }
+
+        private String take() {
+            String text = new String(received.toByteArray(), StandardCharsets.UTF_8);
+            received.reset();
+            return text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                connection.close();
+            }
+            catch (IOException ex) {
+                throw ex;
+            }
+            catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+
+    public static class NameForm extends AbstractForm {
+        public NameForm() {
+            super("NAME");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Arrays.asList(
+                    new TextElement("Hello " + context.getOrDefault("name", "stranger")),
+                    new InputElement(false, "Name: ", (input, ctx, console) -> {
+                        if ("q".equals(input)) {
+                            return FormAction.exit();
+                        }
+                        ctx.put("name", input);
+                        return FormAction.goTo("NAME");
+                    }));
+        }
+    }
+
+    public static class ReportForm extends AbstractForm {
+        public ReportForm() {
+            super("REPORT");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            List<Element> elements = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                elements.add(new TextElement("Line " + i));
+            }
+            elements.add(new InputElement(false, "Done? ", (input, ctx, console) -> FormAction.exit()));
+            return elements;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dev.houshce29.cliform;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the context value stored under the given key into an input
+ * handler argument. The value must be assignable to the argument's type;
+ * a missing value is passed as <code>null</code>, which isn't allowed
+ * for primitive arguments.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ContextKey {
+    /**
+     * The context key of the value.
+     * @return The context key.
+     */
+    String value();
+}
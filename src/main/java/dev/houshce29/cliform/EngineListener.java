@@ -0,0 +1,40 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.FormAction;
+
+import java.util.Map;
+
+/**
+ * Gets notified of what a running form engine does. Every method does
+ * nothing by default, so only what's of interest needs implementing.
+ *
+ * Listeners that are also {@link dev.houshce29.cliform.core.ConsoleObserver}s
+ * are added to the engine's console as observers too.
+ */
+public interface EngineListener {
+
+    /**
+     * Invoked when a form is about to be run, before it's initialized.
+     * @param formId ID of the form.
+     * @param context Application context.
+     */
+    default void onFormStart(String formId, Map<String, Object> context) {
+    }
+
+    /**
+     * Invoked with the action of every actionable element rendered,
+     * including the ones that change nothing.
+     * @param formId ID of the form rendering the element.
+     * @param action Action of the element.
+     */
+    default void onAction(String formId, FormAction action) {
+    }
+
+    /**
+     * Invoked once the engine stops, whether it ran out of forms, exited,
+     * or failed.
+     * @param context Application context, as the engine left it.
+     */
+    default void onStop(Map<String, Object> context) {
+    }
+}
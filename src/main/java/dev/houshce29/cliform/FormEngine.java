@@ -2,32 +2,80 @@ package dev.houshce29.cliform;
 
 import dev.houshce29.cliform.core.ActionableElement;
 import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.ConsoleObserver;
 import dev.houshce29.cliform.core.Element;
 import dev.houshce29.cliform.core.Form;
 import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.OverflowPolicy;
+import dev.houshce29.cliform.core.ReactiveElement;
+import dev.houshce29.cliform.core.Terminal;
+import dev.houshce29.cliform.lang.TemplateCache;
 import dev.houshce29.cliform.util.CollectionUtils;
 import dev.houshce29.cliform.util.StringUtils;
 
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * The main driver of form flows.
  */
 public class FormEngine {
-    private final Console console = new Console();
+    /**
+     * Suggested max size of the console's frame buffer, in characters.
+     * The frame buffer is off unless a size is set.
+     */
+    public static final int DEFAULT_FRAME_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Default max number of characters kept of a line of input.
+     */
+    public static final int DEFAULT_MAX_INPUT_LENGTH = 64 * 1024;
+    private final Console console;
     private final String title;
     private final Map<String, Object> context = new ConcurrentHashMap<>();
     private final Map<String, Form> forms;
+    // Only set in reactive rendering mode
+    private final ReactiveRenderer reactive;
+    private final List<EngineListener> listeners;
+    // ID of the form being run, if any
+    private String formId;
 
     private FormEngine(Builder builder) {
+        this(builder, builder.terminal != null
+                ? builder.terminal
+                : builder.newConsole(builder.inputChannel, builder.outputChannel, builder.charset),
+                builder.forms, builder.newSessionListeners());
+    }
+
+    /**
+     * @param builder Builder holding the settings of the engine.
+     * @param terminal Terminal to use as is.
+     * @param forms Forms of the engine.
+     * @param sessionListeners Listeners of this engine alone, notified after those of the builder.
+     */
+    FormEngine(Builder builder, Terminal terminal, List<Form> forms, List<EngineListener> sessionListeners) {
         this.title = createTitle(builder.applicationName, builder.applicationVersion);
-        this.forms = CollectionUtils.toIdentityMap(builder.forms, Form::getId);
+        this.console = Console.of(terminal);
+        this.listeners = new ArrayList<>(builder.listeners);
+        this.listeners.addAll(sessionListeners);
+        for (EngineListener listener : listeners) {
+            if (listener instanceof ConsoleObserver) {
+                console.addObserver((ConsoleObserver) listener);
+            }
+        }
+        // Lines can only be rewritten on terminals that understand cursor movement
+        this.reactive = builder.reactiveRendering && console.isAnsi() ? new ReactiveRenderer() : null;
+        this.forms = CollectionUtils.toIdentityMap(forms, Form::getId);
         this.context.putAll(builder.init);
     }
 
@@ -37,16 +85,40 @@ public class FormEngine {
      */
     public void start(String initialFormId) {
         String formId = initialFormId;
-        // Run while there's a next form.
-        while (StringUtils.isNotBlank(formId)) {
-            formId = run(formId)
-                    // Only care about form flow. The exit action will just break this loop.
-                    .filter(action -> action.getType() == FormAction.Type.FLOW_TO_FORM)
-                    .map(FormAction::getValue)
-                    .orElse(null);
+        try {
+            // Run while there's a next form.
+            while (StringUtils.isNotBlank(formId)) {
+                formId = run(formId)
+                        // Only care about form flow. The exit action will just break this loop.
+                        .filter(action -> action.getType() == FormAction.Type.FLOW_TO_FORM)
+                        .map(FormAction::getValue)
+                        .orElse(null);
+            }
+        }
+        finally {
+            // Whatever was rendered after the last prompt
+            console.flush();
+            for (EngineListener listener : listeners) {
+                listener.onStop(context);
+            }
         }
     }
 
+    /**
+     * @return The application context; only safe to read once the engine
+     *         has stopped.
+     */
+    Map<String, Object> getContext() {
+        return context;
+    }
+
+    /**
+     * @return The console the engine renders to.
+     */
+    Console getConsole() {
+        return console;
+    }
+
     /**
      * Runs the form of the given ID.
      * @param formId ID of the form to run.
@@ -54,10 +126,19 @@ public class FormEngine {
      *         the current run (i.e. an exit or a form flow).
      */
     private Optional<FormAction> run(String formId) {
+        this.formId = formId;
+        for (EngineListener listener : listeners) {
+            listener.onFormStart(formId, context);
+        }
         // Load the form
         console.clear();
+        if (reactive != null) {
+            reactive.reset();
+        }
         renderAppTitle();
         Form form = loadForm(formId);
+        // Anything the form writes itself (e.g. to System.out) comes after the title
+        console.flush();
         form.onInit(context);
         // Render the elements
         for (Element element : form.create(context)) {
@@ -82,7 +163,11 @@ public class FormEngine {
      */
     private Optional<FormAction> render(Element element) {
         // Always invoke render
+        long line = console.getLinesWritten();
         element.render(context, console);
+        if (reactive != null && element instanceof ReactiveElement) {
+            reactive.track((ReactiveElement) element, line, console);
+        }
         // Handle actionable element if applicable
         if (element instanceof ActionableElement) {
             Optional<FormAction> action = handleActionElement((ActionableElement) element);
@@ -100,7 +185,7 @@ public class FormEngine {
      *         current rendering.
      */
     private Optional<FormAction> handleActionElement(ActionableElement actionElement) {
-        FormAction action = actionElement.renderWithAction(context, console);
+        FormAction action = renderWithAction(actionElement);
         if (action.isDisruptive()) {
             return Optional.of(action);
         }
@@ -122,11 +207,33 @@ public class FormEngine {
     private Optional<FormAction> repeatPrompt(ActionableElement element) {
         FormAction action = FormAction.reprompt();
         while (action.repeatPrompt()) {
-            action = element.renderWithAction(context, console);
+            action = renderWithAction(element);
         }
         return Optional.ofNullable(action.isDisruptive() ? action : null);
     }
 
+    /**
+     * Renders the actionable element. In reactive rendering mode, the
+     * elements already on screen whose context values were changed by
+     * the element are then rewritten in place.
+     * @param element Actionable element to render.
+     * @return The action of the element.
+     */
+    private FormAction renderWithAction(ActionableElement element) {
+        Object[] before = reactive != null ? reactive.snapshot(context) : null;
+        FormAction action = element.renderWithAction(context, console);
+        // Output of the handler is shown as soon as it returns, rather than
+        // being held back with the next frame
+        console.flush();
+        if (reactive != null && !action.isDisruptive()) {
+            reactive.refresh(before, context, console);
+        }
+        for (EngineListener listener : listeners) {
+            listener.onAction(formId, action);
+        }
+        return action;
+    }
+
     /**
      * Loads the given form.
      * @param formId ID of the form.
@@ -180,6 +287,25 @@ public class FormEngine {
         private String applicationVersion;
         private final Map<String, Object> init = new HashMap<>();
         private final List<Form> forms = new ArrayList<>();
+        // Forms created once their templates are compiled
+        private final List<Class<?>> formClasses = new ArrayList<>();
+        private final List<Supplier<? extends Form>> formSuppliers = new ArrayList<>();
+        private boolean reactiveRendering = false;
+        private int frameBufferSize = 0;
+        private boolean differentialRendering = false;
+        // Negative to size consoles from the environment
+        private int terminalRows = -1;
+        private int terminalColumns = -1;
+        private int asyncOutputCapacity = 0;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private ReadableByteChannel inputChannel;
+        private WritableByteChannel outputChannel;
+        private Charset charset;
+        private int maxInputLength = DEFAULT_MAX_INPUT_LENGTH;
+        private final List<EngineListener> listeners = new ArrayList<>();
+        private final List<Supplier<? extends EngineListener>> sessionListeners = new ArrayList<>();
+        // Replaces the console the engine would set up, along with its settings
+        private Terminal terminal;
 
         private Builder() {
         }
@@ -204,6 +330,205 @@ public class FormEngine {
             return this;
         }
 
+        /**
+         * Sets whether lines already on screen are rewritten in place when
+         * input changes the context values they show, instead of waiting
+         * for the form to be created again. Only takes effect on terminals
+         * that understand ANSI cursor movement. Off by default.
+         *
+         * Lines are found by moving the cursor up, so they're only rewritten
+         * while they're still on screen, which takes knowing the terminal's
+         * height (see {@link Terminal#getRows()}): from
+         * {@link #setTerminalSize(int, int)}, the <code>LINES</code>
+         * environment variable or the <code>cliform.lines</code> system
+         * property. Shells don't usually export <code>LINES</code>, so
+         * without a size nothing is rewritten in place.
+         * @param reactiveRendering <code>true</code> to rewrite lines in place.
+         * @return This builder.
+         */
+        public Builder setReactiveRendering(boolean reactiveRendering) {
+            this.reactiveRendering = reactiveRendering;
+            return this;
+        }
+
+        /**
+         * Sets the max size of the console's frame buffer, in characters.
+         * Everything rendered up to a prompt is written out at once, unless
+         * it outgrows the buffer; output of handlers is written out when
+         * they return. A size of 0 writes each line out as it's rendered,
+         * which is the default; {@link #DEFAULT_FRAME_BUFFER_SIZE} suits
+         * most forms.
+         * @param frameBufferSize Max number of characters to buffer.
+         * @return This builder.
+         * @throws IllegalArgumentException If the size is negative.
+         */
+        public Builder setFrameBufferSize(int frameBufferSize) {
+            if (frameBufferSize < 0) {
+                throw new IllegalArgumentException("Frame buffer size cannot be negative: " + frameBufferSize);
+            }
+            this.frameBufferSize = frameBufferSize;
+            return this;
+        }
+
+        /**
+         * Sets whether moving between forms only rewrites the lines that
+         * differ from the previous screen, instead of clearing it and
+         * writing the next form in full. The screen is still cleared when
+         * most lines differ. Requires the frame buffer, and only takes
+         * effect on terminals that understand ANSI escape sequences. Off
+         * by default.
+         *
+         * Lines can only be diffed on a screen of known size, from
+         * {@link #setTerminalSize(int, int)}, the <code>LINES</code> and
+         * <code>COLUMNS</code> environment variables, or the
+         * <code>cliform.lines</code> and <code>cliform.columns</code> system
+         * properties. Shells don't usually export either variable, so
+         * without a size every form is drawn in full, as if this was off.
+         * @param differentialRendering <code>true</code> to only rewrite changed lines.
+         * @return This builder.
+         */
+        public Builder setDifferentialRendering(boolean differentialRendering) {
+            this.differentialRendering = differentialRendering;
+            return this;
+        }
+
+        /**
+         * Sets the size of the terminal that the console writes to, for
+         * reactive and differential rendering, in place of what the
+         * <code>LINES</code> and <code>COLUMNS</code> environment variables
+         * (or the <code>cliform.lines</code> and <code>cliform.columns</code>
+         * system properties) say. Ignored when a terminal is set, as
+         * terminals report their own size. Applies to every session of a
+         * multi-session engine; sessions of different sizes can be started
+         * on consoles sized with {@link Console#setTerminalSize(int, int)}.
+         * @param rows Number of rows of the terminal, or 0 if unknown.
+         * @param columns Number of columns of the terminal, or 0 if unknown.
+         * @return This builder.
+         * @throws IllegalArgumentException If either is negative.
+         */
+        public Builder setTerminalSize(int rows, int columns) {
+            if (rows < 0 || columns < 0) {
+                throw new IllegalArgumentException("Terminal size cannot be negative: " + rows + "x" + columns);
+            }
+            this.terminalRows = rows;
+            this.terminalColumns = columns;
+            return this;
+        }
+
+        /**
+         * Sets the console to write output on a dedicated thread, so that
+         * forms and handlers aren't held up by a slow terminal. Pending
+         * output is always written out before prompting for input, and the
+         * thread stops by itself once output has been idle for a second, so
+         * an engine that has stopped doesn't keep it. A failure to write is
+         * thrown to whoever writes or flushes next. Off by default.
+         * @param capacity Max number of pending writes, or 0 to write synchronously.
+         * @param policy What to do when output is written faster than the terminal takes it.
+         * @return This builder.
+         * @throws IllegalArgumentException If the capacity is negative.
+         */
+        public Builder setAsyncOutput(int capacity, OverflowPolicy policy) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Async output capacity cannot be negative: " + capacity);
+            }
+            this.asyncOutputCapacity = capacity;
+            this.overflowPolicy = Objects.requireNonNull(policy, "policy");
+            return this;
+        }
+
+        /**
+         * Sets the engine to read input from and write output to the given
+         * byte channels (e.g. pipes or sockets) rather than the standard
+         * streams, with UTF-8 text.
+         * @param in Channel to read input from; expected to be blocking.
+         * @param out Channel to write output to.
+         * @return This builder.
+         */
+        public Builder setChannels(ReadableByteChannel in, WritableByteChannel out) {
+            return setChannels(in, out, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Sets the engine to read input from and write output to the given
+         * byte channels (e.g. pipes or sockets) rather than the standard
+         * streams.
+         * @param in Channel to read input from; expected to be blocking.
+         * @param out Channel to write output to.
+         * @param charset Charset of the text on both channels.
+         * @return This builder.
+         */
+        public Builder setChannels(ReadableByteChannel in, WritableByteChannel out, Charset charset) {
+            this.inputChannel = Objects.requireNonNull(in, "in");
+            this.outputChannel = Objects.requireNonNull(out, "out");
+            this.charset = Objects.requireNonNull(charset, "charset");
+            return this;
+        }
+
+        /**
+         * Sets the max number of characters kept of a line of input. Longer
+         * lines are cut short, so that input can't take up unbounded memory.
+         * Defaults to {@link #DEFAULT_MAX_INPUT_LENGTH}.
+         * @param maxInputLength Max number of characters of input.
+         * @return This builder.
+         * @throws IllegalArgumentException If the length isn't positive.
+         */
+        public Builder setMaxInputLength(int maxInputLength) {
+            if (maxInputLength < 1) {
+                throw new IllegalArgumentException("Max input length must be at least 1: " + maxInputLength);
+            }
+            this.maxInputLength = maxInputLength;
+            return this;
+        }
+
+        /**
+         * Adds a listener to notify of what the engine does. Listeners
+         * that are also {@link ConsoleObserver}s observe the engine's
+         * console as well.
+         * @param listener Listener to add.
+         * @return This builder.
+         */
+        public Builder addListener(EngineListener listener) {
+            this.listeners.add(Objects.requireNonNull(listener, "listener"));
+            return this;
+        }
+
+        /**
+         * Adds a listener that's created anew for every engine built, and
+         * for every session of a multi-session engine, so that it only sees
+         * the events of that one session; e.g. a {@link TranscriptRecorder}
+         * that records each session into a transcript of its own. Those
+         * created for a multi-session engine are closed once their session
+         * ends, if they're {@link java.io.Closeable}.
+         * @param supplier Creates the listener of each engine or session.
+         * @return This builder.
+         */
+        public Builder addSessionListener(Supplier<? extends EngineListener> supplier) {
+            this.sessionListeners.add(Objects.requireNonNull(supplier, "supplier"));
+            return this;
+        }
+
+        /**
+         * Sets the terminal for the engine to use as it is, instead of the
+         * console it would set up from the other settings of this builder
+         * (frame buffer, async output, channels, etc.), which are then
+         * ignored. Elements are rendered to the terminal through
+         * {@link Console#of(Terminal)}. The engine doesn't close it.
+         * @param terminal Terminal to use, or <code>null</code> for the
+         *                 engine's own console (the default).
+         * @return This builder.
+         */
+        public Builder setTerminal(Terminal terminal) {
+            this.terminal = terminal;
+            return this;
+        }
+
+        /**
+         * @return The charset set for the engine's channels, if any.
+         */
+        Charset getCharset() {
+            return charset;
+        }
+
         /**
          * Adds all the forms to the engine being built.
          * @param forms Forms to include.
@@ -223,6 +548,36 @@ public class FormEngine {
             return addForms(Arrays.asList(forms));
         }
 
+        /**
+         * Adds forms to be created when the engine is built, using their
+         * no-arg constructors. Their templates are compiled in parallel
+         * beforehand.
+         * @param formClasses Classes of the forms to include.
+         * @return This builder.
+         */
+        @SafeVarargs
+        public final Builder addFormClasses(Class<? extends Form>... formClasses) {
+            for (Class<? extends Form> formClass : formClasses) {
+                this.formClasses.add(formClass);
+                this.formSuppliers.add(() -> newForm(formClass));
+            }
+            return this;
+        }
+
+        /**
+         * Adds a form to be created when the engine is built. Its template
+         * is compiled in parallel with the others beforehand.
+         * @param formClass Class of the form, hosting its template.
+         * @param supplier Creates the form.
+         * @param <T> Type of the form.
+         * @return This builder.
+         */
+        public <T extends Form> Builder addForm(Class<T> formClass, Supplier<? extends T> supplier) {
+            this.formClasses.add(formClass);
+            this.formSuppliers.add(supplier);
+            return this;
+        }
+
         /**
          * Inserts an initial context value into the engine.
          * @param key Key to identify.
@@ -249,7 +604,140 @@ public class FormEngine {
          * @return A new form engine instance configured by this builder.
          */
         public FormEngine build() {
+            precompileTemplates();
+            for (Supplier<? extends Form> supplier : formSuppliers) {
+                forms.add(supplier.get());
+            }
+            formSuppliers.clear();
+            formClasses.clear();
             return new FormEngine(this);
         }
+
+        /**
+         * Builds an engine that runs many sessions of the forms at once,
+         * each with its own console and context, on virtual threads where
+         * the runtime has them. Forms added by class or supplier are created
+         * for each session, while their compiled templates are shared;
+         * form instances added as they are get shared by every session, so
+         * must be safe to use from several threads at once. Listeners are
+         * shared as well, and see the events of every session interleaved;
+         * e.g. a {@link TranscriptRecorder} added with
+         * {@link #addListener(EngineListener)} records one transcript that
+         * can't be replayed, so record each session with a recorder added by
+         * {@link #addSessionListener(Supplier)} instead.
+         *
+         * Console settings apply to each session on its own, so a frame
+         * buffer (off by default) is allocated for every session that
+         * talks over channels. Async output isn't supported, as it would
+         * take a writer thread per session.
+         * @return A new multi-session engine configured by this builder.
+         * @throws IllegalStateException If async output was set.
+         */
+        public MultiSessionEngine buildMultiSession() {
+            if (asyncOutputCapacity > 0) {
+                throw new IllegalStateException("Async output isn't supported for multi-session engines.");
+            }
+            precompileTemplates();
+            Builder settings = copySessionSettings();
+            formSuppliers.clear();
+            formClasses.clear();
+            return new MultiSessionEngine(settings);
+        }
+
+        /**
+         * Copies what a session engine is built from, so that building one
+         * leaves this builder as it is and isn't affected by later changes
+         * to it. The terminal, channels and async output aren't copied, as
+         * sessions bring a terminal of their own.
+         * @return A new builder with the settings of this one.
+         */
+        Builder copySessionSettings() {
+            Builder settings = new Builder();
+            settings.applicationName = applicationName;
+            settings.applicationVersion = applicationVersion;
+            settings.init.putAll(init);
+            settings.forms.addAll(forms);
+            settings.formSuppliers.addAll(formSuppliers);
+            settings.reactiveRendering = reactiveRendering;
+            settings.frameBufferSize = frameBufferSize;
+            settings.differentialRendering = differentialRendering;
+            settings.terminalRows = terminalRows;
+            settings.terminalColumns = terminalColumns;
+            settings.charset = charset;
+            settings.maxInputLength = maxInputLength;
+            settings.listeners.addAll(listeners);
+            settings.sessionListeners.addAll(sessionListeners);
+            return settings;
+        }
+
+        /**
+         * Builds the engine of a single session, with forms of its own
+         * where they can be created.
+         * @param terminal Terminal of the session.
+         * @param sessionListeners Listeners of the session alone.
+         * @return A new form engine.
+         */
+        FormEngine buildSession(Terminal terminal, List<EngineListener> sessionListeners) {
+            List<Form> sessionForms = new ArrayList<>(forms);
+            for (Supplier<? extends Form> supplier : formSuppliers) {
+                sessionForms.add(supplier.get());
+            }
+            return new FormEngine(this, terminal, sessionForms, sessionListeners);
+        }
+
+        /**
+         * @return New listeners of a single engine or session.
+         */
+        List<EngineListener> newSessionListeners() {
+            List<EngineListener> created = new ArrayList<>(sessionListeners.size());
+            for (Supplier<? extends EngineListener> supplier : sessionListeners) {
+                created.add(Objects.requireNonNull(supplier.get(), "Session listener cannot be null."));
+            }
+            return created;
+        }
+
+        /**
+         * Sets up a console with the settings of this builder.
+         * @param in Channel to read input from, or <code>null</code> for the standard streams.
+         * @param out Channel to write output to.
+         * @param charset Charset of the text on both channels.
+         * @return The new console.
+         */
+        Console newConsole(ReadableByteChannel in, WritableByteChannel out, Charset charset) {
+            Console console = in != null
+                    ? Console.fromChannels(in, out, charset != null ? charset : StandardCharsets.UTF_8)
+                    : new Console();
+            if (terminalRows >= 0) {
+                console.setTerminalSize(terminalRows, terminalColumns);
+            }
+            return console.setFrameBufferSize(frameBufferSize)
+                    .setDifferentialRendering(differentialRendering)
+                    .setAsyncOutput(asyncOutputCapacity, overflowPolicy)
+                    .setMaxInputLength(maxInputLength);
+        }
+
+        /**
+         * Compiles the templates of every form added by class, in parallel.
+         * @throws IllegalStateException If any template fails to compile,
+         *                               listing every failure.
+         */
+        private void precompileTemplates() {
+            List<Class<?>> templateClasses = new ArrayList<>();
+            for (Class<?> formClass : formClasses) {
+                if (formClass.isAnnotationPresent(Template.class)) {
+                    templateClasses.add(formClass);
+                }
+            }
+            TemplateCache.getInstance().precompile(templateClasses);
+        }
+
+        private static Form newForm(Class<? extends Form> formClass) {
+            try {
+                return formClass.getDeclaredConstructor().newInstance();
+            }
+            catch (ReflectiveOperationException ex) {
+                throw new IllegalArgumentException("Failed to create form " + formClass.getName() + ".", ex);
+            }
+        }
     }
 }
@@ -0,0 +1,15 @@
+package dev.houshce29.cliform;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injects the ID of the form hosting the handler into a
+ * <code>String</code> input handler argument.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FormId {
+}
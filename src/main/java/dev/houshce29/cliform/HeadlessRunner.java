@@ -0,0 +1,205 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.Console;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Runs a form engine without a user or a terminal, answering its prompts
+ * from a script of inputs, e.g. to push records through forms in batch
+ * jobs. The screen is never cleared and output is discarded unless an
+ * output stream is set.
+ *
+ * Each run builds a new engine from a copy of the builder's settings, with
+ * forms added by class or supplier created anew, and leaves the builder
+ * as it is, so runs may share a builder and go on at the same time.
+ */
+public final class HeadlessRunner {
+    private final FormEngine.Builder builder;
+    private PrintStream output;
+
+    private HeadlessRunner(FormEngine.Builder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * @param builder Builder of the engine to run, with its forms added.
+     * @return A new runner, that discards output by default.
+     */
+    public static HeadlessRunner of(FormEngine.Builder builder) {
+        return new HeadlessRunner(Objects.requireNonNull(builder, "builder"));
+    }
+
+    /**
+     * Sets where output goes; <code>null</code> discards it (the default).
+     * @param output Stream to write output to.
+     * @return This runner.
+     */
+    public HeadlessRunner setOutput(PrintStream output) {
+        this.output = output;
+        return this;
+    }
+
+    /**
+     * Runs the engine until it stops, or until it prompts past the end of
+     * the script.
+     * @param initialFormId The form to start at.
+     * @param script Answers to the engine's prompts, in order.
+     * @return The result of the run.
+     */
+    public Result run(String initialFormId, Iterator<String> script) {
+        return run(initialFormId, script, Collections.emptyList());
+    }
+
+    /**
+     * Runs the engine with listeners of this run alone, notified before
+     * the run keeps track of what happened.
+     * @param initialFormId The form to start at.
+     * @param script Answers to the engine's prompts, in order.
+     * @param runListeners Listeners of this run.
+     * @return The result of the run.
+     */
+    Result run(String initialFormId, Iterator<String> script, List<EngineListener> runListeners) {
+        ScriptTracker tracker = new ScriptTracker(script);
+        RunListener listener = new RunListener();
+        FormEngine.Builder settings = builder.copySessionSettings();
+        List<EngineListener> listeners = settings.newSessionListeners();
+        listeners.addAll(runListeners);
+        listeners.add(listener);
+        FormEngine engine = settings.buildSession(Console.scripted(tracker, output), listeners);
+        try {
+            engine.start(initialFormId);
+        }
+        catch (NoSuchElementException ex) {
+            if (!tracker.exhausted) {
+                throw ex;
+            }
+            // The script ran out; stopping here is expected of a batch
+        }
+        return new Result(listener.context, listener.formPath, tracker.read, tracker.exhausted);
+    }
+
+    /**
+     * Runs the engine with the lines of a script file as answers. The file
+     * is read as the engine prompts, so it can be of any size.
+     * @param initialFormId The form to start at.
+     * @param script UTF-8 file with one answer per line.
+     * @return The result of the run.
+     * @throws UncheckedIOException If the file can't be read.
+     */
+    public Result run(String initialFormId, Path script) {
+        try (BufferedReader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            return run(initialFormId, reader.lines().iterator());
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Outcome of a headless run.
+     */
+    public static final class Result {
+        private final Map<String, Object> context;
+        private final List<String> formPath;
+        private final long inputsRead;
+        private final boolean scriptExhausted;
+
+        private Result(Map<String, Object> context, List<String> formPath, long inputsRead, boolean scriptExhausted) {
+            this.context = Collections.unmodifiableMap(context);
+            this.formPath = Collections.unmodifiableList(formPath);
+            this.inputsRead = inputsRead;
+            this.scriptExhausted = scriptExhausted;
+        }
+
+        /**
+         * @return The application context as the engine left it.
+         */
+        public Map<String, Object> getContext() {
+            return context;
+        }
+
+        /**
+         * @return IDs of the forms run, in order; forms run more than once
+         *         appear every time.
+         */
+        public List<String> getFormPath() {
+            return formPath;
+        }
+
+        /**
+         * @return Number of script lines used as answers.
+         */
+        public long getInputsRead() {
+            return inputsRead;
+        }
+
+        /**
+         * @return <code>true</code> if the engine was stopped because it
+         *         prompted past the end of the script, rather than stopping
+         *         by itself.
+         */
+        public boolean isScriptExhausted() {
+            return scriptExhausted;
+        }
+    }
+
+    /**
+     * Records the forms run and the final context.
+     */
+    private static final class RunListener implements EngineListener {
+        private final List<String> formPath = new ArrayList<>();
+        private Map<String, Object> context = Collections.emptyMap();
+
+        @Override
+        public void onFormStart(String formId, Map<String, Object> context) {
+            formPath.add(formId);
+        }
+
+        @Override
+        public void onStop(Map<String, Object> context) {
+            this.context = new HashMap<>(context);
+        }
+    }
+
+    /**
+     * Keeps track of how much of the script was used.
+     */
+    private static final class ScriptTracker implements Iterator<String> {
+        private final Iterator<String> script;
+        private long read = 0;
+        private boolean exhausted = false;
+
+        private ScriptTracker(Iterator<String> script) {
+            this.script = script;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = script.hasNext();
+            exhausted = !hasNext;
+            return hasNext;
+        }
+
+        @Override
+        public String next() {
+            String next = script.next();
+            read++;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.Terminal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many sessions of the same forms at once, e.g. one per connected
+ * operator. Each session gets its own terminal, context and form
+ * instances, while compiled templates are shared by all of them. See
+ * {@link FormEngine.Builder#buildMultiSession()}.
+ *
+ * Each session's prompt loop blocks on its own thread. Where the runtime
+ * has virtual threads (Java 21 and up), sessions run on them, so that
+ * thousands of mostly idle sessions cost little memory; otherwise they
+ * run on daemon platform threads.
+ *
+ * Listeners of the engine are shared by every session, so they see the
+ * events of all sessions interleaved. A {@link TranscriptRecorder} added
+ * to the builder as a listener therefore records a single transcript that
+ * can't be replayed; add it as a session listener instead (see
+ * {@link FormEngine.Builder#addSessionListener(java.util.function.Supplier)}),
+ * so that every session gets a recorder of its own, closed once the
+ * session ends.
+ */
+public final class MultiSessionEngine implements Closeable {
+    // Only set when the runtime has virtual threads
+    private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+    private final FormEngine.Builder settings;
+    private final Set<Thread> active = ConcurrentHashMap.newKeySet();
+    private final AtomicLong platformThreads = new AtomicLong();
+    private boolean closed = false;
+
+    MultiSessionEngine(FormEngine.Builder settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Starts a session on the given terminal, which is closed once the
+     * session ends, along with the listeners of the session.
+     * @param initialFormId The form to start the session at.
+     * @param terminal Terminal of the session.
+     * @return Completes with the context of the session once it ends, or
+     *         exceptionally if it fails.
+     * @throws IllegalStateException If the engine is closed.
+     */
+    public CompletableFuture<Map<String, Object>> startSession(String initialFormId, Terminal terminal) {
+        Objects.requireNonNull(terminal, "terminal");
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        Thread thread = newThread(() -> run(initialFormId, terminal, result));
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Engine is closed.");
+            }
+            active.add(thread);
+        }
+        thread.start();
+        return result;
+    }
+
+    /**
+     * Starts a session that reads from and writes to the given channels,
+     * through a console set up with the settings of the builder. The
+     * channels are closed once the session ends. The console only holds a
+     * small output buffer of its own, unless a frame buffer was set on the
+     * builder, in which case every session allocates one of that size.
+     * @param initialFormId The form to start the session at.
+     * @param in Channel to read input from; expected to be blocking.
+     * @param out Channel to write output to.
+     * @return Completes with the context of the session once it ends, or
+     *         exceptionally if it fails.
+     * @throws IllegalStateException If the engine is closed.
+     */
+    public CompletableFuture<Map<String, Object>> startSession(String initialFormId,
+                                                               ReadableByteChannel in, WritableByteChannel out) {
+        return startSession(initialFormId, settings.newConsole(
+                Objects.requireNonNull(in, "in"), Objects.requireNonNull(out, "out"), settings.getCharset()));
+    }
+
+    /**
+     * @return Number of sessions running.
+     */
+    public int getActiveSessionCount() {
+        return active.size();
+    }
+
+    /**
+     * @return <code>true</code> if sessions run on virtual threads.
+     */
+    public boolean isVirtualThreads() {
+        return VIRTUAL_THREADS != null;
+    }
+
+    /**
+     * Stops taking new sessions, and interrupts the running ones. Sessions
+     * blocked reading an interruptible channel fail right away; others end
+     * once their terminal gives up waiting.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        for (Thread thread : active) {
+            thread.interrupt();
+        }
+    }
+
+    private void run(String initialFormId, Terminal terminal, CompletableFuture<Map<String, Object>> result) {
+        Map<String, Object> context = null;
+        Throwable failure = null;
+        List<EngineListener> listeners = Collections.emptyList();
+        try {
+            listeners = settings.newSessionListeners();
+            FormEngine engine = settings.buildSession(terminal, listeners);
+            engine.start(initialFormId);
+            context = new HashMap<>(engine.getContext());
+        }
+        catch (Throwable ex) {
+            failure = ex;
+        }
+        finally {
+            try {
+                terminal.close();
+            }
+            catch (RuntimeException ex) {
+                // The session is over either way
+            }
+            for (EngineListener listener : listeners) {
+                if (listener instanceof Closeable) {
+                    try {
+                        ((Closeable) listener).close();
+                    }
+                    catch (IOException | RuntimeException ex) {
+                        // E.g. a transcript that couldn't be written
+                        if (failure == null) {
+                            failure = ex;
+                        }
+                    }
+                }
+            }
+            active.remove(Thread.currentThread());
+        }
+        // Only once the session is over in full
+        if (failure != null) {
+            result.completeExceptionally(failure);
+        }
+        else {
+            result.complete(context);
+        }
+    }
+
+    private Thread newThread(Runnable session) {
+        if (VIRTUAL_THREADS != null) {
+            return VIRTUAL_THREADS.newThread(session);
+        }
+        Thread thread = new Thread(session, "cliform-session-" + platformThreads.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Looks up virtual threads reflectively, so that the library still
+     * runs on runtimes without them.
+     * @return A factory of virtual threads, or <code>null</code> if the
+     *         runtime has none.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(builder, "cliform-session-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        }
+        catch (ReflectiveOperationException | RuntimeException ex) {
+            // No virtual threads, or only as a preview feature
+            return null;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.ReactiveElement;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps track of where the reactive elements of the current form were
+ * rendered, and rewrites them in place when the context values they
+ * depend on change.
+ *
+ * Changes are detected by comparing the values of the tracked context
+ * keys before and after input is handled, so a value that's mutated in
+ * place (rather than replaced) isn't noticed. Elements whose new text
+ * spans a different number of lines are left as they are.
+ *
+ * Lines are found by moving the cursor up from the current line, which
+ * only works while they're still on screen. Elements that scrolled past
+ * the top of the terminal are left as they are, as are all elements
+ * when the terminal's height isn't known (see {@link Console#getRows()}
+ * and {@link Console#setTerminalSize(int, int)}).
+ * Lines that wrapped aren't accounted for.
+ */
+final class ReactiveRenderer {
+    private final List<RenderedElement> rendered = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Set<String> trackedKeys = new HashSet<>();
+
+    /**
+     * Forgets every element, e.g. when the screen is cleared.
+     */
+    void reset() {
+        rendered.clear();
+        keys.clear();
+        trackedKeys.clear();
+    }
+
+    /**
+     * Tracks an element that was just rendered.
+     * @param element The element.
+     * @param line Number of lines written before the element was rendered.
+     * @param console Console the element was rendered into.
+     */
+    void track(ReactiveElement element, long line, Console console) {
+        long lines = console.getLinesWritten() - line;
+        if (lines < 1) {
+            return;
+        }
+        rendered.add(new RenderedElement(element, line, (int) lines, element.getText()));
+        for (String key : element.getContextKeys()) {
+            if (trackedKeys.add(key)) {
+                keys.add(key);
+            }
+        }
+    }
+
+    /**
+     * @param context Application context.
+     * @return Current values of the tracked context keys, or
+     *         <code>null</code> if nothing is tracked.
+     */
+    Object[] snapshot(Map<String, Object> context) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = context.get(keys.get(i));
+        }
+        return values;
+    }
+
+    /**
+     * Rewrites the elements depending on context values that changed
+     * since the snapshot was taken.
+     * @param before Snapshot of the tracked values.
+     * @param context Application context.
+     * @param console Console the elements were rendered into.
+     * @return Number of elements rewritten.
+     */
+    int refresh(Object[] before, Map<String, Object> context, Console console) {
+        if (before == null) {
+            return 0;
+        }
+        Set<String> changed = new HashSet<>();
+        for (int i = 0; i < before.length; i++) {
+            if (!Objects.equals(before[i], context.get(keys.get(i)))) {
+                changed.add(keys.get(i));
+            }
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        int rewritten = 0;
+        for (RenderedElement element : rendered) {
+            if (element.dependsOn(changed) && element.rewrite(context, console)) {
+                rewritten++;
+            }
+        }
+        return rewritten;
+    }
+
+    /**
+     * A reactive element and where it was rendered.
+     */
+    private static final class RenderedElement {
+        private final ReactiveElement element;
+        private final long line;
+        private final int lines;
+        private String text;
+
+        private RenderedElement(ReactiveElement element, long line, int lines, String text) {
+            this.element = element;
+            this.line = line;
+            this.lines = lines;
+            this.text = text;
+        }
+
+        private boolean dependsOn(Set<String> changed) {
+            for (String key : element.getContextKeys()) {
+                if (changed.contains(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean rewrite(Map<String, Object> context, Console console) {
+            String newText = element.renderText(context);
+            if (newText.equals(text) || countLines(newText) != lines) {
+                return false;
+            }
+            long linesUp = console.getLinesWritten() - line;
+            if (linesUp >= console.getRows()) {
+                // Scrolled off screen, or can't tell; the cursor would stop at the top row
+                return false;
+            }
+            console.rewriteLines(linesUp, newText);
+            text = newText;
+            return true;
+        }
+
+        private static int countLines(String text) {
+            int count = 1;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
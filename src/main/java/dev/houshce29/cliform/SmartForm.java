@@ -3,7 +3,8 @@ package dev.houshce29.cliform;
 import dev.houshce29.cliform.core.AbstractForm;
 import dev.houshce29.cliform.core.Element;
 import dev.houshce29.cliform.lang.ElementGenerator;
-import dev.houshce29.cliform.lang.TemplateParser;
+import dev.houshce29.cliform.lang.LazyTemplate;
+import dev.houshce29.cliform.lang.TemplateCache;
 
 import java.util.List;
 import java.util.Map;
@@ -18,18 +19,16 @@ public abstract class SmartForm extends AbstractForm {
 
     public SmartForm(String id) {
         super(id);
-        this.generators = parse(this.getClass());
+        this.generators = TemplateCache.getInstance().get(this.getClass());
     }
 
     @Override
     public List<Element> create(Map<String, Object> context) {
+        if (generators instanceof LazyTemplate) {
+            return ((LazyTemplate) generators).generate(this, context);
+        }
         return generators.stream()
                 .map(generator -> generator.generate(this, context))
                 .collect(Collectors.toList());
     }
-
-    private static List<ElementGenerator> parse(Class<?> impl) {
-        TemplateParser parser = new TemplateParser();
-        return parser.parse(impl);
-    }
 }
@@ -44,4 +44,25 @@ public @interface Template {
      * @return The path to the template file.
      */
     String path() default "";
+
+    /**
+     * Whether a resource or path template should be streamed. A streamed
+     * template is read and parsed a line at a time as the form is first
+     * rendered, which lets very large templates display right away.
+     * Since lines are generated as they're rendered, they reflect the
+     * context at that moment rather than when the form was created.
+     * Syntax errors surface when the offending line is first reached.
+     * @return <code>true</code> to stream the template.
+     */
+    boolean lazy() default false;
+
+    /**
+     * Whether a path template should be watched for changes. When the file
+     * changes, only the lines that changed are parsed again, and the form
+     * picks them up the next time it's created. A change that fails to
+     * parse is ignored, and the previous template remains in use.
+     * Takes precedence over {@link #lazy()}.
+     * @return <code>true</code> to watch the template file.
+     */
+    boolean watch() default false;
 }
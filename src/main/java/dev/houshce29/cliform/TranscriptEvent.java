@@ -0,0 +1,117 @@
+package dev.houshce29.cliform;
+
+import java.util.Objects;
+
+/**
+ * Something that happened in a recorded session; see {@link TranscriptRecorder}.
+ */
+public final class TranscriptEvent {
+    private final Type type;
+    private final String text;
+    private final long micros;
+
+    /**
+     * @param type Type of the event.
+     * @param text Text of the event.
+     * @param micros Microseconds since the recording started.
+     */
+    public TranscriptEvent(Type type, String text, long micros) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.text = Objects.requireNonNull(text, "text");
+        this.micros = micros;
+    }
+
+    /**
+     * @return The type of the event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The text of the event, as described by its type.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return Microseconds since the recording started.
+     */
+    public long getMicros() {
+        return micros;
+    }
+
+    /**
+     * @return <code>true</code> if the other event is of the same type
+     *         and text, whenever it happened.
+     */
+    public boolean matches(TranscriptEvent other) {
+        return other != null && type == other.type && text.equals(other.text);
+    }
+
+    @Override
+    public String toString() {
+        return type + " \"" + text.replace("\n", "\\n") + "\"";
+    }
+
+    /**
+     * Types of events, with the code each is stored as.
+     */
+    public enum Type {
+        /**
+         * A form started; the text is its ID.
+         */
+        FORM(1),
+        /**
+         * Text rendered since the previous event.
+         */
+        OUTPUT(2),
+        /**
+         * Input was prompted for; the text is the message.
+         */
+        PROMPT(3),
+        /**
+         * A line of input was read; the text is the input.
+         */
+        INPUT(4),
+        /**
+         * A password was read, and left out of the transcript.
+         */
+        MASKED_INPUT(5),
+        /**
+         * An actionable element returned an action; the text is its type,
+         * followed by <code>:</code> and the form ID when flowing to a form.
+         */
+        ACTION(6),
+        /**
+         * The engine stopped.
+         */
+        STOP(7);
+
+        private static final Type[] BY_CODE = new Type[8];
+        private final byte code;
+
+        static {
+            for (Type type : values()) {
+                BY_CODE[type.code] = type;
+            }
+        }
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        byte getCode() {
+            return code;
+        }
+
+        static Type fromCode(int code) {
+            Type type = code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown transcript event code: " + code);
+            }
+            return type;
+        }
+    }
+}
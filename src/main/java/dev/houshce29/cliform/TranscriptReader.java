@@ -0,0 +1,176 @@
+package dev.houshce29.cliform;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the events of a transcript written by a {@link TranscriptRecorder},
+ * one at a time. A transcript cut short (e.g. by a crash) reads up to its
+ * last whole event; see {@link #isTruncated()}.
+ */
+public final class TranscriptReader implements Iterator<TranscriptEvent>, Closeable {
+    private final DataInputStream in;
+    private final long startTime;
+    private byte[] text = new byte[256];
+    private long micros = 0;
+    private TranscriptEvent next;
+    private boolean ended = false;
+    private boolean truncated = false;
+
+    private TranscriptReader(InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        try {
+            byte[] magic = new byte[TranscriptRecorder.MAGIC.length];
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, TranscriptRecorder.MAGIC)) {
+                throw new IllegalArgumentException("Not a transcript.");
+            }
+            int version = this.in.readUnsignedByte();
+            if (version != TranscriptRecorder.VERSION) {
+                throw new IllegalArgumentException("Unsupported transcript version: " + version);
+            }
+            this.startTime = this.in.readLong();
+        }
+        catch (EOFException ex) {
+            throw new IllegalArgumentException("Not a transcript.", ex);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Opens a transcript file.
+     * @param file Transcript to read.
+     * @return A reader at the first event of the transcript.
+     * @throws UncheckedIOException If the file can't be read.
+     * @throws IllegalArgumentException If the file isn't a transcript.
+     */
+    public static TranscriptReader open(Path file) {
+        try {
+            return from(Files.newInputStream(file));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Reads a transcript from a stream, which is closed along with the reader.
+     * @param in Stream to read.
+     * @return A reader at the first event of the transcript.
+     * @throws IllegalArgumentException If the stream isn't a transcript.
+     */
+    public static TranscriptReader from(InputStream in) {
+        try {
+            return new TranscriptReader(in);
+        }
+        catch (RuntimeException ex) {
+            closeQuietly(in);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return When the recording started, in epoch millis.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return <code>true</code> if the transcript ended partway through an
+     *         event. Only known once every event has been read.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !ended) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public TranscriptEvent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TranscriptEvent event = next;
+        next = null;
+        return event;
+    }
+
+    @Override
+    public void close() {
+        ended = true;
+        closeQuietly(in);
+    }
+
+    /**
+     * @return The next event, or <code>null</code> at the end of the transcript.
+     */
+    private TranscriptEvent read() {
+        try {
+            int code = in.read();
+            if (code < 0) {
+                ended = true;
+                return null;
+            }
+            TranscriptEvent.Type type = TranscriptEvent.Type.fromCode(code);
+            micros += readVarint();
+            long length = readVarint();
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Transcript event too long: " + length);
+            }
+            if (length > text.length) {
+                text = new byte[(int) Math.max(length, text.length * 2L)];
+            }
+            in.readFully(text, 0, (int) length);
+            return new TranscriptEvent(type, new String(text, 0, (int) length, StandardCharsets.UTF_8), micros);
+        }
+        catch (EOFException ex) {
+            ended = true;
+            truncated = true;
+            return null;
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed transcript varint.");
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException ex) {
+            // Nothing left to read from it
+        }
+    }
+}
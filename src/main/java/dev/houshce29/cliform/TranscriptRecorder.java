@@ -0,0 +1,330 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.ConsoleObserver;
+import dev.houshce29.cliform.core.FormAction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records what an engine renders, prompts for, reads and does into a
+ * compact binary transcript, e.g. to diagnose a session after the fact or
+ * to replay it with a {@link TranscriptReplayer}. Add it to an engine with
+ * {@link FormEngine.Builder#addListener(EngineListener)}.
+ *
+ * Events are encoded on the engine's thread and written by a dedicated
+ * thread, in batches. Recording only holds the engine up when it gets
+ * more than {@link #DEFAULT_QUEUE_CAPACITY} events ahead of the disk.
+ * Passwords are left out of the transcript unless
+ * {@link #setRecordPasswords(boolean)} says otherwise. Events after the
+ * recorder is closed are ignored.
+ *
+ * A transcript starts with {@link #MAGIC}, a version byte and the time the
+ * recording started (epoch millis, 8 bytes). Each event is then appended
+ * as its type code, the microseconds since the previous event and the
+ * length of its text (both unsigned varints), then its text in UTF-8.
+ */
+public final class TranscriptRecorder implements EngineListener, ConsoleObserver, Closeable {
+    /**
+     * Max number of events waiting to be written.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    static final byte[] MAGIC = { 'C', 'L', 'F', 'T' };
+    static final byte VERSION = 1;
+    // Bytes gathered into a single write
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final byte[] END = new byte[0];
+    private final WritableByteChannel out;
+    private final BlockingQueue<byte[]> queue;
+    private final Thread thread;
+    // Output since the last event, recorded as one event
+    private final StringBuilder output = new StringBuilder();
+    private final long startNanos = System.nanoTime();
+    private long lastMicros = 0;
+    private long eventCount = 0;
+    private boolean recordPasswords = false;
+    private boolean closed = false;
+    private volatile IOException failure;
+
+    private TranscriptRecorder(WritableByteChannel out, int queueCapacity) {
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.thread = new Thread(this::run, "cliform-transcript-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Starts recording into the given file, replacing whatever it held.
+     * @param file File to record into.
+     * @return The new recorder.
+     * @throws UncheckedIOException If the file can't be opened.
+     */
+    public static TranscriptRecorder open(Path file) {
+        try {
+            return to(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING), DEFAULT_QUEUE_CAPACITY);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Starts recording into the given channel, which is closed along with
+     * the recorder.
+     * @param out Channel to record into.
+     * @param queueCapacity Max number of events waiting to be written.
+     * @return The new recorder.
+     * @throws IllegalArgumentException If the capacity isn't positive.
+     */
+    public static TranscriptRecorder to(WritableByteChannel out, int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1: " + queueCapacity);
+        }
+        TranscriptRecorder recorder = new TranscriptRecorder(out, queueCapacity);
+        ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 1 + Long.BYTES)
+                .put(MAGIC)
+                .put(VERSION)
+                .putLong(System.currentTimeMillis());
+        recorder.enqueue(header.array());
+        return recorder;
+    }
+
+    /**
+     * Sets whether passwords are recorded as typed. Otherwise, they're
+     * recorded as {@link TranscriptEvent.Type#MASKED_INPUT}, and replayed
+     * as empty input. Off by default.
+     * @param recordPasswords <code>true</code> to record passwords.
+     * @return This recorder.
+     */
+    public synchronized TranscriptRecorder setRecordPasswords(boolean recordPasswords) {
+        this.recordPasswords = recordPasswords;
+        return this;
+    }
+
+    /**
+     * @return Number of events recorded so far.
+     */
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    @Override
+    public synchronized void onFormStart(String formId, Map<String, Object> context) {
+        record(TranscriptEvent.Type.FORM, formId);
+    }
+
+    @Override
+    public synchronized void onOutput(String text) {
+        output.append(text);
+    }
+
+    @Override
+    public synchronized void onPrompt(String message, boolean obscured) {
+        record(TranscriptEvent.Type.PROMPT, message);
+    }
+
+    @Override
+    public synchronized void onInput(String input, boolean obscured) {
+        if (obscured && !recordPasswords) {
+            record(TranscriptEvent.Type.MASKED_INPUT, "");
+        }
+        else {
+            record(TranscriptEvent.Type.INPUT, input);
+        }
+    }
+
+    @Override
+    public synchronized void onAction(String formId, FormAction action) {
+        record(TranscriptEvent.Type.ACTION, describe(action));
+    }
+
+    @Override
+    public synchronized void onStop(Map<String, Object> context) {
+        record(TranscriptEvent.Type.STOP, "");
+    }
+
+    /**
+     * Writes out every event recorded, and closes the transcript.
+     * @throws UncheckedIOException If the transcript couldn't be written.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flushOutput();
+            closed = true;
+            enqueue(END);
+        }
+        try {
+            thread.join();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        }
+        catch (IOException ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Failed to write transcript.", failure);
+        }
+    }
+
+    /**
+     * @return The text of an action event for the given action.
+     */
+    static String describe(FormAction action) {
+        return action.getType() == FormAction.Type.FLOW_TO_FORM
+                ? action.getType() + ":" + action.getValue()
+                : action.getType().name();
+    }
+
+    /**
+     * Records an event, after the output rendered before it.
+     */
+    private void record(TranscriptEvent.Type type, String text) {
+        flushOutput();
+        append(type, text);
+    }
+
+    private void flushOutput() {
+        if (output.length() > 0) {
+            append(TranscriptEvent.Type.OUTPUT, output.toString());
+            output.setLength(0);
+        }
+    }
+
+    private void append(TranscriptEvent.Type type, String text) {
+        if (closed) {
+            return;
+        }
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        long delta = Math.max(0, micros - lastMicros);
+        lastMicros = Math.max(lastMicros, micros);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        byte[] record = new byte[1 + varintSize(delta) + varintSize(bytes.length) + bytes.length];
+        record[0] = type.getCode();
+        int position = putVarint(record, 1, delta);
+        position = putVarint(record, position, bytes.length);
+        System.arraycopy(bytes, 0, record, position, bytes.length);
+        enqueue(record);
+        eventCount++;
+    }
+
+    private void enqueue(byte[] record) {
+        try {
+            queue.put(record);
+        }
+        catch (InterruptedException ex) {
+            // Lose the event rather than the interrupt
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static int varintSize(long value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int putVarint(byte[] target, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Writes the queued events until the end of the transcript, gathering
+     * everything queued at once into a single write.
+     */
+    private void run() {
+        List<byte[]> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BATCH_SIZE);
+        boolean ended = false;
+        while (!ended) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+            }
+            catch (InterruptedException ex) {
+                // Only the end of the transcript stops the writer
+                continue;
+            }
+            for (byte[] record : batch) {
+                if (record == END) {
+                    ended = true;
+                    break;
+                }
+                if (failure == null) {
+                    write(buffer, record);
+                }
+            }
+            batch.clear();
+            if (failure == null) {
+                drain(buffer);
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer, byte[] record) {
+        if (record.length > buffer.remaining()) {
+            drain(buffer);
+        }
+        if (record.length > buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(record));
+        }
+        else {
+            buffer.put(record);
+        }
+    }
+
+    /**
+     * Writes out the buffer, leaving it empty. Once writing fails, the
+     * rest of the transcript is discarded and the failure kept for
+     * {@link #close()}.
+     */
+    private void drain(ByteBuffer buffer) {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        catch (IOException ex) {
+            failure = ex;
+        }
+    }
+}
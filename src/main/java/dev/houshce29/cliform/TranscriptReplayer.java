@@ -0,0 +1,291 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.ConsoleObserver;
+import dev.houshce29.cliform.core.FormAction;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Re-drives a form engine from a transcript written by a
+ * {@link TranscriptRecorder}: the recorded inputs answer its prompts, as
+ * fast as the engine takes them, and everything it renders, prompts for
+ * and does is compared with the transcript as it happens. Timing isn't
+ * compared. Masked passwords are answered with empty input.
+ *
+ * Events that differ only in text are flagged and replay carries on.
+ * Once an event of another type turns up, the two sessions have gone
+ * separate ways, so comparing stops there, with that last divergence.
+ *
+ * Each replay builds a new engine from a copy of the given builder's
+ * settings, as a {@link HeadlessRunner} does, so replays may share a
+ * builder and go on at the same time.
+ */
+public final class TranscriptReplayer {
+    private final FormEngine.Builder builder;
+
+    private TranscriptReplayer(FormEngine.Builder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * @param builder Builder of the engine to replay, with its forms added.
+     * @return A new replayer.
+     */
+    public static TranscriptReplayer of(FormEngine.Builder builder) {
+        return new TranscriptReplayer(Objects.requireNonNull(builder, "builder"));
+    }
+
+    /**
+     * Replays the transcript, starting at the first form it recorded.
+     * @param transcript Transcript to replay.
+     * @return The result of the replay.
+     * @throws IllegalArgumentException If the transcript recorded no form.
+     */
+    public Result replay(Path transcript) {
+        String initialFormId;
+        try (TranscriptReader reader = TranscriptReader.open(transcript)) {
+            initialFormId = firstFormId(reader);
+        }
+        try (TranscriptReader expected = TranscriptReader.open(transcript);
+             TranscriptReader inputs = TranscriptReader.open(transcript)) {
+            Checker checker = new Checker(expected);
+            HeadlessRunner.Result run = HeadlessRunner.of(builder)
+                    .run(initialFormId, new Inputs(inputs), Collections.singletonList(checker));
+            checker.finish();
+            return new Result(run, checker.divergences, checker.compared);
+        }
+    }
+
+    private static String firstFormId(TranscriptReader reader) {
+        while (reader.hasNext()) {
+            TranscriptEvent event = reader.next();
+            if (event.getType() == TranscriptEvent.Type.FORM) {
+                return event.getText();
+            }
+        }
+        throw new IllegalArgumentException("Transcript has no form to start at.");
+    }
+
+    /**
+     * Outcome of a replay.
+     */
+    public static final class Result {
+        private final HeadlessRunner.Result run;
+        private final List<Divergence> divergences;
+        private final long eventsCompared;
+
+        private Result(HeadlessRunner.Result run, List<Divergence> divergences, long eventsCompared) {
+            this.run = run;
+            this.divergences = Collections.unmodifiableList(divergences);
+            this.eventsCompared = eventsCompared;
+        }
+
+        /**
+         * @return The headless run that replayed the transcript.
+         */
+        public HeadlessRunner.Result getRun() {
+            return run;
+        }
+
+        /**
+         * @return Where the replay differed from the transcript, in order.
+         */
+        public List<Divergence> getDivergences() {
+            return divergences;
+        }
+
+        /**
+         * @return <code>true</code> if the replay differed from the transcript.
+         */
+        public boolean isDiverged() {
+            return !divergences.isEmpty();
+        }
+
+        /**
+         * @return Number of events compared.
+         */
+        public long getEventsCompared() {
+            return eventsCompared;
+        }
+    }
+
+    /**
+     * An event of the replay that differs from the transcript.
+     */
+    public static final class Divergence {
+        private final long index;
+        private final TranscriptEvent expected;
+        private final TranscriptEvent actual;
+
+        private Divergence(long index, TranscriptEvent expected, TranscriptEvent actual) {
+            this.index = index;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        /**
+         * @return Index of the event in the transcript, from 0.
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * @return The event in the transcript, or <code>null</code> if the
+         *         replay went on past the end of the transcript.
+         */
+        public TranscriptEvent getExpected() {
+            return expected;
+        }
+
+        /**
+         * @return The event of the replay, or <code>null</code> if the
+         *         replay stopped before the end of the transcript.
+         */
+        public TranscriptEvent getActual() {
+            return actual;
+        }
+
+        @Override
+        public String toString() {
+            return "Event " + index + ": expected " + (expected != null ? expected : "nothing")
+                    + " but was " + (actual != null ? actual : "nothing");
+        }
+    }
+
+    /**
+     * Answers prompts with the inputs of the transcript.
+     */
+    private static final class Inputs implements Iterator<String> {
+        private final TranscriptReader reader;
+        private String next;
+
+        private Inputs(TranscriptReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && reader.hasNext()) {
+                TranscriptEvent event = reader.next();
+                if (event.getType() == TranscriptEvent.Type.INPUT
+                        || event.getType() == TranscriptEvent.Type.MASKED_INPUT) {
+                    next = event.getText();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String input = next;
+            next = null;
+            return input;
+        }
+    }
+
+    /**
+     * Turns what the engine does into events the way the recorder does,
+     * and compares each with the next one of the transcript.
+     */
+    private static final class Checker implements EngineListener, ConsoleObserver {
+        private final TranscriptReader expected;
+        private final List<Divergence> divergences = new ArrayList<>();
+        private final StringBuilder output = new StringBuilder();
+        private long compared = 0;
+        private boolean aligned = true;
+        private TranscriptEvent lookahead;
+
+        private Checker(TranscriptReader expected) {
+            this.expected = expected;
+        }
+
+        @Override
+        public void onFormStart(String formId, Map<String, Object> context) {
+            check(TranscriptEvent.Type.FORM, formId);
+        }
+
+        @Override
+        public void onOutput(String text) {
+            output.append(text);
+        }
+
+        @Override
+        public void onPrompt(String message, boolean obscured) {
+            check(TranscriptEvent.Type.PROMPT, message);
+        }
+
+        @Override
+        public void onInput(String input, boolean obscured) {
+            flushOutput();
+            // Passwords may have been recorded as typed, or masked
+            TranscriptEvent recorded = aligned ? peek() : null;
+            boolean masked = obscured && (recorded == null || recorded.getType() != TranscriptEvent.Type.INPUT);
+            compare(masked
+                    ? new TranscriptEvent(TranscriptEvent.Type.MASKED_INPUT, "", 0)
+                    : new TranscriptEvent(TranscriptEvent.Type.INPUT, input, 0));
+        }
+
+        @Override
+        public void onAction(String formId, FormAction action) {
+            check(TranscriptEvent.Type.ACTION, TranscriptRecorder.describe(action));
+        }
+
+        @Override
+        public void onStop(Map<String, Object> context) {
+            check(TranscriptEvent.Type.STOP, "");
+        }
+
+        /**
+         * Flags whatever the transcript holds past the end of the replay.
+         */
+        private void finish() {
+            flushOutput();
+            if (aligned && peek() != null) {
+                divergences.add(new Divergence(compared, peek(), null));
+            }
+        }
+
+        private void check(TranscriptEvent.Type type, String text) {
+            flushOutput();
+            compare(new TranscriptEvent(type, text, 0));
+        }
+
+        private void flushOutput() {
+            if (output.length() > 0) {
+                compare(new TranscriptEvent(TranscriptEvent.Type.OUTPUT, output.toString(), 0));
+                output.setLength(0);
+            }
+        }
+
+        private void compare(TranscriptEvent actual) {
+            if (!aligned) {
+                return;
+            }
+            TranscriptEvent recorded = peek();
+            lookahead = null;
+            if (!actual.matches(recorded)) {
+                divergences.add(new Divergence(compared, recorded, actual));
+                aligned = recorded != null && recorded.getType() == actual.getType();
+            }
+            compared++;
+        }
+
+        private TranscriptEvent peek() {
+            if (lookahead == null && expected.hasNext()) {
+                lookahead = expected.next();
+            }
+            return lookahead;
+        }
+    }
+}
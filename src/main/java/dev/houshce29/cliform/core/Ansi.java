@@ -0,0 +1,95 @@
+package dev.houshce29.cliform.core;
+
+import dev.houshce29.cliform.util.VisibleForTesting;
+
+import java.util.Map;
+
+/**
+ * ANSI escape sequences understood by most terminals.
+ */
+public final class Ansi {
+    /**
+     * System property that forces ANSI support on (<code>true</code>) or
+     * off (<code>false</code>) instead of detecting it.
+     */
+    public static final String PROPERTY = "cliform.ansi";
+    /**
+     * Escape character that starts every sequence.
+     */
+    public static final char ESC = '\u001B';
+    /**
+     * Saves the cursor position.
+     */
+    public static final String SAVE_CURSOR = ESC + "7";
+    /**
+     * Restores the cursor position last saved.
+     */
+    public static final String RESTORE_CURSOR = ESC + "8";
+    /**
+     * Erases the whole line the cursor is on.
+     */
+    public static final String ERASE_LINE = ESC + "[2K";
+    /**
+     * Moves the cursor to the top left corner of the screen.
+     */
+    public static final String CURSOR_HOME = ESC + "[H";
+    /**
+     * Erases the whole screen.
+     */
+    public static final String CLEAR_SCREEN = ESC + "[2J";
+    /**
+     * Erases the screen from the cursor to its end.
+     */
+    public static final String ERASE_BELOW = ESC + "[J";
+
+    private Ansi() {
+    }
+
+    /**
+     * @param lines Number of lines to move up.
+     * @return Sequence moving the cursor up, staying in the same column.
+     */
+    public static String cursorUp(int lines) {
+        // Terminals treat a count of 0 as 1
+        if (lines <= 0) {
+            return "";
+        }
+        return ESC + "[" + lines + "A";
+    }
+
+    /**
+     * Detects whether the terminal the application runs in understands
+     * ANSI escape sequences, unless forced through {@link #PROPERTY}.
+     * @return <code>true</code> if escape sequences can be used.
+     */
+    public static boolean isSupported() {
+        String forced = System.getProperty(PROPERTY);
+        if (forced != null) {
+            return Boolean.parseBoolean(forced);
+        }
+        return isSupported(System.console() != null, System.getenv(), System.getProperty("os.name"));
+    }
+
+    /**
+     * @param interactive Whether the application is attached to a terminal.
+     * @param env Environment variables.
+     * @param osName Name of the operating system.
+     * @return <code>true</code> if the terminal understands escape sequences.
+     */
+    @VisibleForTesting
+    static boolean isSupported(boolean interactive, Map<String, String> env, String osName) {
+        if (!interactive) {
+            // Output is redirected, so sequences would end up as garbage
+            return false;
+        }
+        String term = env.get("TERM");
+        if (term != null) {
+            return !term.isEmpty() && !"dumb".equals(term);
+        }
+        if (osName != null && osName.startsWith("Windows")) {
+            // The classic Windows console doesn't set TERM, but modern hosts announce themselves
+            return env.containsKey("WT_SESSION") || "ON".equalsIgnoreCase(env.get("ConEmuANSI"));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,282 @@
+package dev.houshce29.cliform.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes console output on a dedicated thread, so that writers aren't
+ * held up by a slow terminal. Pending output is kept in a bounded ring
+ * buffer; what happens when it's full is up to the {@link OverflowPolicy}.
+ *
+ * The thread is only started once there's something to write, and stops
+ * again once output has been idle for a while, so a writer that's never
+ * closed (e.g. by an engine that has stopped) doesn't hold on to a thread.
+ * If the sink fails, the failure is thrown by the next write or flush.
+ *
+ * Only writes queued as droppable are ever dropped to make room (see
+ * {@link OverflowPolicy#DROP_OLDEST}); when none is pending, writers wait.
+ */
+final class AsyncWriter implements TextSink {
+    // How long the thread waits for more output before it stops
+    private static final long IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final TextSink out;
+    private final OverflowPolicy policy;
+    // Entries are Strings, or StringBuilders once coalesced into
+    private final CharSequence[] ring;
+    private final boolean[] droppable;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+    private final Condition space = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    private int head = 0;
+    private int count = 0;
+    private boolean writing = false;
+    private boolean running = false;
+    private boolean closed = false;
+    private long dropped = 0;
+    // Failure of the sink that no writer has been told of yet
+    private Throwable failure;
+
+    /**
+     * @param out Sink to write to.
+     * @param capacity Max number of pending writes.
+     * @param policy What to do when the buffer is full.
+     */
+    AsyncWriter(TextSink out, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        this.out = out;
+        this.policy = policy;
+        this.ring = new CharSequence[capacity];
+        this.droppable = new boolean[capacity];
+    }
+
+    /**
+     * Queues text to be written, which is never dropped.
+     * @param text Text to write.
+     * @throws RuntimeException If writing earlier output failed.
+     */
+    @Override
+    public void write(String text) {
+        write(text, false);
+    }
+
+    /**
+     * Queues text to be written.
+     * @param text Text to write.
+     * @param canDrop Whether the text may be dropped to make room for later text.
+     * @throws RuntimeException If writing earlier output failed.
+     */
+    void write(String text, boolean canDrop) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Console output is closed.");
+            }
+            throwFailure();
+            if (count == ring.length) {
+                if (!makeRoom(text)) {
+                    return;
+                }
+            }
+            int tail = (head + count) % ring.length;
+            ring[tail] = text;
+            droppable[tail] = canDrop;
+            count++;
+            if (running) {
+                pending.signal();
+            }
+            else {
+                running = true;
+                Thread thread = new Thread(this::run, "cliform-console-writer");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until everything queued so far has been written and flushed.
+     * @throws RuntimeException If writing any of it failed.
+     */
+    @Override
+    public void flush() {
+        lock.lock();
+        try {
+            while (count > 0 || writing) {
+                drained.awaitUninterruptibly();
+            }
+            throwFailure();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out everything pending, then stops the writer thread. The
+     * sink written to is left open.
+     */
+    @Override
+    public void close() {
+        flush();
+        lock.lock();
+        try {
+            closed = true;
+            pending.signal();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of writes dropped to make room.
+     */
+    long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes room for the text in a full buffer, according to the policy.
+     * @return <code>true</code> if the text still needs to be queued.
+     */
+    private boolean makeRoom(String text) {
+        switch (policy) {
+            case DROP_OLDEST:
+                if (dropOldest()) {
+                    return true;
+                }
+                // Nothing that may be dropped, so it's up to the terminal to catch up
+                awaitSpace();
+                return true;
+            case COALESCE:
+                // Appended in place, so that a long run of merges stays linear
+                int newest = (head + count - 1) % ring.length;
+                if (!(ring[newest] instanceof StringBuilder)) {
+                    ring[newest] = new StringBuilder(ring[newest]);
+                }
+                ((StringBuilder) ring[newest]).append(text);
+                return false;
+            default:
+                awaitSpace();
+                return true;
+        }
+    }
+
+    /**
+     * Drops the oldest pending write that may be dropped, moving the
+     * writes queued after it up.
+     * @return <code>true</code> if a write was dropped.
+     */
+    private boolean dropOldest() {
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % ring.length;
+            if (!droppable[slot]) {
+                continue;
+            }
+            for (int j = i; j < count - 1; j++) {
+                int to = (head + j) % ring.length;
+                int from = (head + j + 1) % ring.length;
+                ring[to] = ring[from];
+                droppable[to] = droppable[from];
+            }
+            int tail = (head + count - 1) % ring.length;
+            ring[tail] = null;
+            count--;
+            dropped++;
+            return true;
+        }
+        return false;
+    }
+
+    private void awaitSpace() {
+        while (count == ring.length) {
+            space.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Throws the failure of the sink, if any, once.
+     */
+    private void throwFailure() {
+        Throwable ex = failure;
+        if (ex == null) {
+            return;
+        }
+        failure = null;
+        if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+        throw (RuntimeException) ex;
+    }
+
+    private void run() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            lock.lock();
+            try {
+                long idle = IDLE_NANOS;
+                while (count == 0 && !closed && idle > 0) {
+                    try {
+                        idle = pending.awaitNanos(idle);
+                    }
+                    catch (InterruptedException ex) {
+                        // Only stops once idle or closed, so that nothing queued is lost
+                    }
+                }
+                if (count == 0) {
+                    running = false;
+                    return;
+                }
+                // Take everything pending, so a backlog goes out in one write
+                while (count > 0) {
+                    batch.append(ring[head]);
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    count--;
+                }
+                writing = true;
+                space.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+            Throwable error = null;
+            try {
+                out.write(batch.toString());
+                out.flush();
+            }
+            catch (Throwable ex) {
+                // Writers have moved on, so the next one is told instead; the
+                // thread carries on, so that flushes don't wait on it forever
+                error = ex;
+            }
+            batch.setLength(0);
+            lock.lock();
+            try {
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                writing = false;
+                if (count == 0) {
+                    drained.signalAll();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package dev.houshce29.cliform.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes text to a byte channel, encoding it through a single reused
+ * encoder into a direct buffer. Bytes are only written to the channel
+ * when the buffer fills up or when flushed, so each flush is as few
+ * channel writes as the buffer size allows.
+ */
+final class ChannelOutput implements TextSink {
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final boolean utf8;
+    private ByteBuffer bytes;
+    // A high surrogate whose low surrogate hasn't been written yet
+    private String carry = "";
+
+    /**
+     * @param channel Channel to write to.
+     * @param charset Charset to encode text with.
+     * @param bufferSize Size of the byte buffer.
+     * @throws IllegalArgumentException If the channel is in non-blocking mode.
+     */
+    ChannelOutput(WritableByteChannel channel, Charset charset, int bufferSize) {
+        if (isNonBlocking(channel)) {
+            throw new IllegalArgumentException("Output channel must be in blocking mode.");
+        }
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.utf8 = StandardCharsets.UTF_8.equals(charset);
+        this.bytes = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+    }
+
+    /**
+     * Changes the size of the byte buffer, writing out what it holds first.
+     * @param bufferSize New size of the byte buffer.
+     */
+    void setBufferSize(int bufferSize) {
+        drain();
+        int size = Math.max(bufferSize, 16);
+        if (size != bytes.capacity()) {
+            bytes = ByteBuffer.allocateDirect(size);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if text is encoded to UTF-8, so that bytes
+     *         encoded ahead of time can be written as they are.
+     */
+    boolean isUtf8() {
+        return utf8;
+    }
+
+    /**
+     * Writes text that was encoded to UTF-8 ahead of time, copying its
+     * bytes as they are. Only valid if {@link #isUtf8()}.
+     * @param encoded UTF-8 bytes of the text, which aren't modified.
+     */
+    void writeEncoded(byte[] encoded) {
+        if (!carry.isEmpty()) {
+            // Half a surrogate pair is pending, and must be encoded first
+            write(new String(encoded, StandardCharsets.UTF_8));
+            return;
+        }
+        if (encoded.length > bytes.remaining()) {
+            drain();
+        }
+        if (encoded.length > bytes.remaining()) {
+            // Too big to buffer, so skip the copy
+            writeFully(ByteBuffer.wrap(encoded));
+        }
+        else {
+            bytes.put(encoded);
+        }
+    }
+
+    @Override
+    public void write(String text) {
+        CharBuffer chars = CharBuffer.wrap(carry.isEmpty() ? text : carry.concat(text));
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, false);
+            if (result.isOverflow()) {
+                drain();
+            }
+            else if (result.isUnderflow()) {
+                break;
+            }
+            else {
+                throw new UncheckedIOException(codingFailure(result));
+            }
+        }
+        carry = chars.hasRemaining() ? chars.toString() : "";
+    }
+
+    @Override
+    public void flush() {
+        drain();
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        }
+        finally {
+            try {
+                channel.close();
+            }
+            catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Writes everything encoded so far to the channel.
+     */
+    private void drain() {
+        bytes.flip();
+        try {
+            writeFully(bytes);
+        }
+        finally {
+            bytes.clear();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.write(buffer) == 0 && isNonBlocking(channel)) {
+                    // Switched to non-blocking since; rather fail than spin until it drains
+                    throw new IllegalStateException("Output channel must be in blocking mode.");
+                }
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean isNonBlocking(WritableByteChannel channel) {
+        return channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking();
+    }
+
+    private static CharacterCodingException codingFailure(CoderResult result) {
+        try {
+            result.throwException();
+        }
+        catch (CharacterCodingException ex) {
+            return ex;
+        }
+        return new CharacterCodingException();
+    }
+}
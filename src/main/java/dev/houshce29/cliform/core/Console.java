@@ -2,40 +2,462 @@ package dev.houshce29.cliform.core;
 
 import dev.houshce29.cliform.util.VisibleForTesting;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Scanner;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Console object. Does simple displaying, prompting, clearing, etc.
+ * The stock {@link Terminal}, which other terminals are adapted to
+ * through {@link #of(Terminal)}.
+ *
+ * With a frame buffer (see {@link #setFrameBufferSize(int)}), output is
+ * gathered into a reusable buffer and written out in one go before the
+ * next prompt, instead of a line at a time.
+ *
+ * Channel consoles buffer frames as encoded bytes (unless rendering
+ * differentially), so that text encoded ahead of time (see
+ * {@link #writeEncodedLine(String, byte[][], String[])}) is copied into
+ * the frame without being encoded again.
+ *
+ * Observers (see {@link #addObserver(ConsoleObserver)}) are told of the
+ * text written and the input read, e.g. to record a session.
  */
-public class Console implements Closeable {
+public class Console implements Terminal {
     private static final String[] CLEAR_COMMAND = resolveClearCommand();
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    // Initial capacity of the frame buffer, which grows up to its max size
+    private static final int INITIAL_FRAME_CAPACITY = 4096;
+    // Size of the byte buffers for input, and for output to channels
+    private static final int BUFFER_SIZE = 8192;
+    // Output goes either straight to a stream, or to a sink (e.g. a channel)
     private final PrintStream out;
-    private final Scanner in;
+    private final TextSink direct;
+    // Only set when writing to a channel
+    private final ChannelOutput channelOut;
+    private final LineSource in;
     private final java.io.Console systemConsole;
-
+    private final boolean ansi;
+    // Scripted consoles have no screen to clear
+    private final boolean scripted;
+    private long linesWritten = 0;
+    private StringBuilder frame;
+    // Only set when writing asynchronously
+    private AsyncWriter writer;
+    private int maxFrameSize = 0;
+    // Size of the terminal, where 0 is unknown
+    private int rows = Screen.rowsFromEnvironment();
+    private int columns = Screen.columnsFromEnvironment();
+    // Only set when rendering differentially
+    private Screen screen;
+    // Whether the buffered frame is to be drawn as a diff on the next flush
+    private boolean framePending = false;
+    // Whether output comes from an input handler, i.e. a prompt was answered
+    // and nothing has been flushed since
+    private boolean handlerOutput = false;
+    private final List<ConsoleObserver> observers = new ArrayList<>();
 
     public Console() {
-        this(System.out, System.in, System.console());
+        this(System.out, System.in, System.console(), Ansi.isSupported());
     }
 
     @VisibleForTesting
     Console(PrintStream out, InputStream in, java.io.Console systemConsole) {
+        this(out, in, systemConsole, false);
+    }
+
+    @VisibleForTesting
+    Console(PrintStream out, InputStream in, java.io.Console systemConsole, boolean ansi) {
         this.out = out;
-        this.in = new Scanner(in);
+        this.direct = null;
+        this.channelOut = null;
+        this.in = new LineReader(Channels.newChannel(in), Charset.defaultCharset(), BUFFER_SIZE);
         this.systemConsole = systemConsole;
+        this.ansi = ansi;
+        this.scripted = false;
+    }
+
+    private Console(ReadableByteChannel in, WritableByteChannel out, Charset charset, boolean ansi) {
+        this.out = null;
+        this.channelOut = new ChannelOutput(out, charset, BUFFER_SIZE);
+        this.direct = channelOut;
+        this.in = new LineReader(in, charset, BUFFER_SIZE);
+        this.systemConsole = null;
+        this.ansi = ansi;
+        this.scripted = false;
+    }
+
+    Console(Iterator<String> script, TextSink out) {
+        this.out = null;
+        this.direct = out;
+        this.channelOut = null;
+        this.in = new ScriptedLines(script);
+        this.systemConsole = null;
+        this.ansi = false;
+        this.scripted = true;
+    }
+
+    /**
+     * Creates a console that reads and writes through byte channels, e.g.
+     * to drive forms over pipes or sockets. Text is encoded and decoded
+     * with reused coders and buffers, and only written to the channel
+     * when flushed (e.g. before each prompt) or when its buffer fills up.
+     * ANSI support can't be detected on the other end, so escape sequences
+     * are only used when forced through {@link Ansi#PROPERTY}.
+     * @param in Channel to read input from; expected to be blocking.
+     * @param out Channel to write output to; must be blocking.
+     * @param charset Charset of the text on both channels.
+     * @return The new console.
+     * @throws IllegalArgumentException If the output channel is in non-blocking mode.
+     */
+    public static Console fromChannels(ReadableByteChannel in, WritableByteChannel out, Charset charset) {
+        return new Console(in, out, charset, Boolean.getBoolean(Ansi.PROPERTY));
+    }
+
+    /**
+     * Creates a console that answers prompts from a script rather than a
+     * user, e.g. to run forms headless. Clearing does nothing, and output
+     * can be discarded altogether.
+     * @param script Answers to prompts, in order. Prompting past the end
+     *               of the script throws a {@link java.util.NoSuchElementException}.
+     * @param out Stream to write output to, or <code>null</code> to discard it.
+     * @return The new console.
+     */
+    public static Console scripted(Iterator<String> script, PrintStream out) {
+        return new Console(script, out != null ? TextSink.of(out) : TextSink.discard());
+    }
+
+    /**
+     * Adapts a terminal to a console, so that elements can be rendered to
+     * it. Settings that consoles manage themselves (e.g. the frame buffer
+     * or async output) do nothing on an adapted terminal; it's up to the
+     * terminal to buffer or not. Observers are notified as usual.
+     * @param terminal Terminal to adapt.
+     * @return The terminal itself if it's a console already, or a console
+     *         that delegates to it.
+     */
+    public static Console of(Terminal terminal) {
+        Objects.requireNonNull(terminal, "terminal");
+        return terminal instanceof Console ? (Console) terminal : new TerminalConsole(terminal);
     }
 
     /**
-     * Clears the console.
+     * @return <code>true</code> if this console writes to a terminal that
+     *         understands ANSI escape sequences.
+     */
+    @Override
+    public boolean isAnsi() {
+        return ansi;
+    }
+
+    /**
+     * Clears the console. ANSI terminals are cleared with escape sequences;
+     * otherwise the platform's clear command is run. When rendering
+     * differentially, the screen is only cleared if the next frame differs
+     * too much from the current one.
      * @return This console object for chaining.
      */
+    @Override
     public Console clear() {
-        invokeClear();
+        if (scripted) {
+            linesWritten = 0;
+            return this;
+        }
+        if (screen != null && frame != null) {
+            flush();
+            screen.newFrame();
+            framePending = true;
+        }
+        else if (ansi) {
+            String clear = Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN;
+            if (frame != null) {
+                buffer(clear, false);
+            }
+            else {
+                print(clear);
+            }
+            if (screen != null) {
+                screen.reset();
+            }
+        }
+        else if (channelOut != null) {
+            // The clear command would clear the local terminal instead
+            clearUgly();
+        }
+        else {
+            // The clear command writes straight to the terminal, so anything
+            // buffered must get there first
+            flush();
+            invokeClear();
+        }
+        linesWritten = 0;
+        return this;
+    }
+
+    /**
+     * Moves the cursor to the top left corner of the screen. Does nothing
+     * if the terminal doesn't understand ANSI escape sequences.
+     * @return This console object for chaining.
+     */
+    @Override
+    public Console cursorHome() {
+        if (ansi) {
+            emit(Ansi.CURSOR_HOME);
+        }
+        return this;
+    }
+
+    /**
+     * Erases the line the cursor is on and moves the cursor to its start.
+     * Without ANSI support, the cursor is only moved to the start of the line.
+     * @return This console object for chaining.
+     */
+    @Override
+    public Console eraseLine() {
+        emit(ansi ? "\r" + Ansi.ERASE_LINE : "\r");
+        return this;
+    }
+
+    /**
+     * Adds an observer to notify of the text written and the input read.
+     * @param observer Observer to add.
+     * @return This console object for chaining.
+     */
+    public Console addObserver(ConsoleObserver observer) {
+        observers.add(Objects.requireNonNull(observer, "observer"));
+        return this;
+    }
+
+    /**
+     * Removes an observer added earlier.
+     * @param observer Observer to remove.
+     * @return This console object for chaining.
+     */
+    public Console removeObserver(ConsoleObserver observer) {
+        observers.remove(observer);
+        return this;
+    }
+
+    /**
+     * Sets the max size of the frame buffer, in characters. Output is held
+     * in the buffer until the next prompt, an explicit {@link #flush()}, or
+     * until the buffer fills up. A size of 0 turns the buffer off, so that
+     * output is written straight away (the default).
+     * @param maxFrameSize Max number of characters to buffer.
+     * @return This console object for chaining.
+     * @throws IllegalArgumentException If the size is negative.
+     */
+    public Console setFrameBufferSize(int maxFrameSize) {
+        if (maxFrameSize < 0) {
+            throw new IllegalArgumentException("Frame buffer size cannot be negative: " + maxFrameSize);
+        }
+        flush();
+        this.maxFrameSize = maxFrameSize;
+        configureFrame();
+        return this;
+    }
+
+    /**
+     * Sets the max number of characters kept of a line of input. Longer
+     * lines are cut short, so that input can't take up unbounded memory.
+     * Defaults to 65536 characters.
+     * @param maxInputLength Max number of characters of input.
+     * @return This console object for chaining.
+     * @throws IllegalArgumentException If the length isn't positive.
+     */
+    public Console setMaxInputLength(int maxInputLength) {
+        in.setMaxLineLength(maxInputLength);
+        return this;
+    }
+
+    /**
+     * Sets whether output is written asynchronously, by a dedicated thread,
+     * so that writing isn't held up by a slow terminal. Pending output is
+     * kept in a ring buffer of the given capacity, and is always written
+     * out before prompting for input. The thread only runs while there's
+     * output to write, and a failure to write is thrown by the next write
+     * or flush. With {@link OverflowPolicy#DROP_OLDEST}, only output written
+     * by input handlers between prompts is ever dropped, and none of it
+     * while rendering differentially; the form itself always arrives.
+     * @param capacity Max number of pending writes, or 0 to write synchronously.
+     * @param policy What to do when output is written faster than the terminal takes it.
+     * @return This console object for chaining.
+     * @throws IllegalArgumentException If the capacity is negative.
+     */
+    public Console setAsyncOutput(int capacity, OverflowPolicy policy) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Async output capacity cannot be negative: " + capacity);
+        }
+        flush();
+        if (writer != null) {
+            writer.close();
+        }
+        writer = capacity > 0
+                ? new AsyncWriter(direct != null ? direct : TextSink.of(out), capacity, policy)
+                : null;
+        return this;
+    }
+
+    /**
+     * @return Number of pending writes dropped because the terminal fell
+     *         behind; always 0 unless output is asynchronous with
+     *         {@link OverflowPolicy#DROP_OLDEST}.
+     */
+    public long getDroppedWrites() {
+        return writer != null ? writer.getDroppedCount() : 0;
+    }
+
+    /**
+     * Sets whether a new frame is drawn by only rewriting the lines that
+     * differ from what's on screen, rather than clearing the screen and
+     * writing it in full. Only takes effect with a frame buffer, on
+     * terminals that understand ANSI escape sequences, and while the size
+     * of the terminal is known (see {@link #setTerminalSize(int, int)});
+     * otherwise every frame is drawn in full.
+     * @param differential <code>true</code> to render frames differentially.
+     * @return This console object for chaining.
+     */
+    public Console setDifferentialRendering(boolean differential) {
+        flush();
+        this.screen = differential && ansi ? new Screen(rows, columns) : null;
+        configureFrame();
+        return this;
+    }
+
+    /**
+     * Sets the size of the terminal, in place of what the <code>LINES</code>
+     * and <code>COLUMNS</code> environment variables (or the
+     * <code>cliform.lines</code> and <code>cliform.columns</code> system
+     * properties) say. Shells don't usually export either variable, so
+     * without a size, lines aren't rewritten in place (see
+     * {@link #getRows()}) and differential rendering draws every frame
+     * in full.
+     * @param rows Number of rows of the terminal, or 0 if unknown.
+     * @param columns Number of columns of the terminal, or 0 if unknown.
+     * @return This console object for chaining.
+     * @throws IllegalArgumentException If either is negative.
+     */
+    public Console setTerminalSize(int rows, int columns) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Terminal size cannot be negative: " + rows + "x" + columns);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        if (screen != null) {
+            // What's on screen is measured against the old size
+            setDifferentialRendering(true);
+        }
+        return this;
+    }
+
+    /**
+     * Writes out anything held in the frame buffer.
+     * @return This console object for chaining.
+     */
+    @Override
+    public Console flush() {
+        if (framePending) {
+            framePending = false;
+            print(screen.draw(frame.toString()));
+            frame.setLength(0);
+        }
+        else if (frame != null && frame.length() > 0) {
+            print(frame.toString());
+            frame.setLength(0);
+        }
+        TextSink sink = sink();
+        if (sink != null) {
+            // An async writer waits, so that nothing is written after this returns
+            sink.flush();
+        }
+        else {
+            out.flush();
+        }
+        handlerOutput = false;
+        return this;
+    }
+
+    /**
+     * @return Number of lines written since the console was last cleared,
+     *         including the line break of each answered prompt.
+     */
+    @Override
+    public long getLinesWritten() {
+        return linesWritten;
+    }
+
+    /**
+     * @return Number of rows of the terminal, as set by
+     *         {@link #setTerminalSize(int, int)}, or else from the
+     *         <code>LINES</code> environment variable or the
+     *         <code>cliform.lines</code> system property; 0 if unknown.
+     */
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Replaces lines written earlier with the given text, using ANSI
+     * cursor addressing, and puts the cursor back where it was. The text
+     * should span as many lines as the text it replaces.
+     * @param linesUp How many lines above the cursor's line the first line to replace is.
+     * @param text Text to write in place.
+     * @return This console object for chaining.
+     */
+    @Override
+    public Console rewriteLines(long linesUp, String text) {
+        StringBuilder sequence = new StringBuilder(Ansi.SAVE_CURSOR)
+                .append(Ansi.cursorUp((int) linesUp))
+                .append('\r');
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) >= 0) {
+            sequence.append(Ansi.ERASE_LINE).append(text, start, end).append('\n');
+            start = end + 1;
+        }
+        sequence.append(Ansi.ERASE_LINE).append(text, start, text.length())
+                .append(Ansi.RESTORE_CURSOR);
+        // Lines to rewrite must be on screen already
+        flush();
+        if (screen != null) {
+            screen.replace(linesUp, text);
+        }
+        print(sequence.toString());
+        flush();
+        return this;
+    }
+
+    /**
+     * Moves the cursor up to the start of a line written earlier, using
+     * ANSI cursor addressing, and erases everything from there on. The
+     * lines no longer count as written.
+     * @param lines How many lines above the cursor's line to move to.
+     * @return This console object for chaining.
+     * @throws IllegalArgumentException If more lines than were written.
+     */
+    @Override
+    public Console rewindLines(int lines) {
+        if (lines < 0 || lines > linesWritten) {
+            throw new IllegalArgumentException("Can't rewind " + lines + " of " + linesWritten + " lines.");
+        }
+        // Lines to rewind must be on screen already
+        flush();
+        if (screen != null) {
+            screen.rewind(lines);
+        }
+        print(Ansi.cursorUp(lines) + "\r" + Ansi.ERASE_BELOW);
+        flush();
+        linesWritten -= lines;
         return this;
     }
 
@@ -43,8 +465,28 @@ public class Console implements Closeable {
      * Writes out to the console, on a single line.
      * @return This console object for chaining.
      */
+    @Override
     public Console write(Object object) {
-        out.print(object);
+        if (!observers.isEmpty()) {
+            notifyOutput(String.valueOf(object));
+        }
+        return emit(object);
+    }
+
+    /**
+     * Writes out to the console without notifying observers.
+     */
+    private Console emit(Object object) {
+        if (frame != null) {
+            buffer(String.valueOf(object), false);
+        }
+        else {
+            print(object);
+        }
+        if (screen != null) {
+            screen.append(String.valueOf(object));
+        }
+        linesWritten += countLineBreaks(object);
         return this;
     }
 
@@ -52,8 +494,21 @@ public class Console implements Closeable {
      * Writes out a new line.
      * @return This console object for chaining.
      */
+    @Override
     public Console newLine() {
-        out.println();
+        if (!observers.isEmpty()) {
+            notifyOutput("\n");
+        }
+        if (frame != null) {
+            buffer("", true);
+        }
+        else {
+            println();
+        }
+        if (screen != null) {
+            screen.append("\n");
+        }
+        linesWritten++;
         return this;
     }
 
@@ -61,8 +516,28 @@ public class Console implements Closeable {
      * Writes out the object and adds a new line after.
      * @return This console object for chaining.
      */
+    @Override
     public Console writeLine(Object line) {
-        out.println(line);
+        if (!observers.isEmpty()) {
+            notifyOutput(line + "\n");
+        }
+        return emitLine(line);
+    }
+
+    /**
+     * Writes out the object and a new line without notifying observers.
+     */
+    private Console emitLine(Object line) {
+        if (frame != null) {
+            buffer(String.valueOf(line), true);
+        }
+        else {
+            println(line);
+        }
+        if (screen != null) {
+            screen.append(line + "\n");
+        }
+        linesWritten += 1 + countLineBreaks(line);
         return this;
     }
 
@@ -70,21 +545,75 @@ public class Console implements Closeable {
      * Writes each item into its own line.
      * @return This console object for chaining.
      */
+    @Override
     public Console writeLines(Object... lines) {
         for (Object line : lines) {
-            out.println(line);
+            writeLine(line);
         }
         return this;
     }
 
+    /**
+     * @return <code>true</code> if lines written with
+     *         {@link #writeEncodedLine(String, byte[][], String[])} are
+     *         copied out from their bytes, i.e. output goes straight to a
+     *         UTF-8 channel.
+     */
+    public boolean isEncodedOutput() {
+        return channelOut != null && channelOut.isUtf8() && frame == null && writer == null;
+    }
+
+    /**
+     * Writes out a line made up of literal parts that were encoded to
+     * UTF-8 ahead of time, with values in between that are encoded as
+     * they're written. Unless {@link #isEncodedOutput()}, the line is
+     * written as text instead.
+     * @param line The whole line, as text.
+     * @param literals UTF-8 bytes of each literal part, which aren't
+     *                 modified; one more than there are values.
+     * @param values Values in between the literal parts.
+     * @return This console object for chaining.
+     */
+    public Console writeEncodedLine(String line, byte[][] literals, String[] values) {
+        if (!isEncodedOutput()) {
+            return writeLine(line);
+        }
+        if (!observers.isEmpty()) {
+            notifyOutput(line + "\n");
+        }
+        channelOut.writeEncoded(literals[0]);
+        for (int i = 0; i < values.length; i++) {
+            channelOut.write(values[i]);
+            channelOut.writeEncoded(literals[i + 1]);
+        }
+        channelOut.write(LINE_SEPARATOR);
+        if (screen != null) {
+            screen.append(line + "\n");
+        }
+        linesWritten += 1 + countLineBreaks(line);
+        return this;
+    }
+
     /**
      * Prints the message and awaits user input.
      * @param message Message to prompt for input.
      * @return The input string.
      */
+    @Override
     public String prompt(String message) {
-        write(message);
-        return in.nextLine();
+        notifyPrompt(message, false);
+        emit(message);
+        flush();
+        // The line break typed to answer the prompt moves to the next line
+        linesWritten++;
+        String input = in.readLine();
+        if (screen != null) {
+            // Typed input is echoed by the terminal
+            screen.append(input + "\n");
+        }
+        notifyInput(input, false);
+        handlerOutput = true;
+        return input;
     }
 
     /**
@@ -93,8 +622,12 @@ public class Console implements Closeable {
      * @param message Message to prompt for input.
      * @return The input string.
      */
+    @Override
     public String promptPassword(String message) {
-        write(message);
+        notifyPrompt(message, true);
+        emit(message);
+        flush();
+        linesWritten++;
         if (systemConsole != null) {
             char[] inputArray = systemConsole.readPassword();
             String input = "";
@@ -102,16 +635,146 @@ public class Console implements Closeable {
                 input = new String(inputArray);
                 Arrays.fill(inputArray, ' ');
             }
+            if (screen != null) {
+                screen.append("\n");
+            }
+            notifyInput(input, true);
+            handlerOutput = true;
             return input;
         }
-        return in.nextLine();
+        String input = in.readLine();
+        if (screen != null) {
+            screen.append(input + "\n");
+        }
+        notifyInput(input, true);
+        handlerOutput = true;
+        return input;
     }
 
     @Override
     public void close() {
+        flush();
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (direct != null) {
+            direct.close();
+        }
         in.close();
     }
 
+    final boolean hasObservers() {
+        return !observers.isEmpty();
+    }
+
+    final void notifyOutput(String text) {
+        for (ConsoleObserver observer : observers) {
+            observer.onOutput(text);
+        }
+    }
+
+    final void notifyPrompt(String message, boolean obscured) {
+        for (ConsoleObserver observer : observers) {
+            observer.onPrompt(message, obscured);
+        }
+    }
+
+    final void notifyInput(String input, boolean obscured) {
+        for (ConsoleObserver observer : observers) {
+            observer.onInput(input, obscured);
+        }
+    }
+
+    /**
+     * @return Where output goes, or <code>null</code> when it's written
+     *         straight to the print stream.
+     */
+    private TextSink sink() {
+        return writer != null ? writer : direct;
+    }
+
+    private void write(TextSink sink, String text) {
+        if (sink == writer) {
+            // Dropping anything but handler output would leave the form, or
+            // what a screen is known to show, incomplete
+            writer.write(text, handlerOutput && screen == null && text.indexOf(Ansi.ESC) < 0);
+        }
+        else {
+            sink.write(text);
+        }
+    }
+
+    private void print(Object object) {
+        TextSink sink = sink();
+        if (sink != null) {
+            write(sink, String.valueOf(object));
+        }
+        else {
+            out.print(object);
+        }
+    }
+
+    private void println() {
+        TextSink sink = sink();
+        if (sink != null) {
+            write(sink, LINE_SEPARATOR);
+        }
+        else {
+            out.println();
+        }
+    }
+
+    private void println(Object line) {
+        TextSink sink = sink();
+        if (sink != null) {
+            write(sink, line + LINE_SEPARATOR);
+        }
+        else {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Sets up the frame buffer. Channel consoles buffer frames in their
+     * byte buffer instead, unless the frame text is needed for diffing.
+     */
+    private void configureFrame() {
+        boolean textFrame = maxFrameSize > 0 && (channelOut == null || screen != null);
+        frame = textFrame ? new StringBuilder(Math.min(maxFrameSize, INITIAL_FRAME_CAPACITY)) : null;
+        if (channelOut != null) {
+            channelOut.setBufferSize(maxFrameSize > 0 && !textFrame ? maxFrameSize : BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Buffers text, writing the buffer out if it's full.
+     */
+    private void buffer(String text, boolean newLine) {
+        frame.append(text);
+        if (newLine) {
+            frame.append(LINE_SEPARATOR);
+        }
+        if (frame.length() >= maxFrameSize) {
+            flush();
+            if (frame.capacity() > maxFrameSize) {
+                // Don't hold on to whatever a huge write grew the buffer to
+                frame = new StringBuilder(Math.min(maxFrameSize, INITIAL_FRAME_CAPACITY));
+            }
+        }
+    }
+
+    private static int countLineBreaks(Object object) {
+        CharSequence text = object instanceof CharSequence ? (CharSequence) object : String.valueOf(object);
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private void invokeClear() {
         try {
             Process process = new ProcessBuilder(CLEAR_COMMAND)
@@ -128,7 +791,7 @@ public class Console implements Closeable {
     }
 
     private void clearUgly() {
-        writeLine("\n\n\n\n\n\n\n\n\n\n" +
+        emitLine("\n\n\n\n\n\n\n\n\n\n" +
                         "\n\n\n\n\n\n\n\n\n\n" +
                         "\n\n\n\n\n\n\n\n\n\n" +
                         "\n\n\n\n\n\n\n\n\n\n" +
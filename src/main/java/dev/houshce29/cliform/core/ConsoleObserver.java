@@ -0,0 +1,34 @@
+package dev.houshce29.cliform.core;
+
+/**
+ * Gets notified of the text a console is asked to write and of the input
+ * it reads, as it happens. Only content is reported: terminal control
+ * (clearing, cursor movement and lines rewritten in place) isn't, and line
+ * breaks are always reported as <code>\n</code>, whatever the platform.
+ * Every method does nothing by default.
+ */
+public interface ConsoleObserver {
+
+    /**
+     * Invoked when text is written.
+     * @param text Text written.
+     */
+    default void onOutput(String text) {
+    }
+
+    /**
+     * Invoked when input is prompted for, before it's read.
+     * @param message Message of the prompt.
+     * @param obscured <code>true</code> if the input is a password.
+     */
+    default void onPrompt(String message, boolean obscured) {
+    }
+
+    /**
+     * Invoked when a line of input is read.
+     * @param input Input read.
+     * @param obscured <code>true</code> if the input is a password.
+     */
+    default void onInput(String input, boolean obscured) {
+    }
+}
@@ -0,0 +1,128 @@
+package dev.houshce29.cliform.core;
+
+import dev.houshce29.cliform.util.VisibleForTesting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Row source of the lines of a text file, read through an index of line
+ * offsets. Only the offsets are kept in memory; the file is opened once
+ * for each page read, so it's never held open between renders.
+ */
+final class FileLineSource implements RowSource {
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    // Offsets are indexed by int, and need one more slot for the end of the file
+    private static final int MAX_LINES = Integer.MAX_VALUE - 9;
+    private final Path file;
+    private final int maxLines;
+    // offsets[i] is where line i starts; offsets[count] is the end of the file
+    private long[] offsets;
+    private int count = -1;
+
+    FileLineSource(Path file) {
+        this(file, MAX_LINES);
+    }
+
+    @VisibleForTesting
+    FileLineSource(Path file, int maxLines) {
+        this.file = file;
+        this.maxLines = maxLines;
+    }
+
+    @Override
+    public synchronized long size() {
+        if (count < 0) {
+            index();
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized Object get(long index) {
+        return getPage(index, 1).get(0);
+    }
+
+    @Override
+    public synchronized List<?> getPage(long fromIndex, int count) {
+        if (fromIndex < 0 || count < 0 || fromIndex + count > size()) {
+            throw new IndexOutOfBoundsException("Index: " + fromIndex + ", Count: " + count);
+        }
+        List<String> page = new ArrayList<>(count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = (int) fromIndex; i < fromIndex + count; i++) {
+                page.add(readLine(channel, i));
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return page;
+    }
+
+    private String readLine(FileChannel channel, int index) throws IOException {
+        long start = offsets[index];
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[index + 1] - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) >= 0) {
+            // Keep reading until the line is complete
+        }
+        return trimLineEnd(new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+    }
+
+    private void index() {
+        long[] found = new long[1024];
+        int lines = 0;
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+            boolean lineStarted = false;
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                buffer.flip();
+                for (int i = 0; i < read; i++) {
+                    if (!lineStarted) {
+                        if (lines == maxLines) {
+                            throw new IllegalStateException("Can't page " + file + "; it has more than "
+                                    + maxLines + " lines.");
+                        }
+                        if (lines + 1 >= found.length) {
+                            found = Arrays.copyOf(found, (int) Math.min(found.length * 2L, maxLines + 1L));
+                        }
+                        found[lines++] = position + i;
+                        lineStarted = true;
+                    }
+                    if (buffer.get(i) == '\n') {
+                        lineStarted = false;
+                    }
+                }
+                position += read;
+                buffer.clear();
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        found[lines] = position;
+        this.offsets = found;
+        this.count = lines;
+    }
+
+    private static String trimLineEnd(String line) {
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return line.substring(0, end);
+    }
+}
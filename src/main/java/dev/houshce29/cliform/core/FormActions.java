@@ -0,0 +1,61 @@
+package dev.houshce29.cliform.core;
+
+/**
+ * Creates form actions relative to the form currently running. Input
+ * handlers may take this as an argument.
+ */
+public final class FormActions {
+    private final String formId;
+
+    public FormActions(String formId) {
+        this.formId = formId;
+    }
+
+    /**
+     * @return ID of the current form.
+     */
+    public String getFormId() {
+        return formId;
+    }
+
+    /**
+     * An action that flows to the given form.
+     * @param formId ID of the form to go to.
+     * @return Form action object renderable by the engine.
+     */
+    public FormAction goTo(String formId) {
+        return FormAction.goTo(formId);
+    }
+
+    /**
+     * An action that flows to the current form again, creating it anew.
+     * @return Form action object renderable by the engine.
+     */
+    public FormAction restart() {
+        return FormAction.goTo(formId);
+    }
+
+    /**
+     * An action that repeats the current prompt.
+     * @return Form action object renderable by the engine.
+     */
+    public FormAction reprompt() {
+        return FormAction.reprompt();
+    }
+
+    /**
+     * An action that exits the engine.
+     * @return Form action object renderable by the engine.
+     */
+    public FormAction exit() {
+        return FormAction.exit();
+    }
+
+    /**
+     * An action that does nothing.
+     * @return Form action object renderable by the engine.
+     */
+    public FormAction noop() {
+        return FormAction.noop();
+    }
+}
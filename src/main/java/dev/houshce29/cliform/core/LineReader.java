@@ -0,0 +1,164 @@
+package dev.houshce29.cliform.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads lines of text from a byte channel, decoding it through a single
+ * reused decoder from a direct buffer. Lines end with <code>\n</code> or
+ * <code>\r\n</code>. The channel is expected to be blocking.
+ *
+ * Lines are scanned for their end in bulk and gathered into a reused
+ * builder, so reading a line allocates little more than the returned
+ * string. Lines longer than the max length are cut short, and the rest
+ * of the line is skipped without being kept in memory.
+ */
+final class LineReader implements LineSource {
+    /**
+     * Default max number of characters kept of a line.
+     */
+    static final int DEFAULT_MAX_LINE_LENGTH = 64 * 1024;
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final StringBuilder line = new StringBuilder();
+    private boolean endOfInput = false;
+    private boolean finished = false;
+    private int maxLineLength = DEFAULT_MAX_LINE_LENGTH;
+
+    /**
+     * @param channel Channel to read from.
+     * @param charset Charset to decode text with.
+     * @param bufferSize Size of the byte buffer.
+     */
+    LineReader(ReadableByteChannel channel, Charset charset, int bufferSize) {
+        this.channel = channel;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocateDirect(Math.max(bufferSize, 16));
+        this.chars = CharBuffer.allocate(Math.max(bufferSize, 16));
+        // Both buffers start out empty, ready to be read from
+        this.bytes.flip();
+        this.chars.flip();
+    }
+
+    @Override
+    public void setMaxLineLength(int maxLineLength) {
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("Max line length must be at least 1: " + maxLineLength);
+        }
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Reads the next line, waiting for it if needed.
+     * @return The line, without its line break, cut short to the max line length.
+     * @throws NoSuchElementException If the input has ended.
+     */
+    @Override
+    public String readLine() {
+        line.setLength(0);
+        boolean read = false;
+        char[] array = chars.array();
+        while (true) {
+            int start = chars.position();
+            int limit = chars.limit();
+            for (int i = start; i < limit; i++) {
+                if (array[i] == '\n') {
+                    append(array, start, i);
+                    chars.position(i + 1);
+                    return takeLine();
+                }
+            }
+            append(array, start, limit);
+            read |= limit > start;
+            chars.position(limit);
+            if (!fill()) {
+                if (!read) {
+                    throw new NoSuchElementException("No line found");
+                }
+                return takeLine();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Appends characters of the line, up to the max line length.
+     */
+    private void append(char[] array, int from, int to) {
+        // One more than the max is kept, in case it's the \r of a \r\n
+        int room = maxLineLength + 1 - line.length();
+        if (room > 0) {
+            line.append(array, from, Math.min(to - from, room));
+        }
+    }
+
+    private String takeLine() {
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            length--;
+        }
+        return line.substring(0, Math.min(length, maxLineLength));
+    }
+
+    /**
+     * Decodes more characters, reading from the channel as needed.
+     * @return <code>false</code> once the input has ended and everything has been decoded.
+     */
+    private boolean fill() {
+        if (finished) {
+            return false;
+        }
+        chars.clear();
+        try {
+            while (chars.position() == 0) {
+                if (endOfInput) {
+                    // Overflowing here just means the rest is decoded on the next fill
+                    if (decoder.decode(bytes, chars, true).isUnderflow()
+                            && decoder.flush(chars).isUnderflow()) {
+                        finished = true;
+                    }
+                    break;
+                }
+                decoder.decode(bytes, chars, false);
+                if (chars.position() > 0) {
+                    break;
+                }
+                // Not even a whole character yet; read some more
+                bytes.compact();
+                try {
+                    endOfInput = channel.read(bytes) < 0;
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                finally {
+                    bytes.flip();
+                }
+            }
+        }
+        finally {
+            chars.flip();
+        }
+        return chars.hasRemaining();
+    }
+}
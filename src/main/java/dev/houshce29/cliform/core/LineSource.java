@@ -0,0 +1,26 @@
+package dev.houshce29.cliform.core;
+
+import java.io.Closeable;
+import java.util.NoSuchElementException;
+
+/**
+ * Where console input comes from, a line at a time.
+ */
+interface LineSource extends Closeable {
+
+    /**
+     * Reads the next line, waiting for it if needed.
+     * @return The line, without its line break.
+     * @throws NoSuchElementException If the input has ended.
+     */
+    String readLine();
+
+    /**
+     * @param maxLineLength Max number of characters kept of a line.
+     * @throws IllegalArgumentException If the length isn't positive.
+     */
+    void setMaxLineLength(int maxLineLength);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,27 @@
+package dev.houshce29.cliform.core;
+
+/**
+ * What asynchronous console output does when its buffer is full, i.e.
+ * when output is written faster than the terminal takes it.
+ */
+public enum OverflowPolicy {
+    /**
+     * Waits until the terminal catches up. Nothing is lost, but writers
+     * are held up like with synchronous output.
+     */
+    BLOCK,
+    /**
+     * Drops the oldest pending output written by input handlers to make
+     * room, which suits progress lines that are soon outdated anyway.
+     * Forms, clears and anything else are never dropped, so while none
+     * of the pending output can be dropped, writers wait like with
+     * {@link #BLOCK}.
+     */
+    DROP_OLDEST,
+    /**
+     * Merges the output into the latest pending output. Nothing is lost
+     * and writers are never held up, at the cost of memory while the
+     * terminal is stalled.
+     */
+    COALESCE
+}
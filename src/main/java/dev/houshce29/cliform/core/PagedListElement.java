@@ -0,0 +1,127 @@
+package dev.houshce29.cliform.core;
+
+import java.util.Map;
+
+/**
+ * Element that displays a page of rows at a time from a {@link RowSource},
+ * with navigation between pages. Only the rows of the visible page are
+ * fetched, so very large sources can be browsed without being loaded.
+ *
+ * Navigating asks the engine to repeat the prompt, which renders the new
+ * page without creating the form again. On ANSI consoles, the new page
+ * is written over the previous one while it's still on screen (see
+ * {@link Console#getRows()}); otherwise it's written below. The commands are:
+ *   <ul>
+ *       <li><code>n</code> or nothing - The next page.</li>
+ *       <li><code>p</code> - The previous page.</li>
+ *       <li>A page number - Jumps to that page.</li>
+ *       <li><code>q</code> - Leaves the list and carries on with the form.</li>
+ *   </ul>
+ */
+public class PagedListElement extends ActionableElement {
+    private static final String DEFAULT_PROMPT = "[n]ext, [p]rev, page #, [q]uit: ";
+    private final RowSource rows;
+    private final int pageSize;
+    private final String prompt;
+    private long page = 0;
+    // Lines of the page last rendered, up to and including its prompt
+    private int renderedLines = 0;
+    // Lines written once the last prompt was answered, or -1 if never prompted
+    private long promptedAt = -1;
+    // Shown under the next page, e.g. when there's no page to move to
+    private String notice;
+
+    public PagedListElement(RowSource rows, int pageSize) {
+        this(rows, pageSize, DEFAULT_PROMPT);
+    }
+
+    public PagedListElement(RowSource rows, int pageSize, String prompt) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1.");
+        }
+        this.rows = rows;
+        this.pageSize = pageSize;
+        this.prompt = prompt;
+    }
+
+    /**
+     * @return Index of the current page, starting at 0.
+     */
+    public long getPage() {
+        return page;
+    }
+
+    /**
+     * @return Total number of pages; always at least 1.
+     */
+    public long getPageCount() {
+        return Math.max(1, (rows.size() + pageSize - 1) / pageSize);
+    }
+
+    @Override
+    public FormAction renderWithAction(Map<String, Object> context, Console console) {
+        if (isOnScreen(console)) {
+            console.rewindLines(renderedLines);
+        }
+        long start = console.getLinesWritten();
+        long size = rows.size();
+        long first = page * pageSize;
+        long end = Math.min(size, first + pageSize);
+        if (end > first) {
+            for (Object row : rows.getPage(first, (int) (end - first))) {
+                console.writeLine(row);
+            }
+        }
+        console.writeLine(size == 0
+                ? "No rows."
+                : "Rows " + (first + 1) + "-" + end + " of " + size + " (page " + (page + 1) + " of "
+                        + getPageCount() + ")");
+        if (notice != null) {
+            console.writeLine(notice);
+            notice = null;
+        }
+        String command = console.prompt(prompt).trim();
+        promptedAt = console.getLinesWritten();
+        renderedLines = (int) Math.min(promptedAt - start, Integer.MAX_VALUE);
+        return navigate(command);
+    }
+
+    /**
+     * @return <code>true</code> if the page last rendered is right above
+     *         the cursor and still on screen, so it can be written over.
+     */
+    private boolean isOnScreen(Console console) {
+        return promptedAt >= 0
+                && console.isAnsi()
+                && console.getLinesWritten() == promptedAt
+                && renderedLines < console.getRows();
+    }
+
+    private FormAction navigate(String command) {
+        if (command.equalsIgnoreCase("q")) {
+            return FormAction.noop();
+        }
+        if (command.isEmpty() || command.equalsIgnoreCase("n")) {
+            if (page >= getPageCount() - 1) {
+                notice = "Already on the last page.";
+            }
+            page = Math.min(page + 1, getPageCount() - 1);
+        }
+        else if (command.equalsIgnoreCase("p")) {
+            if (page == 0) {
+                notice = "Already on the first page.";
+            }
+            page = Math.max(page - 1, 0);
+        }
+        else {
+            try {
+                long target = Long.parseLong(command) - 1;
+                page = Math.max(0, Math.min(target, getPageCount() - 1));
+            }
+            catch (NumberFormatException ex) {
+                // Unknown commands just show the same page again
+            }
+        }
+        return FormAction.reprompt();
+    }
+}
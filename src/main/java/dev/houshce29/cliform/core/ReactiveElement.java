@@ -0,0 +1,29 @@
+package dev.houshce29.cliform.core;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An element whose text is derived from context values, so that it can be
+ * re-rendered in place when those values change.
+ */
+public interface ReactiveElement extends Element {
+
+    /**
+     * @return Context keys the text of this element depends on.
+     */
+    Collection<String> getContextKeys();
+
+    /**
+     * @return The text of this element as it was rendered.
+     */
+    String getText();
+
+    /**
+     * Renders the text of this element for the given context, without
+     * writing it out.
+     * @param context Application context.
+     * @return The text of this element.
+     */
+    String renderText(Map<String, Object> context);
+}
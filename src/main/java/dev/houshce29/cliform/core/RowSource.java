@@ -0,0 +1,88 @@
+package dev.houshce29.cliform.core;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Random access source of rows for a {@link PagedListElement}. Rows are
+ * only fetched when they're displayed.
+ */
+public interface RowSource {
+
+    /**
+     * @return Total number of rows.
+     */
+    long size();
+
+    /**
+     * Fetches a single row.
+     * @param index Index of the row, from 0 up to {@link #size()}.
+     * @return The row to display.
+     */
+    Object get(long index);
+
+    /**
+     * Fetches a page of rows. By default each row is fetched on its own.
+     * @param fromIndex Index of the first row, from 0 up to {@link #size()}.
+     * @param count Number of rows to fetch; the page must end by {@link #size()}.
+     * @return The rows to display, in order.
+     */
+    default List<?> getPage(long fromIndex, int count) {
+        List<Object> page = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            page.add(get(fromIndex + i));
+        }
+        return page;
+    }
+
+    /**
+     * @param rows List of rows; should be random access.
+     * @return A row source backed by the list.
+     */
+    static RowSource of(List<?> rows) {
+        return new RowSource() {
+            @Override
+            public long size() {
+                return rows.size();
+            }
+
+            @Override
+            public Object get(long index) {
+                return rows.get((int) index);
+            }
+        };
+    }
+
+    /**
+     * @param size Total number of rows.
+     * @param rows Function fetching the row at an index.
+     * @return A row source backed by the function.
+     */
+    static RowSource of(long size, LongFunction<?> rows) {
+        return new RowSource() {
+            @Override
+            public long size() {
+                return size;
+            }
+
+            @Override
+            public Object get(long index) {
+                return rows.apply(index);
+            }
+        };
+    }
+
+    /**
+     * Creates a row source of the lines of a UTF-8 text file. The file is
+     * scanned once to index where each line starts, after which each page
+     * is read straight from its offset. Files of more than about
+     * {@link Integer#MAX_VALUE} lines aren't supported.
+     * @param file Text file to read.
+     * @return A row source backed by the file.
+     */
+    static RowSource lines(Path file) {
+        return new FileLineSource(file);
+    }
+}
@@ -0,0 +1,232 @@
+package dev.houshce29.cliform.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps track of the lines on screen since it was last cleared, so that
+ * the next frame can be drawn by only rewriting the lines that changed.
+ *
+ * Diffing relies on knowing exactly where every line is, so a frame is
+ * drawn in full (after clearing the screen) whenever that's in doubt:
+ * output contained escape sequences or bare carriage returns, a line may
+ * have wrapped, either frame may have scrolled the screen, or the size
+ * of the screen isn't known.
+ */
+final class Screen {
+    /**
+     * System property giving the number of rows of the terminal, when
+     * <code>LINES</code> isn't exported.
+     */
+    static final String ROWS_PROPERTY = "cliform.lines";
+    /**
+     * System property giving the number of columns of the terminal, when
+     * <code>COLUMNS</code> isn't exported.
+     */
+    static final String COLUMNS_PROPERTY = "cliform.columns";
+    private final int rows;
+    private final int columns;
+    // Lines of the previous frame, or null if they aren't known
+    private List<String> previous;
+    private List<String> lines = new ArrayList<>();
+    private final StringBuilder line = new StringBuilder();
+    // Whatever was on screen before the first frame isn't known
+    private boolean known = false;
+
+    /**
+     * @param rows Number of rows of the terminal, or 0 if unknown.
+     * @param columns Number of columns of the terminal, or 0 if unknown.
+     */
+    Screen(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+    }
+
+    /**
+     * @return A screen sized from the <code>LINES</code> and <code>COLUMNS</code>
+     *         environment variables, or else from {@link #ROWS_PROPERTY} and
+     *         {@link #COLUMNS_PROPERTY}. If neither is set, the size is
+     *         unknown, and every frame is drawn in full.
+     */
+    static Screen fromEnvironment() {
+        return new Screen(rowsFromEnvironment(), columnsFromEnvironment());
+    }
+
+    /**
+     * @return Number of rows of the terminal, from the <code>LINES</code>
+     *         environment variable or else {@link #ROWS_PROPERTY}, or 0 if unknown.
+     */
+    static int rowsFromEnvironment() {
+        return size("LINES", ROWS_PROPERTY);
+    }
+
+    /**
+     * @return Number of columns of the terminal, from the <code>COLUMNS</code>
+     *         environment variable or else {@link #COLUMNS_PROPERTY}, or 0 if unknown.
+     */
+    static int columnsFromEnvironment() {
+        return size("COLUMNS", COLUMNS_PROPERTY);
+    }
+
+    /**
+     * Records text written to the screen.
+     * @param text Text written.
+     */
+    void append(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                lines.add(line.toString());
+                line.setLength(0);
+            }
+            else if (c == '\r') {
+                if (i + 1 >= text.length() || text.charAt(i + 1) != '\n') {
+                    // Moves back over the line, so what's on screen is anyone's guess
+                    known = false;
+                }
+            }
+            else if (c == Ansi.ESC) {
+                known = false;
+            }
+            else {
+                line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Records lines being replaced in place.
+     * @param linesUp How many lines above the current line the first line replaced is.
+     * @param text New text of the lines.
+     */
+    void replace(long linesUp, String text) {
+        String[] replaced = text.split("\n", -1);
+        long first = lines.size() - linesUp;
+        if (first < 0 || first + replaced.length - 1 > lines.size()) {
+            known = false;
+            return;
+        }
+        for (int i = 0; i < replaced.length; i++) {
+            int row = (int) first + i;
+            if (row == lines.size()) {
+                line.setLength(0);
+                line.append(replaced[i]);
+            }
+            else {
+                lines.set(row, replaced[i]);
+            }
+        }
+    }
+
+    /**
+     * Records the cursor moving up to the start of an earlier line, and
+     * everything from there on being erased.
+     * @param linesUp How many lines above the current line the cursor moved to.
+     */
+    void rewind(int linesUp) {
+        if (linesUp > lines.size()) {
+            known = false;
+            return;
+        }
+        lines.subList(lines.size() - linesUp, lines.size()).clear();
+        line.setLength(0);
+    }
+
+    /**
+     * Forgets everything; the screen was cleared.
+     */
+    void reset() {
+        previous = null;
+        lines = new ArrayList<>();
+        line.setLength(0);
+        known = true;
+    }
+
+    /**
+     * Starts a new frame; what's on screen becomes the previous frame.
+     */
+    void newFrame() {
+        previous = known ? current() : null;
+        lines = new ArrayList<>();
+        line.setLength(0);
+        known = true;
+    }
+
+    /**
+     * Draws the frame recorded since {@link #newFrame()}.
+     * @param frame Text of the frame as written.
+     * @return Text to write to the terminal, which either rewrites the
+     *         changed lines only, or clears the screen and writes the whole frame.
+     */
+    String draw(String frame) {
+        List<String> next = current();
+        if (previous == null || !known || !fits(previous) || !fits(next)) {
+            return redraw(frame);
+        }
+        int changed = 0;
+        for (int i = 0; i < next.size(); i++) {
+            if (isChanged(i, next)) {
+                changed++;
+            }
+        }
+        // Past half the screen, rewriting lines one by one stops paying off
+        if (changed * 2 > next.size()) {
+            return redraw(frame);
+        }
+        StringBuilder out = new StringBuilder();
+        int last = next.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            // The last line is always written so that the cursor ends up after it
+            if (i == last || isChanged(i, next)) {
+                out.append(Ansi.ESC).append('[').append(i + 1).append(";1H")
+                        .append(Ansi.ERASE_LINE)
+                        .append(next.get(i));
+            }
+        }
+        if (previous.size() > next.size()) {
+            out.append(Ansi.ERASE_BELOW);
+        }
+        return out.toString();
+    }
+
+    private boolean isChanged(int row, List<String> next) {
+        return row >= previous.size() || !previous.get(row).equals(next.get(row));
+    }
+
+    private boolean fits(List<String> frame) {
+        // A guessed size could be wrong, and a wrong one scrambles the screen
+        if (frame.size() >= rows || columns <= 0) {
+            return false;
+        }
+        for (String frameLine : frame) {
+            if (frameLine.length() >= columns) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> current() {
+        List<String> current = new ArrayList<>(lines.size() + 1);
+        current.addAll(lines);
+        current.add(line.toString());
+        return current;
+    }
+
+    private static String redraw(String frame) {
+        return Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN + frame;
+    }
+
+    private static int size(String variable, String property) {
+        String value = System.getenv(variable);
+        if (value == null) {
+            value = System.getProperty(property);
+        }
+        try {
+            return value != null ? Math.max(Integer.parseInt(value.trim()), 0) : 0;
+        }
+        catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package dev.houshce29.cliform.core;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Input given up front as a script of lines, e.g. to run forms headless.
+ */
+final class ScriptedLines implements LineSource {
+    private final Iterator<String> script;
+    private int maxLineLength = LineReader.DEFAULT_MAX_LINE_LENGTH;
+
+    ScriptedLines(Iterator<String> script) {
+        this.script = script;
+    }
+
+    @Override
+    public String readLine() {
+        if (!script.hasNext()) {
+            throw new NoSuchElementException("No line found");
+        }
+        String line = script.next();
+        return line.length() > maxLineLength ? line.substring(0, maxLineLength) : line;
+    }
+
+    @Override
+    public void setMaxLineLength(int maxLineLength) {
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("Max line length must be at least 1: " + maxLineLength);
+        }
+        this.maxLineLength = maxLineLength;
+    }
+
+    @Override
+    public void close() {
+        // The script belongs to whoever provided it
+    }
+}
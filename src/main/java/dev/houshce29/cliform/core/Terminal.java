@@ -0,0 +1,162 @@
+package dev.houshce29.cliform.core;
+
+import java.io.Closeable;
+
+/**
+ * Where forms are displayed and answered. {@link Console} is the stock
+ * implementation, covering the standard streams, byte channels and
+ * scripts; other implementations (e.g. in-memory or network-backed) can
+ * be plugged into an engine with
+ * {@link dev.houshce29.cliform.FormEngine.Builder#setTerminal(Terminal)}.
+ *
+ * Elements are still rendered to a {@link Console}; terminals that aren't
+ * consoles are adapted to one with {@link Console#of(Terminal)}.
+ */
+public interface Terminal extends Closeable {
+
+    /**
+     * Writes out the object, on the current line.
+     * @param object Object to write.
+     * @return This terminal.
+     */
+    Terminal write(Object object);
+
+    /**
+     * Writes out a new line.
+     * @return This terminal.
+     */
+    Terminal newLine();
+
+    /**
+     * Writes out the object and adds a new line after.
+     * @param line Object to write.
+     * @return This terminal.
+     */
+    Terminal writeLine(Object line);
+
+    /**
+     * Writes each item into its own line.
+     * @param lines Objects to write.
+     * @return This terminal.
+     */
+    default Terminal writeLines(Object... lines) {
+        for (Object line : lines) {
+            writeLine(line);
+        }
+        return this;
+    }
+
+    /**
+     * Prints the message and awaits a line of input.
+     * @param message Message to prompt for input.
+     * @return The input, without its line break.
+     */
+    String prompt(String message);
+
+    /**
+     * Prints the message and awaits a line of input, obscuring it where
+     * possible. Isn't obscured by default.
+     * @param message Message to prompt for input.
+     * @return The input, without its line break.
+     */
+    default String promptPassword(String message) {
+        return prompt(message);
+    }
+
+    /**
+     * Clears the screen.
+     * @return This terminal.
+     */
+    Terminal clear();
+
+    /**
+     * Writes out anything held back so far. Is called before the engine
+     * waits on anything but input, e.g. when it stops. Does nothing by
+     * default.
+     * @return This terminal.
+     */
+    default Terminal flush() {
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if this terminal understands ANSI escape
+     *         sequences, and supports {@link #getLinesWritten()},
+     *         {@link #rewriteLines(long, String)} and {@link #rewindLines(int)}.
+     *         <code>false</code> by default.
+     */
+    default boolean isAnsi() {
+        return false;
+    }
+
+    /**
+     * @return Number of lines written since the terminal was last cleared,
+     *         including the line break of each answered prompt. 0 by default.
+     */
+    default long getLinesWritten() {
+        return 0;
+    }
+
+    /**
+     * @return Number of rows the terminal shows at once, or 0 if unknown.
+     *         Lines that scrolled further up than that can't be rewritten.
+     *         0 by default.
+     */
+    default int getRows() {
+        return 0;
+    }
+
+    /**
+     * Replaces lines written earlier with the given text, and puts the
+     * cursor back where it was. Only called on ANSI terminals.
+     * @param linesUp How many lines above the cursor's line the first line to replace is.
+     * @param text Text to write in place, spanning as many lines as the text it replaces.
+     * @return This terminal.
+     * @throws UnsupportedOperationException By default.
+     */
+    default Terminal rewriteLines(long linesUp, String text) {
+        throw new UnsupportedOperationException("Lines can't be rewritten on this terminal.");
+    }
+
+    /**
+     * Moves the cursor up to the start of a line written earlier, and
+     * erases everything from there on, so that the lines can be written
+     * again; they no longer count as written. Only called on ANSI terminals.
+     * @param lines How many lines above the cursor's line to move to.
+     * @return This terminal.
+     * @throws UnsupportedOperationException By default.
+     */
+    default Terminal rewindLines(int lines) {
+        throw new UnsupportedOperationException("Lines can't be rewound on this terminal.");
+    }
+
+    /**
+     * Moves the cursor to the top left corner of the screen. Only does
+     * anything by default on ANSI terminals.
+     * @return This terminal.
+     */
+    default Terminal cursorHome() {
+        if (isAnsi()) {
+            write(Ansi.CURSOR_HOME);
+        }
+        return this;
+    }
+
+    /**
+     * Erases the line the cursor is on and moves the cursor to its start.
+     * Without ANSI support, the cursor is only moved to the start of the
+     * line by default.
+     * @return This terminal.
+     */
+    default Terminal eraseLine() {
+        write(isAnsi() ? "\r" + Ansi.ERASE_LINE : "\r");
+        return this;
+    }
+
+    /**
+     * Releases whatever the terminal holds. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,154 @@
+package dev.houshce29.cliform.core;
+
+import java.util.Collections;
+
+/**
+ * A console that delegates to a {@link Terminal}, so that elements can be
+ * rendered to any terminal. Observers of the console are notified as with
+ * any other console; the console's own settings are left to the terminal.
+ */
+final class TerminalConsole extends Console {
+    private final Terminal terminal;
+
+    TerminalConsole(Terminal terminal) {
+        // Whatever isn't delegated falls through to a console with nothing to read or write
+        super(Collections.emptyIterator(), TextSink.discard());
+        this.terminal = terminal;
+    }
+
+    @Override
+    public boolean isAnsi() {
+        return terminal.isAnsi();
+    }
+
+    @Override
+    public Console clear() {
+        terminal.clear();
+        return this;
+    }
+
+    @Override
+    public Console cursorHome() {
+        terminal.cursorHome();
+        return this;
+    }
+
+    @Override
+    public Console eraseLine() {
+        terminal.eraseLine();
+        return this;
+    }
+
+    @Override
+    public Console setFrameBufferSize(int maxFrameSize) {
+        if (maxFrameSize < 0) {
+            throw new IllegalArgumentException("Frame buffer size cannot be negative: " + maxFrameSize);
+        }
+        return this;
+    }
+
+    @Override
+    public Console setMaxInputLength(int maxInputLength) {
+        if (maxInputLength < 1) {
+            throw new IllegalArgumentException("Max input length must be at least 1: " + maxInputLength);
+        }
+        return this;
+    }
+
+    @Override
+    public Console setAsyncOutput(int capacity, OverflowPolicy policy) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Async output capacity cannot be negative: " + capacity);
+        }
+        return this;
+    }
+
+    @Override
+    public Console setDifferentialRendering(boolean differential) {
+        return this;
+    }
+
+    @Override
+    public Console setTerminalSize(int rows, int columns) {
+        if (rows < 0 || columns < 0) {
+            throw new IllegalArgumentException("Terminal size cannot be negative: " + rows + "x" + columns);
+        }
+        return this;
+    }
+
+    @Override
+    public Console flush() {
+        terminal.flush();
+        return this;
+    }
+
+    @Override
+    public long getLinesWritten() {
+        return terminal.getLinesWritten();
+    }
+
+    @Override
+    public int getRows() {
+        return terminal.getRows();
+    }
+
+    @Override
+    public Console rewriteLines(long linesUp, String text) {
+        terminal.rewriteLines(linesUp, text);
+        return this;
+    }
+
+    @Override
+    public Console rewindLines(int lines) {
+        terminal.rewindLines(lines);
+        return this;
+    }
+
+    @Override
+    public Console write(Object object) {
+        if (hasObservers()) {
+            notifyOutput(String.valueOf(object));
+        }
+        terminal.write(object);
+        return this;
+    }
+
+    @Override
+    public Console newLine() {
+        if (hasObservers()) {
+            notifyOutput("\n");
+        }
+        terminal.newLine();
+        return this;
+    }
+
+    @Override
+    public Console writeLine(Object line) {
+        if (hasObservers()) {
+            notifyOutput(line + "\n");
+        }
+        terminal.writeLine(line);
+        return this;
+    }
+
+    @Override
+    public String prompt(String message) {
+        notifyPrompt(message, false);
+        String input = terminal.prompt(message);
+        notifyInput(input, false);
+        return input;
+    }
+
+    @Override
+    public String promptPassword(String message) {
+        notifyPrompt(message, true);
+        String input = terminal.promptPassword(message);
+        notifyInput(input, true);
+        return input;
+    }
+
+    @Override
+    public void close() {
+        terminal.close();
+    }
+}
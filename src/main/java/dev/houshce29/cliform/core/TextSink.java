@@ -0,0 +1,67 @@
+package dev.houshce29.cliform.core;
+
+import java.io.PrintStream;
+
+/**
+ * Where console output ends up.
+ */
+interface TextSink {
+
+    /**
+     * Writes the text, possibly holding on to it until flushed.
+     * @param text Text to write.
+     */
+    void write(String text);
+
+    /**
+     * Writes out anything held so far.
+     */
+    void flush();
+
+    /**
+     * Flushes and releases the sink.
+     */
+    void close();
+
+    /**
+     * @param out Stream to write to.
+     * @return A sink that writes to the stream. Closing it leaves the stream open.
+     */
+    static TextSink of(PrintStream out) {
+        return new TextSink() {
+            @Override
+            public void write(String text) {
+                out.print((Object) text);
+            }
+
+            @Override
+            public void flush() {
+                out.flush();
+            }
+
+            @Override
+            public void close() {
+                out.flush();
+            }
+        };
+    }
+
+    /**
+     * @return A sink that discards everything written to it.
+     */
+    static TextSink discard() {
+        return new TextSink() {
+            @Override
+            public void write(String text) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
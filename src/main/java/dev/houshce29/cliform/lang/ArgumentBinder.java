@@ -0,0 +1,23 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Console;
+
+import java.util.Map;
+
+/**
+ * Produces the value of one input handler argument. Binders are chosen
+ * once per handler argument, when the template is parsed.
+ */
+@FunctionalInterface
+public interface ArgumentBinder {
+
+    /**
+     * Produces the argument value.
+     * @param source The form hosting the handler.
+     * @param input Input passed in from user.
+     * @param context Context of the application.
+     * @param console Console for any necessary printing.
+     * @return The argument value.
+     */
+    Object bind(Object source, String input, Map<String, Object> context, Console console);
+}
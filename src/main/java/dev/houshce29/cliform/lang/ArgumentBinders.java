@@ -0,0 +1,130 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.ContextKey;
+import dev.houshce29.cliform.FormId;
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.Form;
+import dev.houshce29.cliform.core.FormActions;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Map;
+
+/**
+ * Builds the binding plan of an input handler: one {@link ArgumentBinder}
+ * per argument. Supported arguments are:
+ *   <ul>
+ *       <li><code>String</code> - The user input.</li>
+ *       <li><code>Map&lt;String, Object&gt;</code> - The application context.</li>
+ *       <li>{@link Console} - The console.</li>
+ *       <li>{@link FormActions} - Form actions relative to the hosting form.</li>
+ *       <li><code>@{@link FormId} String</code> - The ID of the hosting form.</li>
+ *       <li><code>@{@link ContextKey} T</code> - The context value under the key.</li>
+ *   </ul>
+ *
+ * The static helpers are also called by compiled templates, so both
+ * resolve arguments the same way.
+ */
+public final class ArgumentBinders {
+    private static final ArgumentBinder INPUT = (source, input, context, console) -> input;
+    private static final ArgumentBinder CONTEXT = (source, input, context, console) -> context;
+    private static final ArgumentBinder CONSOLE = (source, input, context, console) -> console;
+    private static final ArgumentBinder FORM_ID = (source, input, context, console) -> formId(source);
+    private static final ArgumentBinder ACTIONS = (source, input, context, console) -> actions(source);
+
+    private ArgumentBinders() {
+    }
+
+    /**
+     * Creates the binding plan of the handler.
+     * @param handler Handler method.
+     * @return Binder of each argument, in order.
+     * @throws IllegalArgumentException If any argument isn't supported.
+     */
+    static ArgumentBinder[] plan(Method handler) {
+        Parameter[] params = handler.getParameters();
+        ArgumentBinder[] binders = new ArgumentBinder[params.length];
+        for (int i = 0; i < params.length; i++) {
+            binders[i] = of(params[i]);
+            if (binders[i] == null) {
+                throw new IllegalArgumentException("Unsupported argument " + params[i].getType().getName()
+                        + " of handler " + handler.getName() + " in " + handler.getDeclaringClass().getName()
+                        + ". Handler method arguments can only be of type String, Map<String, Object>, Console,"
+                        + " FormActions, a @FormId String, or a @ContextKey value.");
+            }
+        }
+        return binders;
+    }
+
+    /**
+     * @return Binder of the argument, or <code>null</code> if it isn't supported.
+     */
+    private static ArgumentBinder of(Parameter param) {
+        Class<?> type = param.getType();
+        ContextKey key = param.getAnnotation(ContextKey.class);
+        if (key != null) {
+            String name = key.value();
+            return (source, input, context, console) -> contextValue(context, name, type);
+        }
+        if (param.isAnnotationPresent(FormId.class)) {
+            return type == String.class ? FORM_ID : null;
+        }
+        if (String.class.isAssignableFrom(type)) {
+            return INPUT;
+        }
+        else if (Map.class.isAssignableFrom(type)) {
+            return CONTEXT;
+        }
+        else if (Console.class.isAssignableFrom(type)) {
+            return CONSOLE;
+        }
+        else if (FormActions.class == type) {
+            return ACTIONS;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a context value for a handler argument.
+     * @param context Application context.
+     * @param key Context key of the value.
+     * @param type Type of the argument.
+     * @param <T> Type of the argument.
+     * @return The context value, or <code>null</code> if there isn't one.
+     * @throws IllegalStateException If the value isn't of the argument's type,
+     *                               or is missing for a primitive argument.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T contextValue(Map<String, ?> context, String key, Class<T> type) {
+        Object value = context.get(key);
+        if (value == null) {
+            if (type.isPrimitive()) {
+                throw new IllegalStateException("No context value for " + key + " to pass as " + type.getName() + ".");
+            }
+            return null;
+        }
+        Class<?> boxed = MethodType.methodType(type).wrap().returnType();
+        if (!boxed.isInstance(value)) {
+            throw new IllegalStateException("Context value for " + key + " is a " + value.getClass().getName()
+                    + ", not a " + type.getName() + ".");
+        }
+        return (T) value;
+    }
+
+    /**
+     * @param source The form hosting the handler.
+     * @return ID of the form, or <code>null</code> if it isn't a {@link Form}.
+     */
+    public static String formId(Object source) {
+        return source instanceof Form ? ((Form) source).getId() : null;
+    }
+
+    /**
+     * @param source The form hosting the handler.
+     * @return Form actions relative to the form.
+     */
+    public static FormActions actions(Object source) {
+        return new FormActions(formId(source));
+    }
+}
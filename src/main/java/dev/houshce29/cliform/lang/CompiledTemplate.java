@@ -0,0 +1,35 @@
+package dev.houshce29.cliform.lang;
+
+import java.util.List;
+
+/**
+ * A template that was compiled ahead of time, normally generated by the
+ * template annotation processor. When a compiled template exists for a
+ * form class, it's used instead of parsing the template at runtime.
+ */
+public interface CompiledTemplate {
+
+    /**
+     * Suffix appended to the name of the form class to name its compiled template.
+     */
+    String CLASS_SUFFIX = "_CliformTemplate";
+
+    /**
+     * @return Element generators of the template, bound to the form class.
+     */
+    List<ElementGenerator> getGenerators();
+
+    /**
+     * Resolves the name of the compiled template class for a form class.
+     * Nested classes are flattened so that the compiled template is always
+     * a top level class in the same package as the form.
+     * @param formBinaryName Binary name of the form class (i.e. {@link Class#getName()}).
+     * @return Binary name of the compiled template class.
+     */
+    static String classNameFor(String formBinaryName) {
+        int packageEnd = formBinaryName.lastIndexOf('.') + 1;
+        return formBinaryName.substring(0, packageEnd)
+                + formBinaryName.substring(packageEnd).replace('$', '_')
+                + CLASS_SUFFIX;
+    }
+}
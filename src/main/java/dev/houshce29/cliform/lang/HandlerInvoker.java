@@ -0,0 +1,36 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.FormAction;
+
+import java.util.Map;
+
+/**
+ * Invokes the input handler bound to an input line on the form
+ * hosting the template.
+ */
+@FunctionalInterface
+public interface HandlerInvoker {
+
+    /**
+     * Invokes the handler.
+     * @param source The form hosting the handler.
+     * @param input Input passed in from user.
+     * @param context Context of the application.
+     * @param console Console for any necessary printing.
+     * @return An action for the form to take.
+     */
+    FormAction invoke(Object source, String input, Map<String, Object> context, Console console);
+
+    /**
+     * Converts the return value of a handler into a form action.
+     * @param out Value returned by the handler.
+     * @return The value if it's a form action, otherwise a NOOP action.
+     */
+    static FormAction toAction(Object out) {
+        if (out instanceof FormAction) {
+            return (FormAction) out;
+        }
+        return FormAction.noop();
+    }
+}
@@ -0,0 +1,331 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.util.VisibleForTesting;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Binds input handler methods to {@link HandlerInvoker}s once, when the
+ * template is parsed. In order of preference, a handler is bound:
+ *   <ol>
+ *       <li>
+ *           Through {@link LambdaMetafactory}, into a small functional interface that the JIT
+ *           can inline like any other call. Only public, visible instance methods with up to
+ *           three arguments can be bound this way.
+ *       </li>
+ *       <li>
+ *           Through a {@link MethodHandle} adapted to the handler's arguments.
+ *       </li>
+ *       <li>
+ *           Reflectively, when the handler can't be reached through a method handle.
+ *       </li>
+ *   </ol>
+ * Every tier resolves its arguments through the handler's binding plan
+ * (see {@link ArgumentBinders}), so unsupported arguments are rejected
+ * when the handler is bound rather than on the first input.
+ * <p>
+ * Every tier fails the same way: an exception thrown by the handler is
+ * wrapped, as is, in an {@link IllegalStateException}, while errors and
+ * failures to bind an argument propagate untouched.
+ */
+final class HandlerInvokers {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private HandlerInvokers() {
+    }
+
+    /**
+     * Binds the handler method.
+     * @param handler Handler method to bind.
+     * @return Invoker of the handler.
+     * @throws IllegalArgumentException If any handler argument isn't supported.
+     */
+    static HandlerInvoker bind(Method handler) {
+        ArgumentBinder[] binders = ArgumentBinders.plan(handler);
+        HandlerInvoker invoker = lambda(handler, binders);
+        if (invoker == null) {
+            invoker = methodHandle(handler, binders);
+        }
+        if (invoker == null) {
+            invoker = reflective(handler, binders);
+        }
+        return invoker;
+    }
+
+    /**
+     * @return An invoker that calls the handler through a spun lambda, or
+     *         <code>null</code> if the handler can't be bound that way.
+     */
+    @VisibleForTesting
+    static HandlerInvoker lambda(Method handler, ArgumentBinder[] binders) {
+        if (!isLambdaCompatible(handler, binders)) {
+            return null;
+        }
+        String name = handler.getName();
+        boolean returnsVoid = handler.getReturnType() == void.class;
+        try {
+            switch (binders.length) {
+                case 0:
+                    if (returnsVoid) {
+                        VoidCall0 call = spin(VoidCall0.class, handler);
+                        return (form, input, context, console) -> {
+                            try {
+                                call.call(form);
+                                return FormAction.noop();
+                            }
+                            catch (Exception ex) {
+                                throw failure(name, ex);
+                            }
+                        };
+                    }
+                    Call0 call0 = spin(Call0.class, handler);
+                    return (form, input, context, console) -> {
+                        try {
+                            return HandlerInvoker.toAction(call0.call(form));
+                        }
+                        catch (Exception ex) {
+                            throw failure(name, ex);
+                        }
+                    };
+                case 1:
+                    ArgumentBinder a = binders[0];
+                    if (returnsVoid) {
+                        VoidCall1 call = spin(VoidCall1.class, handler);
+                        return (form, input, context, console) -> {
+                            Object argA = a.bind(form, input, context, console);
+                            try {
+                                call.call(form, argA);
+                                return FormAction.noop();
+                            }
+                            catch (Exception ex) {
+                                throw failure(name, ex);
+                            }
+                        };
+                    }
+                    Call1 call1 = spin(Call1.class, handler);
+                    return (form, input, context, console) -> {
+                        Object argA = a.bind(form, input, context, console);
+                        try {
+                            return HandlerInvoker.toAction(call1.call(form, argA));
+                        }
+                        catch (Exception ex) {
+                            throw failure(name, ex);
+                        }
+                    };
+                case 2:
+                    ArgumentBinder a2 = binders[0];
+                    ArgumentBinder b2 = binders[1];
+                    if (returnsVoid) {
+                        VoidCall2 call = spin(VoidCall2.class, handler);
+                        return (form, input, context, console) -> {
+                            Object argA = a2.bind(form, input, context, console);
+                            Object argB = b2.bind(form, input, context, console);
+                            try {
+                                call.call(form, argA, argB);
+                                return FormAction.noop();
+                            }
+                            catch (Exception ex) {
+                                throw failure(name, ex);
+                            }
+                        };
+                    }
+                    Call2 call2 = spin(Call2.class, handler);
+                    return (form, input, context, console) -> {
+                        Object argA = a2.bind(form, input, context, console);
+                        Object argB = b2.bind(form, input, context, console);
+                        try {
+                            return HandlerInvoker.toAction(call2.call(form, argA, argB));
+                        }
+                        catch (Exception ex) {
+                            throw failure(name, ex);
+                        }
+                    };
+                default:
+                    ArgumentBinder a3 = binders[0];
+                    ArgumentBinder b3 = binders[1];
+                    ArgumentBinder c3 = binders[2];
+                    if (returnsVoid) {
+                        VoidCall3 call = spin(VoidCall3.class, handler);
+                        return (form, input, context, console) -> {
+                            Object argA = a3.bind(form, input, context, console);
+                            Object argB = b3.bind(form, input, context, console);
+                            Object argC = c3.bind(form, input, context, console);
+                            try {
+                                call.call(form, argA, argB, argC);
+                                return FormAction.noop();
+                            }
+                            catch (Exception ex) {
+                                throw failure(name, ex);
+                            }
+                        };
+                    }
+                    Call3 call3 = spin(Call3.class, handler);
+                    return (form, input, context, console) -> {
+                        Object argA = a3.bind(form, input, context, console);
+                        Object argB = b3.bind(form, input, context, console);
+                        Object argC = c3.bind(form, input, context, console);
+                        try {
+                            return HandlerInvoker.toAction(call3.call(form, argA, argB, argC));
+                        }
+                        catch (Exception ex) {
+                            throw failure(name, ex);
+                        }
+                    };
+            }
+        }
+        catch (Throwable ex) {
+            // Couldn't spin a lambda for it; a method handle will do instead
+            return null;
+        }
+    }
+
+    /**
+     * @return An invoker that calls the handler through a method handle, or
+     *         <code>null</code> if the handler can't be adapted.
+     */
+    @VisibleForTesting
+    static HandlerInvoker methodHandle(Method handler, ArgumentBinder[] binders) {
+        MethodHandle target;
+        try {
+            target = LOOKUP.unreflect(handler);
+        }
+        catch (IllegalAccessException ex) {
+            return null;
+        }
+        if (Modifier.isStatic(handler.getModifiers())) {
+            // Static handlers don't need the form, but take it to keep one shape
+            target = MethodHandles.dropArguments(target, 0, Object.class);
+        }
+        // Shape: (Object form, Object[] args) -> Object
+        MethodHandle invoker = target.asSpreader(Object[].class, binders.length)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        String name = handler.getName();
+        return (form, input, context, console) -> {
+            Object[] args = new Object[binders.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = binders[i].bind(form, input, context, console);
+            }
+            try {
+                return HandlerInvoker.toAction((Object) invoker.invokeExact(form, args));
+            }
+            catch (Error ex) {
+                throw ex;
+            }
+            catch (Throwable ex) {
+                throw failure(name, ex);
+            }
+        };
+    }
+
+    /**
+     * @return An invoker that calls the handler reflectively.
+     */
+    @VisibleForTesting
+    static HandlerInvoker reflective(Method handler, ArgumentBinder[] binders) {
+        return (form, input, context, console) -> {
+            Object[] args = new Object[binders.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = binders[i].bind(form, input, context, console);
+            }
+            try {
+                // Reflectively invoke the method; anything other than a
+                // FormAction is considered a NOOP action
+                return HandlerInvoker.toAction(handler.invoke(form, args));
+            }
+            catch (InvocationTargetException ex) {
+                // Unwrap so the failure looks the same as from the other tiers
+                Throwable cause = ex.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw failure(handler.getName(), cause);
+            }
+            catch (IllegalAccessException ex) {
+                throw failure(handler.getName(), ex);
+            }
+        };
+    }
+
+    private static boolean isLambdaCompatible(Method handler, ArgumentBinder[] binders) {
+        Class<?> declaring = handler.getDeclaringClass();
+        return binders.length <= 3
+                && !Modifier.isStatic(handler.getModifiers())
+                && Modifier.isPublic(handler.getModifiers())
+                && Modifier.isPublic(declaring.getModifiers())
+                && isVisible(declaring);
+    }
+
+    /**
+     * The spun lambda lives alongside this class, so it can only call
+     * into classes that this class' loader can see.
+     */
+    private static boolean isVisible(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, HandlerInvokers.class.getClassLoader()) == type;
+        }
+        catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static <T> T spin(Class<T> callType, Method handler) throws Throwable {
+        MethodHandle target = LOOKUP.unreflect(handler);
+        Method sam = callType.getDeclaredMethods()[0];
+        MethodType samType = MethodType.methodType(sam.getReturnType(), sam.getParameterTypes());
+        // Primitive arguments are unboxed on the way in, and results boxed on the way out
+        MethodType instantiatedType = target.type().wrap();
+        if (target.type().returnType() == void.class) {
+            instantiatedType = instantiatedType.changeReturnType(void.class);
+        }
+        Object call = LambdaMetafactory.metafactory(LOOKUP, sam.getName(), MethodType.methodType(callType),
+                samType, target, instantiatedType)
+                .getTarget()
+                .invoke();
+        return callType.cast(call);
+    }
+
+    private static IllegalStateException failure(String handlerName, Throwable cause) {
+        return new IllegalStateException("Failed to invoke " + handlerName + ".", cause);
+    }
+
+    // -- Shapes of handlers bound through LambdaMetafactory:
+
+    interface Call0 {
+        Object call(Object form);
+    }
+
+    interface Call1 {
+        Object call(Object form, Object a);
+    }
+
+    interface Call2 {
+        Object call(Object form, Object a, Object b);
+    }
+
+    interface Call3 {
+        Object call(Object form, Object a, Object b, Object c);
+    }
+
+    interface VoidCall0 {
+        void call(Object form);
+    }
+
+    interface VoidCall1 {
+        void call(Object form, Object a);
+    }
+
+    interface VoidCall2 {
+        void call(Object form, Object a, Object b);
+    }
+
+    interface VoidCall3 {
+        void call(Object form, Object a, Object b, Object c);
+    }
+}
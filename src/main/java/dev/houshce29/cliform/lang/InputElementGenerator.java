@@ -4,13 +4,12 @@ import dev.houshce29.cliform.core.Console;
 import dev.houshce29.cliform.core.Element;
 import dev.houshce29.cliform.core.FormAction;
 import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.InputHandler;
 import dev.houshce29.cliform.util.StringUtils;
 import dev.houshce29.cliform.util.VisibleForTesting;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -18,28 +17,58 @@ import java.util.Map;
  * Input element generator impl.
  */
 public class InputElementGenerator implements ElementGenerator {
+    private static final HandlerInvoker NOOP = (source, input, context, console) -> FormAction.noop();
     private final Method handler;
-    private final String promptFormat;
-    private final List<String> promptFormatArgs;
+    private final HandlerInvoker invoker;
+    private final SegmentPlan prompt;
     private final boolean obscure;
+    // Handler bound to the last source; forms render against the same source
+    private volatile BoundHandler bound;
 
     InputElementGenerator(Class<?> sourceClass,
                           String handlerRef,
                           String promptFormat,
                           List<String> promptArgs,
                           boolean obscure) {
-        this.handler = resolveMethod(sourceClass, handlerRef);
-        this.promptFormat = promptFormat;
-        this.promptFormatArgs = promptArgs;
+        this(sourceClass, handlerRef, SegmentPlan.fromFormat(promptFormat, promptArgs), obscure);
+    }
+
+    InputElementGenerator(Class<?> sourceClass, String handlerRef, SegmentPlan prompt, boolean obscure) {
+        this(resolveMethod(sourceClass, handlerRef), prompt, obscure);
+    }
+
+    private InputElementGenerator(Method handler, SegmentPlan prompt, boolean obscure) {
+        this(handler, handler == null ? NOOP : HandlerInvokers.bind(handler), prompt, obscure);
+    }
+
+    private InputElementGenerator(Method handler, HandlerInvoker invoker, SegmentPlan prompt, boolean obscure) {
+        this.handler = handler;
+        this.invoker = invoker;
+        this.prompt = prompt;
         this.obscure = obscure;
     }
 
+    /**
+     * Creates an input generator that hands input to the given invoker.
+     * @param prompt Compiled prompt text.
+     * @param obscure Whether the input should be obscured.
+     * @param invoker Invoker of the input handler.
+     * @return A new generator.
+     */
+    public static InputElementGenerator of(SegmentPlan prompt, boolean obscure, HandlerInvoker invoker) {
+        return new InputElementGenerator(null, invoker, prompt, obscure);
+    }
+
+    public SegmentPlan getPrompt() {
+        return prompt;
+    }
+
     public String getPromptFormat() {
-        return promptFormat;
+        return prompt.toFormat();
     }
 
     public List<String> getPromptFormatArgs() {
-        return Collections.unmodifiableList(promptFormatArgs);
+        return prompt.getSlots();
     }
 
     public boolean isObscure() {
@@ -53,60 +82,16 @@ public class InputElementGenerator implements ElementGenerator {
 
     @Override
     public Element generate(Object source, Map<String, Object> context) {
-        Object[] formatArgs = promptFormatArgs.stream()
-                .map(arg -> context.getOrDefault(arg, arg))
-                .toArray();
-        final String prompt = String.format(promptFormat, formatArgs);
-        return new InputElement(obscure, prompt, (in, ctx, console) -> invokeAction(source, in, ctx, console));
+        return new InputElement(obscure, prompt.render(context), bind(source));
     }
 
-    private FormAction invokeAction(Object source, String input, Map<String, Object> context, Console console) {
-        // No handler, so return a noop action.
-        if (handler == null) {
-            return FormAction.noop();
+    private InputHandler bind(Object source) {
+        BoundHandler handler = bound;
+        if (handler == null || handler.source != source) {
+            handler = new BoundHandler(invoker, source);
+            bound = handler;
         }
-        Object[] args = createArgs(input, context, console, handler.getParameterTypes());
-        return invokeHandlerMethod(source, args);
-    }
-
-    private FormAction invokeHandlerMethod(Object source, Object[] args) {
-        try {
-            // Reflectively invoke the method
-            Object out = handler.invoke(source, args);
-            // Return if the return value is an instance of FormAction
-            if (out instanceof FormAction) {
-                return (FormAction) out;
-            }
-            // Otherwise consider it a NOOP action
-            return FormAction.noop();
-        }
-        catch (IllegalAccessException | InvocationTargetException ex) {
-            throw new IllegalStateException("Failed to invoke " + handler.getName() + ".", ex);
-        }
-    }
-
-    private static Object[] createArgs(String input,
-                                       Map<String, Object> context,
-                                       Console console,
-                                       Class... paramTypes) {
-        Object[] args = new Object[paramTypes.length];
-        for (int i = 0; i < args.length; i++) {
-            args[i] = createArg(paramTypes[i], input, context, console);
-        }
-        return args;
-    }
-
-    private static Object createArg(Class paramType, String input, Map<String, Object> context, Console console) {
-        if (String.class.isAssignableFrom(paramType)) {
-            return input;
-        }
-        else if (Map.class.isAssignableFrom(paramType)) {
-            return context;
-        }
-        else if (Console.class.isAssignableFrom(paramType)) {
-            return console;
-        }
-        throw new IllegalArgumentException("Handler method arguments can only be of type String, Map<String, Object>, or Console." );
+        return handler;
     }
 
     private static Method resolveMethod(Class<?> clazz, String methodName) {
@@ -125,4 +110,22 @@ public class InputElementGenerator implements ElementGenerator {
         }
         return out;
     }
+
+    /**
+     * Input handler that hands input to the invoker for a single source.
+     */
+    private static final class BoundHandler implements InputHandler {
+        private final HandlerInvoker invoker;
+        private final Object source;
+
+        BoundHandler(HandlerInvoker invoker, Object source) {
+            this.invoker = invoker;
+            this.source = source;
+        }
+
+        @Override
+        public FormAction onInput(String input, Map<String, Object> context, Console console) {
+            return invoker.invoke(source, input, context, console);
+        }
+    }
 }
@@ -0,0 +1,183 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Element;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A template that is read and parsed a line at a time, as its generators
+ * are first iterated. Only the next raw line (or loop block) is ever held
+ * in memory; once parsed, it's dropped in favor of its generator. The source is closed as
+ * soon as it has been read in full.
+ *
+ * Iterating is lazy, while anything that needs the size of the template
+ * (e.g. {@link #size()} or {@link #get(int)} past what has been parsed)
+ * reads the rest of the template first.
+ */
+public final class LazyTemplate extends AbstractList<ElementGenerator> {
+    private final Class<?> source;
+    private final TemplateParser parser;
+    private final List<ElementGenerator> parsed = new ArrayList<>();
+    private final TemplateLines lines;
+    private BufferedReader reader;
+    private RuntimeException failure;
+
+    LazyTemplate(Class<?> source, BufferedReader reader, TemplateParser parser) {
+        this.source = source;
+        this.reader = reader;
+        this.parser = parser;
+        this.lines = new TemplateLines(reader.lines().iterator());
+    }
+
+    /**
+     * Creates the elements of this template, generating each one as it's
+     * iterated.
+     * @param form The form hosting the template.
+     * @param context Application context.
+     * @return Lazily generated list of elements.
+     */
+    public List<Element> generate(Object form, Map<String, Object> context) {
+        return new LazyElements(form, context);
+    }
+
+    /**
+     * @return <code>true</code> once the whole template has been parsed.
+     */
+    public synchronized boolean isFullyParsed() {
+        return reader == null && failure == null;
+    }
+
+    @Override
+    public ElementGenerator get(int index) {
+        ElementGenerator generator = fetch(index);
+        if (generator == null) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return generator;
+    }
+
+    @Override
+    public int size() {
+        fetch(Integer.MAX_VALUE);
+        synchronized (this) {
+            return parsed.size();
+        }
+    }
+
+    @Override
+    public Iterator<ElementGenerator> iterator() {
+        return new Iterator<ElementGenerator>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return fetch(index) != null;
+            }
+
+            @Override
+            public ElementGenerator next() {
+                ElementGenerator next = fetch(index);
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                index++;
+                return next;
+            }
+        };
+    }
+
+    /**
+     * Parses lines until the given index is reached or the template ends.
+     * @param index Index of the generator.
+     * @return Generator at the given index, or <code>null</code> if the
+     *         template ends before the index.
+     */
+    private synchronized ElementGenerator fetch(int index) {
+        if (failure != null) {
+            throw failure;
+        }
+        while (parsed.size() <= index && reader != null) {
+            parseNextLine();
+        }
+        return index < parsed.size() ? parsed.get(index) : null;
+    }
+
+    private void parseNextLine() {
+        try {
+            if (!lines.hasNext()) {
+                close();
+                return;
+            }
+            parsed.add(parser.parseNext(source, lines));
+        }
+        catch (RuntimeException ex) {
+            failure = ex;
+            close();
+            throw ex;
+        }
+    }
+
+    private void close() {
+        try {
+            reader.close();
+        }
+        catch (IOException ex) {
+            // Already read everything needed from it
+        }
+        reader = null;
+    }
+
+    /**
+     * Elements generated on demand while being iterated.
+     */
+    private final class LazyElements extends AbstractList<Element> {
+        private final Object form;
+        private final Map<String, Object> context;
+        private final List<Element> generated = new ArrayList<>();
+
+        private LazyElements(Object form, Map<String, Object> context) {
+            this.form = form;
+            this.context = context;
+        }
+
+        @Override
+        public Element get(int index) {
+            while (generated.size() <= index) {
+                generated.add(LazyTemplate.this.get(generated.size()).generate(form, context));
+            }
+            return generated.get(index);
+        }
+
+        @Override
+        public int size() {
+            return LazyTemplate.this.size();
+        }
+
+        @Override
+        public Iterator<Element> iterator() {
+            return new Iterator<Element>() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < generated.size() || fetch(index) != null;
+                }
+
+                @Override
+                public Element next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return get(index++);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dev.houshce29.cliform.lang;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide pool of generators for lines that are purely literal text.
+ * Forms that repeat the same banners, separators and footers all share a
+ * single generator per distinct line, and each of those generators hands
+ * out a single immutable element.
+ *
+ * Generators are only held weakly, so a line is dropped from the pool once
+ * no template uses it any more (e.g. after a watched template changed, or
+ * a cached template was evicted).
+ */
+public final class LiteralPool {
+    private static final LiteralPool INSTANCE = new LiteralPool();
+    private final Map<String, Entry> generators = new ConcurrentHashMap<>();
+    private final ReferenceQueue<TextElementGenerator> collected = new ReferenceQueue<>();
+
+    private LiteralPool() {
+    }
+
+    /**
+     * @return The shared pool instance.
+     */
+    public static LiteralPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the shared generator of the given static line.
+     * @param plan Compiled line, which must not reference any context values.
+     * @return Shared generator of the line.
+     */
+    public TextElementGenerator text(SegmentPlan plan) {
+        if (!plan.isStatic()) {
+            throw new IllegalArgumentException("Only static lines can be pooled: " + plan);
+        }
+        expunge();
+        String text = plan.getLiterals().get(0);
+        TextElementGenerator[] pooled = new TextElementGenerator[1];
+        generators.compute(text, (key, entry) -> {
+            pooled[0] = entry != null ? entry.get() : null;
+            if (pooled[0] != null) {
+                return entry;
+            }
+            pooled[0] = new TextElementGenerator(plan);
+            return new Entry(key, pooled[0], collected);
+        });
+        return pooled[0];
+    }
+
+    /**
+     * @return Number of distinct pooled lines, including lines no longer
+     *         used that haven't been dropped yet.
+     */
+    public int size() {
+        expunge();
+        return generators.size();
+    }
+
+    /**
+     * Drops the lines whose generators have been collected.
+     */
+    private void expunge() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            generators.remove(entry.text, entry);
+        }
+    }
+
+    /**
+     * Weak reference to a pooled generator, which remembers its line.
+     */
+    private static final class Entry extends WeakReference<TextElementGenerator> {
+        private final String text;
+
+        private Entry(String text, TextElementGenerator generator, ReferenceQueue<TextElementGenerator> queue) {
+            super(generator, queue);
+            this.text = text;
+        }
+    }
+}
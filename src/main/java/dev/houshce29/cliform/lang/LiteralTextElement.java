@@ -0,0 +1,48 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.TextElement;
+
+import java.util.Map;
+
+/**
+ * Text element rendered from a plan. On consoles that write UTF-8 to a
+ * channel, the literal chunks of the plan are copied out from their
+ * bytes, and only the values in between are encoded.
+ */
+class LiteralTextElement extends TextElement {
+    private static final String[] NO_VALUES = new String[0];
+    private final SegmentPlan plan;
+    private final String[] values;
+
+    /**
+     * @param plan Static plan.
+     */
+    LiteralTextElement(SegmentPlan plan) {
+        this(plan, NO_VALUES);
+    }
+
+    /**
+     * @param plan Plan of the text.
+     * @param values Text of the value of each slot of the plan.
+     */
+    LiteralTextElement(SegmentPlan plan, String[] values) {
+        super(plan.render(values));
+        this.plan = plan;
+        this.values = values;
+    }
+
+    SegmentPlan getPlan() {
+        return plan;
+    }
+
+    @Override
+    public void render(Map<String, Object> context, Console console) {
+        if (console.isEncodedOutput()) {
+            console.writeEncodedLine(getText(), plan.getEncodedLiterals(), values);
+        }
+        else {
+            console.writeLine(getText());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.Element;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Element generator impl for a loop block:
+ * <pre>
+ * %for item in ${items}
+ * - ${item}
+ * %end
+ * </pre>
+ * The body is compiled once. When rendered, the <code>Iterable</code>,
+ * <code>Stream</code> or array under the source key is iterated and each
+ * body line is written straight to the console, so no element or
+ * concatenated string is held for the whole collection.
+ *
+ * Within the body, the loop variable resolves to the current item. If
+ * the item is a map, its values resolve as <code>${item.key}</code>.
+ * Every other variable resolves from the application context.
+ */
+public class LoopElementGenerator implements ElementGenerator {
+    private final String variable;
+    private final String sourceKey;
+    private final List<ElementGenerator> body;
+    private final BodyLine[] lines;
+
+    LoopElementGenerator(String variable, String sourceKey, List<ElementGenerator> body) {
+        this.variable = variable;
+        this.sourceKey = sourceKey;
+        this.body = Collections.unmodifiableList(body);
+        // Consecutive text lines of the body are written with one call per item;
+        // the body is rendered afresh per item, so static lines gain nothing apart
+        this.lines = TextElementGenerator.coalesce(body, true).stream()
+                .map(LoopElementGenerator::toBodyLine)
+                .toArray(BodyLine[]::new);
+    }
+
+    /**
+     * Creates a loop generator.
+     * @param variable Name of the loop variable.
+     * @param sourceKey Context key of the collection to loop over.
+     * @param body Generators of the body; only text and nested loops.
+     * @return A new generator.
+     */
+    public static LoopElementGenerator of(String variable, String sourceKey, List<ElementGenerator> body) {
+        return new LoopElementGenerator(variable, sourceKey, body);
+    }
+
+    public String getVariable() {
+        return variable;
+    }
+
+    public String getSourceKey() {
+        return sourceKey;
+    }
+
+    public List<ElementGenerator> getBody() {
+        return body;
+    }
+
+    @Override
+    public Element generate(Object source, Map<String, Object> context) {
+        return (ctx, console) -> render(ctx, console, new StringBuilder());
+    }
+
+    /**
+     * Renders every item of the loop.
+     * @param context Context to resolve the source collection and variables from.
+     * @param console Console to write to.
+     * @param buffer Buffer reused for every line.
+     */
+    private void render(Map<String, Object> context, Console console, StringBuilder buffer) {
+        Object items = context.get(sourceKey);
+        if (items == null) {
+            return;
+        }
+        LoopScope scope = new LoopScope(context, variable);
+        if (items instanceof Stream) {
+            try (Stream<?> stream = (Stream<?>) items) {
+                render(stream.iterator(), scope, console, buffer);
+            }
+        }
+        else if (items instanceof Iterable) {
+            render(((Iterable<?>) items).iterator(), scope, console, buffer);
+        }
+        else if (items instanceof Object[]) {
+            render(Arrays.asList((Object[]) items).iterator(), scope, console, buffer);
+        }
+        else {
+            throw new IllegalStateException("Cannot loop over " + sourceKey + " as it isn't an Iterable, Stream or array.");
+        }
+    }
+
+    private void render(Iterator<?> items, LoopScope scope, Console console, StringBuilder buffer) {
+        while (items.hasNext()) {
+            scope.item = items.next();
+            for (BodyLine line : lines) {
+                line.render(scope, console, buffer);
+            }
+        }
+    }
+
+    private static BodyLine toBodyLine(ElementGenerator generator) {
+        if (generator instanceof TextElementGenerator) {
+            SegmentPlan plan = ((TextElementGenerator) generator).getPlan();
+            return (scope, console, buffer) -> {
+                buffer.setLength(0);
+                console.writeLine(plan.render(scope, buffer).toString());
+            };
+        }
+        else if (generator instanceof LoopElementGenerator) {
+            LoopElementGenerator loop = (LoopElementGenerator) generator;
+            return loop::render;
+        }
+        throw new IllegalArgumentException("Loops may only contain text lines and other loops.");
+    }
+
+    /**
+     * A line of the loop body.
+     */
+    @FunctionalInterface
+    private interface BodyLine {
+        void render(Map<String, Object> scope, Console console, StringBuilder buffer);
+    }
+
+    /**
+     * Context seen by the loop body: the loop variable on top of the
+     * enclosing context. One scope is reused for every item.
+     */
+    private static final class LoopScope extends AbstractMap<String, Object> {
+        private final Map<String, Object> parent;
+        private final String variable;
+        private final String fieldPrefix;
+        private Object item;
+
+        private LoopScope(Map<String, Object> parent, String variable) {
+            this.parent = parent;
+            this.variable = variable;
+            this.fieldPrefix = variable + ".";
+        }
+
+        @Override
+        public Object get(Object key) {
+            return getOrDefault(key, null);
+        }
+
+        @Override
+        public Object getOrDefault(Object key, Object defaultValue) {
+            if (variable.equals(key)) {
+                return item;
+            }
+            if (item instanceof Map && key instanceof String && ((String) key).startsWith(fieldPrefix)) {
+                Map<?, ?> fields = (Map<?, ?>) item;
+                String field = ((String) key).substring(fieldPrefix.length());
+                Object value = fields.get(field);
+                return value != null || fields.containsKey(field) ? value : defaultValue;
+            }
+            return parent.getOrDefault(key, defaultValue);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return variable.equals(key) || parent.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            Map<String, Object> copy = new HashMap<>(parent);
+            copy.put(variable, item);
+            return copy.entrySet();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package dev.houshce29.cliform.lang;
+
+/**
+ * A single line of template language that has been read, but not yet
+ * bound to the class hosting the template. Besides text and input lines,
+ * a line may open or close a loop block.
+ */
+public final class ParsedLine {
+    private static final ParsedLine LOOP_END = new ParsedLine(null, null, false, null, null);
+    private final SegmentPlan plan;
+    private final String handlerRef;
+    private final boolean obscure;
+    private final String loopVariable;
+    private final String loopSource;
+
+    ParsedLine(SegmentPlan plan, String handlerRef, boolean obscure) {
+        this(plan, handlerRef, obscure, null, null);
+    }
+
+    private ParsedLine(SegmentPlan plan, String handlerRef, boolean obscure, String loopVariable, String loopSource) {
+        this.plan = plan;
+        this.handlerRef = handlerRef;
+        this.obscure = obscure;
+        this.loopVariable = loopVariable;
+        this.loopSource = loopSource;
+    }
+
+    static ParsedLine loopStart(String variable, String sourceKey) {
+        return new ParsedLine(null, null, false, variable, sourceKey);
+    }
+
+    static ParsedLine loopEnd() {
+        return LOOP_END;
+    }
+
+    /**
+     * @return The text of the line, the prompt if this is an input line,
+     *         or <code>null</code> if this line opens or closes a loop.
+     */
+    public SegmentPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return <code>true</code> if this line takes input.
+     */
+    public boolean isInput() {
+        return handlerRef != null;
+    }
+
+    /**
+     * @return Name of the method that handles input, which may be blank,
+     *         or <code>null</code> if this isn't an input line.
+     */
+    public String getHandlerRef() {
+        return handlerRef;
+    }
+
+    /**
+     * @return <code>true</code> if the input should be obscured.
+     */
+    public boolean isObscure() {
+        return obscure;
+    }
+
+    /**
+     * @return <code>true</code> if this line opens a loop block.
+     */
+    public boolean isLoopStart() {
+        return loopVariable != null;
+    }
+
+    /**
+     * @return <code>true</code> if this line closes a loop block.
+     */
+    public boolean isLoopEnd() {
+        return this == LOOP_END;
+    }
+
+    /**
+     * @return Name of the loop variable if this line opens a loop.
+     */
+    public String getLoopVariable() {
+        return loopVariable;
+    }
+
+    /**
+     * @return Context key of the collection to loop over if this line opens a loop.
+     */
+    public String getLoopSource() {
+        return loopSource;
+    }
+}
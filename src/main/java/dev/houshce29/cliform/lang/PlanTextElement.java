@@ -0,0 +1,27 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.ReactiveElement;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Text element rendered from a plan with context slots, which can be
+ * rendered again when the context values of its slots change.
+ */
+final class PlanTextElement extends LiteralTextElement implements ReactiveElement {
+
+    PlanTextElement(SegmentPlan plan, String[] values) {
+        super(plan, values);
+    }
+
+    @Override
+    public Collection<String> getContextKeys() {
+        return getPlan().getSlots();
+    }
+
+    @Override
+    public String renderText(Map<String, Object> context) {
+        return getPlan().render(context);
+    }
+}
@@ -0,0 +1,267 @@
+package dev.houshce29.cliform.lang;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled line of template text. Literal chunks and context slot
+ * references are interleaved, and rendered straight into a builder
+ * so that no format string needs to be parsed on each render. Literal
+ * chunks are also encoded to UTF-8 once, when first written to a channel,
+ * so that only the values need to be encoded on each render.
+ */
+public final class SegmentPlan {
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(StringBuilder::new);
+    // Always one more literal than slots: literal[0] slot[0] literal[1] ... literal[n]
+    private final String[] literals;
+    private final String[] slots;
+    // UTF-8 bytes of each literal, encoded when first needed
+    private volatile byte[][] encoded;
+
+    private SegmentPlan(String[] literals, String[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    /**
+     * @return The literal chunks of this plan, in order. There is always
+     *         one more literal than there are slots; each slot sits in
+     *         between two literals, which may be empty.
+     */
+    public List<String> getLiterals() {
+        return Collections.unmodifiableList(Arrays.asList(literals));
+    }
+
+    /**
+     * @return The context keys referenced by this plan, in order.
+     */
+    public List<String> getSlots() {
+        return Collections.unmodifiableList(Arrays.asList(slots));
+    }
+
+    /**
+     * @return <code>true</code> if this plan has no context slots.
+     */
+    public boolean isStatic() {
+        return slots.length == 0;
+    }
+
+    /**
+     * Renders this plan into a string.
+     * @param context Application context to resolve slots from.
+     * @return The rendered text.
+     */
+    public String render(Map<String, Object> context) {
+        if (isStatic()) {
+            return literals[0];
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        return render(context, buffer).toString();
+    }
+
+    /**
+     * Renders this plan into the given builder.
+     * @param context Application context to resolve slots from.
+     * @param out Builder to append to.
+     * @return The given builder.
+     */
+    public StringBuilder render(Map<String, Object> context, StringBuilder out) {
+        out.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            // A missing value falls back to the name of the variable
+            out.append(context.getOrDefault(slots[i], slots[i]))
+                    .append(literals[i + 1]);
+        }
+        return out;
+    }
+
+    /**
+     * Resolves the value of each slot.
+     * @param context Application context to resolve slots from.
+     * @return The text of each slot's value, in order.
+     */
+    String[] resolve(Map<String, Object> context) {
+        String[] values = new String[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            // A missing value falls back to the name of the variable
+            values[i] = String.valueOf(context.getOrDefault(slots[i], slots[i]));
+        }
+        return values;
+    }
+
+    /**
+     * Renders this plan from resolved values.
+     * @param values Text of each slot's value, in order.
+     * @return The rendered text.
+     */
+    String render(String[] values) {
+        if (isStatic()) {
+            return literals[0];
+        }
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            buffer.append(values[i]).append(literals[i + 1]);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @return The UTF-8 bytes of each literal chunk, which must not be modified.
+     */
+    byte[][] getEncodedLiterals() {
+        byte[][] bytes = encoded;
+        if (bytes == null) {
+            // Encoding twice in a race is harmless
+            bytes = new byte[literals.length][];
+            for (int i = 0; i < literals.length; i++) {
+                bytes[i] = literals[i].getBytes(StandardCharsets.UTF_8);
+            }
+            encoded = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The Java format string equivalent of this plan.
+     */
+    public String toFormat() {
+        StringBuilder format = new StringBuilder();
+        for (int i = 0; i < literals.length; i++) {
+            if (i > 0) {
+                format.append("%s");
+            }
+            format.append(literals[i].replace("%", "%%"));
+        }
+        return format.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toFormat();
+    }
+
+    /**
+     * Compiles a Java format string that only contains <code>%s</code>
+     * and <code>%%</code> conversions into a plan.
+     * @param format Format string.
+     * @param args Context keys for each <code>%s</code>, in order.
+     * @return A new plan.
+     */
+    public static SegmentPlan fromFormat(String format, List<String> args) {
+        Builder builder = builder();
+        int arg = 0;
+        for (int i = 0; i < format.length(); i++) {
+            char current = format.charAt(i);
+            if (current != '%') {
+                builder.literal(current);
+                continue;
+            }
+            if (i == format.length() - 1) {
+                throw new IllegalArgumentException("Dangling % at the end of format: " + format);
+            }
+            char conversion = format.charAt(++i);
+            if (conversion == '%') {
+                builder.literal('%');
+            }
+            else if (conversion == 's') {
+                if (arg >= args.size()) {
+                    throw new IllegalArgumentException("Not enough arguments for format: " + format);
+                }
+                builder.slot(args.get(arg++));
+            }
+            else {
+                throw new IllegalArgumentException("Unsupported conversion %" + conversion + " in format: " + format);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Joins several plans into one, e.g. to render consecutive lines
+     * with a single write.
+     * @param plans Plans to join, in order.
+     * @param separator Literal text between each plan.
+     * @return A new plan.
+     */
+    public static SegmentPlan join(List<SegmentPlan> plans, String separator) {
+        Builder builder = builder();
+        for (int i = 0; i < plans.size(); i++) {
+            if (i > 0) {
+                builder.literal(separator);
+            }
+            SegmentPlan plan = plans.get(i);
+            builder.literal(plan.literals[0]);
+            for (int slot = 0; slot < plan.slots.length; slot++) {
+                builder.slot(plan.slots[slot]).literal(plan.literals[slot + 1]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return A new plan builder.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds a segment plan piece by piece.
+     */
+    public static final class Builder {
+        private final List<String> literals = new ArrayList<>();
+        private final List<String> slots = new ArrayList<>();
+        private StringBuilder current = new StringBuilder();
+
+        private Builder() {
+        }
+
+        /**
+         * Appends literal text.
+         * @param literal Character to append.
+         * @return This builder.
+         */
+        public Builder literal(char literal) {
+            current.append(literal);
+            return this;
+        }
+
+        /**
+         * Appends literal text.
+         * @param literal Text to append.
+         * @return This builder.
+         */
+        public Builder literal(CharSequence literal) {
+            current.append(literal);
+            return this;
+        }
+
+        /**
+         * Appends a reference to a context value.
+         * @param contextKey Key of the context value.
+         * @return This builder.
+         */
+        public Builder slot(String contextKey) {
+            literals.add(current.toString());
+            slots.add(contextKey);
+            current = new StringBuilder();
+            return this;
+        }
+
+        /**
+         * @return A new plan.
+         */
+        public SegmentPlan build() {
+            List<String> allLiterals = new ArrayList<>(literals);
+            allLiterals.add(current.toString());
+            return new SegmentPlan(allLiterals.toArray(new String[0]), slots.toArray(new String[0]));
+        }
+    }
+}
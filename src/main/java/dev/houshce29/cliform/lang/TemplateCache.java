@@ -0,0 +1,226 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.util.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide cache of parsed templates, keyed by the class hosting
+ * the template. Parsed generators are immutable and hold their resolved
+ * handler methods, so they can be shared by every instance of a form.
+ * If a {@link CompiledTemplate} was generated for a class, it's used
+ * instead of parsing the template.
+ *
+ * Consecutive text lines of a cached template are coalesced into one
+ * element (see {@link TextElementGenerator#coalesce(List)}), except for
+ * lazy and watched templates, which keep one generator per line.
+ *
+ * Templates are held through a {@link ClassValue}, so caching a class
+ * doesn't keep it (or its class loader) from being unloaded, even though
+ * its generators refer back to its handler methods.
+ */
+public final class TemplateCache {
+    private static final TemplateCache INSTANCE = new TemplateCache(new TemplateParser());
+    private final ClassValue<Entry> templates = new ClassValue<Entry>() {
+        @Override
+        protected Entry computeValue(Class<?> type) {
+            return new Entry();
+        }
+    };
+    // Classes with a cached template, for sizing and evicting everything
+    private final Map<Class<?>, Boolean> cached = Collections.synchronizedMap(new WeakHashMap<>());
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final TemplateParser parser;
+
+    @VisibleForTesting
+    TemplateCache(TemplateParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @return The shared cache instance.
+     */
+    public static TemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the parsed template of the given class, parsing it on the
+     * first request.
+     * @param source Source class hosting the template.
+     * @return Unmodifiable list of element generators.
+     */
+    public List<ElementGenerator> get(Class<?> source) {
+        Entry entry = templates.get(source);
+        List<ElementGenerator> generators = entry.generators;
+        if (generators != null) {
+            hits.increment();
+            return generators;
+        }
+        synchronized (entry) {
+            if (entry.generators == null) {
+                store(source, entry, load(source));
+            }
+            else {
+                hits.increment();
+            }
+            return entry.generators;
+        }
+    }
+
+    /**
+     * Parses the templates of the given classes in parallel on the common
+     * fork-join pool, skipping any that are already cached. Every class is
+     * attempted, so that all template errors are reported together.
+     * @param sources Source classes hosting templates.
+     * @throws IllegalStateException If any template fails to parse; each
+     *                               failure is attached as suppressed.
+     */
+    public void precompile(Collection<? extends Class<?>> sources) {
+        Map<Class<?>, RuntimeException> failures = new ConcurrentHashMap<>();
+        sources.parallelStream()
+                .distinct()
+                .filter(source -> templates.get(source).generators == null)
+                .forEach(source -> {
+                    try {
+                        // Parsed outside of the entry's lock, so templates don't wait on each other
+                        List<ElementGenerator> generators = load(source);
+                        Entry entry = templates.get(source);
+                        synchronized (entry) {
+                            if (entry.generators == null) {
+                                store(source, entry, generators);
+                                return;
+                            }
+                        }
+                        release(generators);
+                    }
+                    catch (RuntimeException ex) {
+                        failures.put(source, ex);
+                    }
+                });
+        if (failures.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Failed to compile ").append(failures.size())
+                .append(failures.size() == 1 ? " template:" : " templates:");
+        List<Class<?>> failed = new ArrayList<>(failures.keySet());
+        failed.sort(Comparator.comparing(Class::getName));
+        for (Class<?> source : failed) {
+            message.append(System.lineSeparator()).append("  ").append(source.getName())
+                    .append(": ").append(failures.get(source).getMessage());
+        }
+        IllegalStateException error = new IllegalStateException(message.toString());
+        for (Class<?> source : failed) {
+            error.addSuppressed(failures.get(source));
+        }
+        throw error;
+    }
+
+    /**
+     * Evicts the template of the given class so that it's parsed again
+     * on the next request.
+     * @param source Source class hosting the template.
+     */
+    public void evict(Class<?> source) {
+        Entry entry = templates.get(source);
+        List<ElementGenerator> generators;
+        synchronized (entry) {
+            generators = entry.generators;
+            entry.generators = null;
+            cached.remove(source);
+        }
+        release(generators);
+    }
+
+    /**
+     * Evicts every cached template.
+     */
+    public void evictAll() {
+        List<Class<?>> sources;
+        synchronized (cached) {
+            sources = new ArrayList<>(cached.keySet());
+        }
+        for (Class<?> source : sources) {
+            evict(source);
+        }
+    }
+
+    /**
+     * @return Number of cached templates.
+     */
+    public int size() {
+        return cached.size();
+    }
+
+    /**
+     * @return Number of requests served from the cache.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of requests that required parsing.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private List<ElementGenerator> load(Class<?> source) {
+        misses.increment();
+        CompiledTemplate compiled = findCompiled(source);
+        if (compiled != null) {
+            return Collections.unmodifiableList(TextElementGenerator.coalesce(compiled.getGenerators()));
+        }
+        List<ElementGenerator> generators = parser.parse(source);
+        // Lazy and watched templates are already read-only, and must
+        // keep their own iteration semantics
+        if (generators instanceof LazyTemplate || generators instanceof WatchedTemplate) {
+            return generators;
+        }
+        return Collections.unmodifiableList(TextElementGenerator.coalesce(generators));
+    }
+
+    private void store(Class<?> source, Entry entry, List<ElementGenerator> generators) {
+        entry.generators = generators;
+        cached.put(source, Boolean.TRUE);
+    }
+
+    private static void release(List<ElementGenerator> generators) {
+        if (generators instanceof WatchedTemplate) {
+            ((WatchedTemplate) generators).close();
+        }
+    }
+
+    private static CompiledTemplate findCompiled(Class<?> source) {
+        String name = CompiledTemplate.classNameFor(source.getName());
+        try {
+            Class<?> compiled = Class.forName(name, true, source.getClassLoader());
+            return (CompiledTemplate) compiled.getDeclaredConstructor().newInstance();
+        }
+        catch (ClassNotFoundException ex) {
+            // Not compiled ahead of time, so it'll be parsed
+            return null;
+        }
+        catch (ReflectiveOperationException | ClassCastException ex) {
+            throw new IllegalStateException("Failed to load compiled template " + name + ".", ex);
+        }
+    }
+
+    /**
+     * Template of a class, if cached. Entries are locked while a template
+     * is loaded, so that it's only loaded once.
+     */
+    private static final class Entry {
+        private volatile List<ElementGenerator> generators;
+    }
+}
@@ -0,0 +1,41 @@
+package dev.houshce29.cliform.lang;
+
+import java.util.Iterator;
+
+/**
+ * Lines of a template being parsed, keeping track of the current line
+ * number so that blocks spanning several lines can be read in one go.
+ */
+final class TemplateLines {
+    private final Iterator<String> lines;
+    private int lineNumber = 0;
+
+    TemplateLines(Iterator<String> lines) {
+        this.lines = lines;
+    }
+
+    /**
+     * @return <code>true</code> if there are more lines.
+     */
+    boolean hasNext() {
+        return lines.hasNext();
+    }
+
+    /**
+     * @return The next line, or <code>null</code> at the end of the template.
+     */
+    String next() {
+        if (!lines.hasNext()) {
+            return null;
+        }
+        lineNumber++;
+        return lines.next();
+    }
+
+    /**
+     * @return Number of the line last returned by {@link #next()}.
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -6,14 +6,24 @@ import dev.houshce29.cliform.util.IOUtils;
 import dev.houshce29.cliform.util.StringUtils;
 import dev.houshce29.cliform.util.VisibleForTesting;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A parser that parses template language.
  */
 public class TemplateParser {
+    private static final String LOOP_START = "%for";
+    private static final String LOOP_END = "%end";
+    // Doubled at the start of a line, the directive is written as text
+    private static final String DIRECTIVE_ESCAPE = "%%";
+    // %for item in ${items} or %for item in $items
+    private static final Pattern LOOP_PATTERN = Pattern.compile(
+            "%for\\s+([^\\s$]+)\\s+in\\s+(?:\\$\\{([^}]+)\\}|\\$([^\\s{]\\S*))\\s*");
 
     /**
      * Parses the template attached to the given class, and binds
@@ -40,6 +50,15 @@ public class TemplateParser {
         if (!CollectionUtils.isArrayEmpty(template.value())) {
             lines = Arrays.asList(template.value());
         }
+        else if (template.watch() && StringUtils.isNotBlank(template.path())) {
+            return new WatchedTemplate(source, Paths.get(template.path()), this).start();
+        }
+        else if (template.lazy() && StringUtils.isNotBlank(template.resource())) {
+            return new LazyTemplate(source, IOUtils.openResource(template.resource()), this);
+        }
+        else if (template.lazy() && StringUtils.isNotBlank(template.path())) {
+            return new LazyTemplate(source, IOUtils.openFile(template.path()), this);
+        }
         else if (StringUtils.isNotBlank(template.resource())) {
             lines = IOUtils.readResource(template.resource());
         }
@@ -60,42 +79,153 @@ public class TemplateParser {
      */
     public List<ElementGenerator> parse(Class<?> source, List<String> lines) {
         List<ElementGenerator> creators = new ArrayList<>();
-        int lineNumber = 0;
-        for (String line : lines) {
-            lineNumber++;
-            creators.add(parseLine(source, lineNumber, line));
+        TemplateLines reader = new TemplateLines(lines.iterator());
+        while (reader.hasNext()) {
+            creators.add(parseNext(source, reader));
         }
         return creators;
     }
 
+    /**
+     * Parses the next line of the template, or the whole block if the
+     * line opens a loop.
+     * @param source Source form class hosting the template.
+     * @param lines Lines of the template, with at least one line left.
+     * @return The next element generator.
+     */
+    ElementGenerator parseNext(Class<?> source, TemplateLines lines) {
+        String line = lines.next();
+        if (isBlockLine(line)) {
+            return parseBlock(source, lines, line);
+        }
+        return parseLine(source, lines.getLineNumber(), line);
+    }
+
+    /**
+     * Parses a single line that isn't part of a loop block.
+     */
     @VisibleForTesting
     ElementGenerator parseLine(Class<?> source, int lineNumber, String line) {
+        ParsedLine parsed = readLine(source.toString(), lineNumber, line);
+        if (parsed.isLoopStart() || parsed.isLoopEnd()) {
+            throw new IllegalStateException("Loop on line " + lineNumber + " in template for " + source
+                    + " can only be parsed as a whole block.");
+        }
+        // This is an input line, so return it like that
+        if (parsed.isInput()) {
+            return new InputElementGenerator(source, parsed.getHandlerRef(), parsed.getPlan(), parsed.isObscure());
+        }
+        return TextElementGenerator.of(parsed.getPlan());
+    }
+
+    /**
+     * A line is a block line when, ignoring leading whitespace, it is
+     * exactly <code>%end</code> or starts with <code>%for</code> and
+     * whitespace. Doubling the <code>%</code> (e.g. <code>%%end</code>)
+     * escapes the line, which is then read as text with a single
+     * <code>%</code>.
+     * @param line A line of template language.
+     * @return <code>true</code> if the line opens or closes a block.
+     */
+    static boolean isBlockLine(String line) {
+        String trimmed = line.trim();
+        return trimmed.equals(LOOP_END) || trimmed.equals(LOOP_START) || trimmed.startsWith(LOOP_START + " ")
+                || trimmed.startsWith(LOOP_START + "\t");
+    }
+
+    /**
+     * Parses the block opened by the given line, up to its closing line.
+     */
+    private ElementGenerator parseBlock(Class<?> source, TemplateLines lines, String firstLine) {
+        int startLine = lines.getLineNumber();
+        ParsedLine start = readLine(source.toString(), startLine, firstLine);
+        if (start.isLoopEnd()) {
+            throw new IllegalStateException("Unexpected " + LOOP_END + " on line " + startLine
+                    + " in template for " + source + ".");
+        }
+        List<ElementGenerator> body = new ArrayList<>();
+        String line;
+        while ((line = lines.next()) != null) {
+            if (isBlockLine(line)) {
+                if (line.trim().equals(LOOP_END)) {
+                    return LoopElementGenerator.of(start.getLoopVariable(), start.getLoopSource(), body);
+                }
+                body.add(parseBlock(source, lines, line));
+                continue;
+            }
+            ElementGenerator generator = parseLine(source, lines.getLineNumber(), line);
+            if (generator instanceof InputElementGenerator) {
+                throw new IllegalStateException("Input is not allowed inside a loop on line "
+                        + lines.getLineNumber() + " in template for " + source + ".");
+            }
+            body.add(generator);
+        }
+        throw new IllegalStateException("Incomplete loop starting on line " + startLine
+                + " in template for " + source + ".");
+    }
+
+    /**
+     * Reads a single line of template language without binding it to a
+     * class. This is the syntax-only half of parsing, shared by anything
+     * that needs to compile templates outside of a running application.
+     * @param sourceName Name of the template's source for error messages.
+     * @param lineNumber Line number of the line for error messages.
+     * @param line The line to read.
+     * @return The parsed line.
+     */
+    public ParsedLine readLine(String sourceName, int lineNumber, String line) {
+        if (isBlockLine(line)) {
+            return readBlockLine(sourceName, lineNumber, line.trim());
+        }
         LineParseContext context = new LineParseContext();
-        char[] chars = line.toCharArray();
+        char[] chars = unescapeDirective(line).toCharArray();
         for (char current : chars) {
             if (context.state == ParseState.POST_HANDLER_REF && !Character.isWhitespace(current)) {
                 throw new IllegalStateException("Unexpected token(s) after defined input on line " + lineNumber
-                        + " in template for " + source + ".");
+                        + " in template for " + sourceName + ".");
             }
             nextChar(current, context);
         }
-        completeLineParsing(lineNumber, source, context);
-        // This is an input line, so return it like that
-        if (context.input) {
-            return newInputCreator(source, context);
+        completeLineParsing(lineNumber, sourceName, context);
+        if (!context.input) {
+            return new ParsedLine(context.plan.build(), null, false);
         }
-        return new TextElementGenerator(context.format.toString(), context.formatContextArgs);
-    }
-
-    private static ElementGenerator newInputCreator(Class<?> source, LineParseContext context) {
         String ref = context.handler.toString();
         boolean obscure = false;
         if (ref.startsWith("!")) {
             obscure = true;
             ref = StringUtils.substringAfter(ref, "!");
         }
-        return new InputElementGenerator(
-                source, ref, context.format.toString(), context.formatContextArgs, obscure);
+        return new ParsedLine(context.plan.build(), ref, obscure);
+    }
+
+    /**
+     * @return The line with one <code>%</code> dropped if it's an escaped
+     *         block line, or else the line as it is.
+     */
+    private static String unescapeDirective(String line) {
+        int start = 0;
+        while (start < line.length() && Character.isWhitespace(line.charAt(start))) {
+            start++;
+        }
+        if (!line.startsWith(DIRECTIVE_ESCAPE, start)) {
+            return line;
+        }
+        String unescaped = line.substring(0, start) + line.substring(start + 1);
+        return isBlockLine(unescaped) ? unescaped : line;
+    }
+
+    private static ParsedLine readBlockLine(String sourceName, int lineNumber, String line) {
+        if (line.equals(LOOP_END)) {
+            return ParsedLine.loopEnd();
+        }
+        Matcher matcher = LOOP_PATTERN.matcher(line);
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Malformed loop on line " + lineNumber + " in template for "
+                    + sourceName + "; expected " + LOOP_START + " <item> in ${<items>}.");
+        }
+        String sourceKey = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+        return ParsedLine.loopStart(matcher.group(1), sourceKey);
     }
 
     private static void nextChar(char current, LineParseContext context) {
@@ -118,23 +248,23 @@ public class TemplateParser {
         }
     }
 
-    private static void completeLineParsing(int lineNumber, Class<?> source, LineParseContext context) {
+    private static void completeLineParsing(int lineNumber, String sourceName, LineParseContext context) {
         switch (context.state) {
             // EOF means this is just a literal $
             case VARIABLE_INIT:
-                context.format.append('$');
+                context.plan.literal('$');
                 break;
             // EOF concludes the current arg
             case VARIABLE:
-                context.formatContextArgs.add(context.currentContextArg.toString());
+                context.plan.slot(context.currentContextArg.toString());
                 break;
             // Incomplete variable block
             case VARIABLE_BLOCK:
                 throw new IllegalStateException("Incomplete variable block on line " + lineNumber
-                        + " in template for " + source + ".");
+                        + " in template for " + sourceName + ".");
             case HANDLER_REF:
                 throw new IllegalStateException("Incomplete input block on line " + lineNumber
-                        + " in template for " + source + ".");
+                        + " in template for " + sourceName + ".");
         }
     }
 
@@ -147,14 +277,9 @@ public class TemplateParser {
         else if (current == '[') {
             context.state = ParseState.HANDLER_REF;
         }
-        // Special case: prevent injection / messing up of format
-        else if (current == '%') {
-            // Escape for Java string formatting
-            context.format.append("%%");
-        }
-        // More literals to append to format
+        // More literals to append to the plan
         else {
-            context.format.append(current);
+            context.plan.literal(current);
         }
     }
 
@@ -162,24 +287,22 @@ public class TemplateParser {
         // A second $ means escaped initial $, so flip back to literal
         if (current == '$') {
             context.state = ParseState.LITERAL;
-            context.format.append(current);
+            context.plan.literal(current);
         }
         // Whitespace right after $ is just a literal $, so record both
         // the $ and the whitespace
         else if (Character.isWhitespace(current)) {
             context.state = ParseState.LITERAL;
-            context.format.append('$').append(current);
+            context.plan.literal('$').literal(current);
         }
         // Bounded variable (i.e. ${theVariable})
         else if (current == '{') {
             context.state = ParseState.VARIABLE_BLOCK;
-            context.format.append("%s");
         }
         // Regular variable (i.e. $theVariable)
         else {
             context.state = ParseState.VARIABLE;
             context.currentContextArg.append(current);
-            context.format.append("%s");
         }
     }
 
@@ -187,7 +310,7 @@ public class TemplateParser {
         // End of block variable
         if (current == '}') {
             context.state = ParseState.LITERAL;
-            context.formatContextArgs.add(context.currentContextArg.toString());
+            context.plan.slot(context.currentContextArg.toString());
             context.currentContextArg = new StringBuilder();
         }
         // Continue name of variable
@@ -200,9 +323,9 @@ public class TemplateParser {
         // Marks the end of a variable
         if (Character.isWhitespace(current)) {
             context.state = ParseState.LITERAL;
-            context.formatContextArgs.add(context.currentContextArg.toString());
+            context.plan.slot(context.currentContextArg.toString());
             context.currentContextArg = new StringBuilder();
-            context.format.append(current);
+            context.plan.literal(current);
         }
         else {
             context.currentContextArg.append(current);
@@ -225,8 +348,7 @@ public class TemplateParser {
 
     private static class LineParseContext {
         private ParseState state = ParseState.LITERAL;
-        private StringBuilder format = new StringBuilder();
-        private List<String> formatContextArgs = new ArrayList<>();
+        private SegmentPlan.Builder plan = SegmentPlan.builder();
         private StringBuilder currentContextArg = new StringBuilder();
         private boolean input = false;
         private StringBuilder handler = new StringBuilder();
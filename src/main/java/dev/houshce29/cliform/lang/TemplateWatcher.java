@@ -0,0 +1,140 @@
+package dev.houshce29.cliform.lang;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Watches template files for changes on a single background thread,
+ * and notifies whoever is interested in a file when it changes.
+ */
+final class TemplateWatcher {
+    private static final TemplateWatcher INSTANCE = new TemplateWatcher();
+    // Editors often write a file in several steps (e.g. truncate then write),
+    // so let events settle before notifying anyone
+    private static final long SETTLE_MILLIS = 50;
+    private final Map<Path, List<Runnable>> listeners = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    private WatchService service;
+
+    private TemplateWatcher() {
+    }
+
+    static TemplateWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts watching the given file.
+     * @param file File to watch.
+     * @param onChange Invoked on the watcher thread whenever the file changes.
+     */
+    synchronized void watch(Path file, Runnable onChange) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path directory = absolute.getParent();
+        try {
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(service(),
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        listeners.computeIfAbsent(absolute, key -> new CopyOnWriteArrayList<>()).add(onChange);
+    }
+
+    /**
+     * Stops notifying the given listener of changes to the file.
+     * @param file File being watched.
+     * @param onChange Listener to remove.
+     */
+    synchronized void unwatch(Path file, Runnable onChange) {
+        Path absolute = file.toAbsolutePath().normalize();
+        List<Runnable> fileListeners = listeners.get(absolute);
+        if (fileListeners == null) {
+            return;
+        }
+        fileListeners.remove(onChange);
+        if (fileListeners.isEmpty()) {
+            listeners.remove(absolute);
+            Path directory = absolute.getParent();
+            boolean directoryInUse = listeners.keySet().stream()
+                    .anyMatch(watched -> watched.getParent().equals(directory));
+            if (!directoryInUse) {
+                directories.remove(directory).cancel();
+            }
+        }
+    }
+
+    private WatchService service() throws IOException {
+        if (service == null) {
+            service = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(this::run, "cliform-template-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return service;
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                Thread.sleep(SETTLE_MILLIS);
+                Path directory = (Path) key.watchable();
+                // A single write often raises several events, so notify once per file
+                Set<Path> changed = new LinkedHashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were lost, so assume everything changed
+                        listeners.keySet().stream()
+                                .filter(file -> file.getParent().equals(directory))
+                                .forEach(changed::add);
+                    }
+                    else {
+                        changed.add(directory.resolve((Path) event.context()));
+                    }
+                }
+                for (Path file : changed) {
+                    List<Runnable> fileListeners = listeners.get(file);
+                    if (fileListeners != null) {
+                        notify(fileListeners);
+                    }
+                }
+                key.reset();
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ClosedWatchServiceException ex) {
+            // Nothing left to watch
+        }
+    }
+
+    private static void notify(List<Runnable> fileListeners) {
+        for (Runnable listener : fileListeners) {
+            // A misbehaving listener must not stop the watcher, whatever it throws
+            try {
+                listener.run();
+            }
+            catch (Throwable ex) {
+                // Listeners keep track of their own failures
+            }
+        }
+    }
+}
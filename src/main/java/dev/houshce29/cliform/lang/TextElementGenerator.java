@@ -1,9 +1,8 @@
 package dev.houshce29.cliform.lang;
 
 import dev.houshce29.cliform.core.Element;
-import dev.houshce29.cliform.core.TextElement;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -11,27 +10,101 @@ import java.util.Map;
  * Element generator impl for a text element.
  */
 public class TextElementGenerator implements ElementGenerator {
-    private final String format;
-    private final List<String> formatContextArgs;
+    private final SegmentPlan plan;
+    // Static lines always render the same way, so their element is shared
+    private final LiteralTextElement constant;
 
     TextElementGenerator(String format, List<String> formatContextArgs) {
-        this.format = format;
-        this.formatContextArgs = formatContextArgs;
+        this(SegmentPlan.fromFormat(format, formatContextArgs));
+    }
+
+    TextElementGenerator(SegmentPlan plan) {
+        this.plan = plan;
+        if (plan.isStatic()) {
+            this.constant = new LiteralTextElement(plan);
+        }
+        else {
+            this.constant = null;
+        }
+    }
+
+    /**
+     * Creates a text generator for the given line. Static lines are
+     * shared through the {@link LiteralPool}.
+     * @param plan Compiled line of text.
+     * @return A generator of the line.
+     */
+    public static TextElementGenerator of(SegmentPlan plan) {
+        if (plan.isStatic()) {
+            return LiteralPool.getInstance().text(plan);
+        }
+        return new TextElementGenerator(plan);
+    }
+
+    /**
+     * Joins each run of consecutive text generators into a single
+     * generator of a multi-line plan, so that the run renders as one
+     * element written with one call. Static and variable lines are never
+     * joined together: a static run becomes one pooled, pre-rendered
+     * element, and a variable run stays a plan of its own so that it can
+     * still be rewritten by itself.
+     * @param generators Generators of a template, in order.
+     * @return The coalesced generators.
+     */
+    public static List<ElementGenerator> coalesce(List<ElementGenerator> generators) {
+        return coalesce(generators, false);
+    }
+
+    /**
+     * Joins each run of consecutive text generators.
+     * @param generators Generators, in order.
+     * @param mixed Whether static and variable lines may share a run; only
+     *              for bodies that are re-rendered as a whole every time.
+     * @return The coalesced generators.
+     */
+    static List<ElementGenerator> coalesce(List<ElementGenerator> generators, boolean mixed) {
+        List<ElementGenerator> coalesced = new ArrayList<>(generators.size());
+        List<SegmentPlan> run = new ArrayList<>();
+        for (ElementGenerator generator : generators) {
+            if (generator instanceof TextElementGenerator) {
+                SegmentPlan plan = ((TextElementGenerator) generator).getPlan();
+                if (!mixed && !run.isEmpty() && run.get(0).isStatic() != plan.isStatic()) {
+                    flush(run, coalesced);
+                }
+                run.add(plan);
+                continue;
+            }
+            flush(run, coalesced);
+            coalesced.add(generator);
+        }
+        flush(run, coalesced);
+        return coalesced;
+    }
+
+    private static void flush(List<SegmentPlan> run, List<ElementGenerator> out) {
+        if (!run.isEmpty()) {
+            out.add(of(run.size() == 1 ? run.get(0) : SegmentPlan.join(run, System.lineSeparator())));
+            run.clear();
+        }
+    }
+
+    public SegmentPlan getPlan() {
+        return plan;
     }
 
     public String getFormat() {
-        return format;
+        return plan.toFormat();
     }
 
     public List<String> getFormatContextArgs() {
-        return Collections.unmodifiableList(formatContextArgs);
+        return plan.getSlots();
     }
 
     @Override
     public Element generate(Object source, Map<String, Object> context) {
-        Object[] formatArgs = formatContextArgs.stream()
-                .map(arg -> context.getOrDefault(arg, arg))
-                .toArray();
-        return new TextElement(String.format(format, formatArgs));
+        if (constant != null) {
+            return constant;
+        }
+        return new PlanTextElement(plan, plan.resolve(context));
     }
 }
@@ -0,0 +1,174 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.util.IOUtils;
+import dev.houshce29.cliform.util.VisibleForTesting;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+
+/**
+ * A path template that's re-parsed whenever its file changes. Only the
+ * range of lines that differ from the previous version is parsed again;
+ * the generators of every other line are reused. Templates with loop
+ * blocks are parsed again in full. The new generators are
+ * swapped in all at once, so a form always sees one version of the file.
+ *
+ * Iterating or streaming this list works on the version current at that
+ * moment. A change that fails to parse is ignored and the failure is kept
+ * in {@link #getLastError()}.
+ */
+public final class WatchedTemplate extends AbstractList<ElementGenerator> implements RandomAccess, Closeable {
+    private final Class<?> source;
+    private final Path path;
+    private final TemplateParser parser;
+    private final Runnable listener = this::reload;
+    private volatile Version version;
+    private volatile RuntimeException lastError;
+
+    WatchedTemplate(Class<?> source, Path path, TemplateParser parser) {
+        this.source = source;
+        this.path = path;
+        this.parser = parser;
+        List<String> lines = IOUtils.readFile(path);
+        this.version = new Version(lines.toArray(new String[0]), parseAll(lines));
+    }
+
+    /**
+     * Starts watching the template file.
+     * @return This template.
+     */
+    WatchedTemplate start() {
+        TemplateWatcher.getInstance().watch(path, listener);
+        return this;
+    }
+
+    /**
+     * @return The generators of the current version of the template.
+     */
+    public List<ElementGenerator> snapshot() {
+        return Collections.unmodifiableList(Arrays.asList(version.generators));
+    }
+
+    /**
+     * @return The error of the last change that failed to parse, or
+     *         <code>null</code> if the last change was applied.
+     */
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public ElementGenerator get(int index) {
+        return version.generators[index];
+    }
+
+    @Override
+    public int size() {
+        return version.generators.length;
+    }
+
+    @Override
+    public Iterator<ElementGenerator> iterator() {
+        return snapshot().iterator();
+    }
+
+    @Override
+    public Spliterator<ElementGenerator> spliterator() {
+        return snapshot().spliterator();
+    }
+
+    /**
+     * Stops watching the template file.
+     */
+    @Override
+    public void close() {
+        TemplateWatcher.getInstance().unwatch(path, listener);
+    }
+
+    /**
+     * Reads the file again and re-parses the lines that changed.
+     * @return Number of lines that were parsed again.
+     */
+    @VisibleForTesting
+    synchronized int reload() {
+        try {
+            Version current = version;
+            String[] lines = IOUtils.readFile(path).toArray(new String[0]);
+            if (current.blocks || hasBlocks(lines)) {
+                // Lines no longer map one to one to generators, so parse it all
+                version = new Version(lines, parseAll(Arrays.asList(lines)));
+                lastError = null;
+                return lines.length;
+            }
+            // Lines before and after the change keep their generators
+            int prefix = 0;
+            int maxPrefix = Math.min(current.lines.length, lines.length);
+            while (prefix < maxPrefix && current.lines[prefix].equals(lines[prefix])) {
+                prefix++;
+            }
+            int suffix = 0;
+            int maxSuffix = maxPrefix - prefix;
+            while (suffix < maxSuffix && current.lines[current.lines.length - 1 - suffix]
+                    .equals(lines[lines.length - 1 - suffix])) {
+                suffix++;
+            }
+            int changedEnd = lines.length - suffix;
+            ElementGenerator[] changed = parse(Arrays.asList(lines), prefix, changedEnd);
+            ElementGenerator[] generators = new ElementGenerator[lines.length];
+            System.arraycopy(current.generators, 0, generators, 0, prefix);
+            System.arraycopy(changed, 0, generators, prefix, changed.length);
+            System.arraycopy(current.generators, current.generators.length - suffix,
+                    generators, changedEnd, suffix);
+            version = new Version(lines, generators);
+            lastError = null;
+            return changed.length;
+        }
+        catch (RuntimeException ex) {
+            lastError = ex;
+            return 0;
+        }
+    }
+
+    private ElementGenerator[] parseAll(List<String> lines) {
+        return parser.parse(source, lines).toArray(new ElementGenerator[0]);
+    }
+
+    private static boolean hasBlocks(String[] lines) {
+        for (String line : lines) {
+            if (TemplateParser.isBlockLine(line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ElementGenerator[] parse(List<String> lines, int from, int to) {
+        ElementGenerator[] generators = new ElementGenerator[to - from];
+        for (int i = from; i < to; i++) {
+            generators[i - from] = parser.parseLine(source, i + 1, lines.get(i));
+        }
+        return generators;
+    }
+
+    /**
+     * An immutable version of the template file.
+     */
+    private static final class Version {
+        private final String[] lines;
+        private final ElementGenerator[] generators;
+        private final boolean blocks;
+
+        private Version(String[] lines, ElementGenerator[] generators) {
+            this.lines = lines;
+            this.generators = generators;
+            this.blocks = hasBlocks(lines);
+        }
+    }
+}
@@ -4,10 +4,14 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -26,17 +30,67 @@ public final class IOUtils {
         return readInputStream(input);
     }
 
+    public static BufferedReader openResource(String resource) {
+        InputStream input = Thread.currentThread()
+                .getContextClassLoader()
+                .getResourceAsStream(resource);
+        if (input == null) {
+            return new BufferedReader(new StringReader(""));
+        }
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    public static BufferedReader openFile(String path) {
+        try {
+            return Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     public static List<String> readFile(String path) {
+        return readFile(Paths.get(path));
+    }
+
+    public static List<String> readFile(Path path) {
+        // Read the whole file in one go rather than through a stream buffer;
+        // the file isn't left mapped or locked, even while it is being rewritten.
         try {
-            return Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+            return splitLines(StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(Files.readAllBytes(path))));
         }
         catch (IOException ex) {
             throw new UncheckedIOException(ex);
         }
     }
 
+    /**
+     * Splits text into lines the same way {@link BufferedReader#readLine()} does:
+     * lines end at \n, \r or \r\n, and a trailing line break doesn't add
+     * an empty line.
+     */
+    public static List<String> splitLines(CharSequence text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char current = text.charAt(i);
+            if (current == '\n' || current == '\r') {
+                lines.add(text.subSequence(start, i).toString());
+                if (current == '\r' && i + 1 < length && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            lines.add(text.subSequence(start, length).toString());
+        }
+        return lines;
+    }
+
     public static List<String> readInputStream(InputStream input) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
             return reader.lines()
                     .collect(Collectors.toList());
         }
@@ -5,9 +5,17 @@ import dev.houshce29.cliform.core.ActionableElement;
 import dev.houshce29.cliform.core.Console;
 import dev.houshce29.cliform.core.Element;
 import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.Terminal;
+import dev.houshce29.cliform.core.TextElement;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -81,11 +89,143 @@ public class FormEngineTest {
         Assert.assertEquals(0, elementB.getInvocations());
     }
 
+    @Test
+    public void testTerminal() {
+        StringBuilder screen = new StringBuilder();
+        Terminal terminal = new Terminal() {
+            @Override
+            public Terminal write(Object object) {
+                screen.append(object);
+                return this;
+            }
+
+            @Override
+            public Terminal newLine() {
+                screen.append('\n');
+                return this;
+            }
+
+            @Override
+            public Terminal writeLine(Object line) {
+                screen.append(line).append('\n');
+                return this;
+            }
+
+            @Override
+            public String prompt(String message) {
+                screen.append(message);
+                return "q";
+            }
+
+            @Override
+            public Terminal clear() {
+                screen.setLength(0);
+                return this;
+            }
+        };
+        DynamicForm form = new DynamicForm("FORM", new TextElement("Hello"),
+                new InputElement(false, "> ", (input, context, console) -> FormAction.exit()));
+        FormEngine.newBuilder()
+                .setApplicationName("App")
+                .setTerminal(terminal)
+                .addForms(form)
+                .build()
+                .start(form.getId());
+        Assert.assertEquals("App\n\nHello\n> ", screen.toString());
+    }
+
+    @Test
+    public void testHandlerOutputFlushedBeforeNextPrompt() {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        List<String> seen = new ArrayList<>();
+        Element probe = (context, console) -> seen.add(new String(sink.toByteArray(), StandardCharsets.UTF_8));
+        DynamicForm form = new DynamicForm("FORM",
+                new InputElement(false, "> ", (input, context, console) -> {
+                    console.writeLine("Working on " + input);
+                    return FormAction.noop();
+                }),
+                probe,
+                new InputElement(false, "> ", (input, context, console) -> FormAction.exit()));
+        FormEngine.newBuilder()
+                .setChannels(Channels.newChannel(new ByteArrayInputStream("go\nq\n".getBytes(StandardCharsets.UTF_8))),
+                        Channels.newChannel(sink))
+                .setFrameBufferSize(FormEngine.DEFAULT_FRAME_BUFFER_SIZE)
+                .addForms(form)
+                .build()
+                .start(form.getId());
+        Assert.assertEquals(1, seen.size());
+        Assert.assertTrue(seen.get(0).endsWith("Working on go" + System.lineSeparator()));
+    }
+
+    @Test
+    public void testTerminalSize() {
+        FormEngine engine = FormEngine.newBuilder()
+                .setChannels(Channels.newChannel(new ByteArrayInputStream(new byte[0])),
+                        Channels.newChannel(new ByteArrayOutputStream()))
+                .setTerminalSize(30, 100)
+                .build();
+        Assert.assertEquals(30, engine.getConsole().getRows());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTerminalSize() {
+        FormEngine.newBuilder().setTerminalSize(-1, 80);
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testLoadFormNotFound() {
         FormEngine.newBuilder().build().start("form");
     }
 
+    @Test
+    public void testBuildWithFormClasses() {
+        TestElement element = new TestElement(FormAction.goTo("SMART"));
+        DynamicForm form = new DynamicForm("FORM", element);
+        FormEngine.newBuilder()
+                .addForm(DynamicForm.class, () -> form)
+                .addFormClasses(Smart.class)
+                .build()
+                .start(form.getId());
+        Assert.assertEquals(1, element.getInvocations());
+        Assert.assertTrue(form.isOnDestroyInvoked());
+    }
+
+    @Test
+    public void testBuildReportsAllTemplateErrors() {
+        try {
+            FormEngine.newBuilder()
+                    .addFormClasses(Smart.class, BrokenA.class, BrokenB.class)
+                    .build();
+            Assert.fail();
+        }
+        catch (IllegalStateException ex) {
+            Assert.assertEquals(2, ex.getSuppressed().length);
+            Assert.assertTrue(ex.getMessage().contains(BrokenA.class.getName()));
+            Assert.assertTrue(ex.getMessage().contains(BrokenB.class.getName()));
+        }
+    }
+
+    @Template("Smart form")
+    public static class Smart extends SmartForm {
+        public Smart() {
+            super("SMART");
+        }
+    }
+
+    @Template("Broken ${form")
+    public static class BrokenA extends SmartForm {
+        public BrokenA() {
+            super("A");
+        }
+    }
+
+    @Template("Broken [input")
+    public static class BrokenB extends SmartForm {
+        public BrokenB() {
+            super("B");
+        }
+    }
+
     private static class DynamicForm extends AbstractForm {
         private final List<Element> elements;
         private boolean onInitInvoked = false;
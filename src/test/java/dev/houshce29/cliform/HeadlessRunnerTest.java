@@ -0,0 +1,174 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.AbstractForm;
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.TextElement;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HeadlessRunnerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRunScript() {
+        HeadlessRunner.Result result = HeadlessRunner.of(newEngine())
+                .run("NAME", Arrays.asList("Alice", "y", "Bob", "n", "q").iterator());
+        Assert.assertEquals(Arrays.asList("NAME", "CONFIRM", "NAME", "CONFIRM", "NAME"), result.getFormPath());
+        Assert.assertEquals(1, result.getContext().get("saved"));
+        Assert.assertEquals("Bob", result.getContext().get("name"));
+        Assert.assertEquals(5, result.getInputsRead());
+        Assert.assertFalse(result.isScriptExhausted());
+    }
+
+    @Test
+    public void testScriptExhausted() {
+        HeadlessRunner.Result result = HeadlessRunner.of(newEngine())
+                .run("NAME", Arrays.asList("Alice", "y", "Bob").iterator());
+        Assert.assertEquals(Arrays.asList("NAME", "CONFIRM", "NAME", "CONFIRM"), result.getFormPath());
+        Assert.assertEquals(1, result.getContext().get("saved"));
+        Assert.assertEquals(3, result.getInputsRead());
+        Assert.assertTrue(result.isScriptExhausted());
+    }
+
+    @Test
+    public void testRunScriptFile() throws Exception {
+        Path script = folder.newFile("script.txt").toPath();
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            lines.append("Record ").append(i).append("\ny\n");
+        }
+        lines.append("q\n");
+        Files.write(script, lines.toString().getBytes(StandardCharsets.UTF_8));
+        HeadlessRunner.Result result = HeadlessRunner.of(newEngine()).run("NAME", script);
+        Assert.assertEquals(1000, result.getContext().get("saved"));
+        Assert.assertEquals(2001, result.getFormPath().size());
+        Assert.assertFalse(result.isScriptExhausted());
+    }
+
+    @Test
+    public void testOutput() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        HeadlessRunner.of(newEngine().setApplicationName("Batch"))
+                .setOutput(new PrintStream(bytes))
+                .run("NAME", Collections.singletonList("q").iterator());
+        String separator = System.lineSeparator();
+        Assert.assertEquals("Batch" + separator + separator + "Enter a name" + separator + "Name: ",
+                bytes.toString());
+    }
+
+    @Test
+    public void testListeners() {
+        StringBuilder events = new StringBuilder();
+        HeadlessRunner.of(newEngine().addListener(new EngineListener() {
+            @Override
+            public void onFormStart(String formId, Map<String, Object> context) {
+                events.append("start ").append(formId).append(';');
+            }
+
+            @Override
+            public void onStop(Map<String, Object> context) {
+                events.append("stop ").append(context.get("name")).append(';');
+            }
+        })).run("NAME", Arrays.asList("Alice", "n", "q").iterator());
+        Assert.assertEquals("start NAME;start CONFIRM;start NAME;stop Alice;", events.toString());
+    }
+
+    @Test
+    public void testConcurrentRuns() throws Exception {
+        AtomicInteger stops = new AtomicInteger();
+        FormEngine.Builder builder = newEngine().addListener(new EngineListener() {
+            @Override
+            public void onStop(Map<String, Object> context) {
+                stops.incrementAndGet();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<HeadlessRunner.Result>> runs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            List<String> script = new ArrayList<>();
+            for (int j = 0; j < 200; j++) {
+                script.add("Run " + i);
+                script.add("y");
+            }
+            script.add("q");
+            runs.add(executor.submit(() -> HeadlessRunner.of(builder).run("NAME", script.iterator())));
+        }
+        for (int i = 0; i < runs.size(); i++) {
+            HeadlessRunner.Result result = runs.get(i).get(30, TimeUnit.SECONDS);
+            // Each run only saw its own engine
+            Assert.assertEquals(401, result.getFormPath().size());
+            Assert.assertEquals("Run " + i, result.getContext().get("name"));
+            Assert.assertEquals(200, result.getContext().get("saved"));
+        }
+        executor.shutdown();
+        Assert.assertEquals(8, stops.get());
+        // The builder is left as it was
+        builder.setTerminal(Console.scripted(Collections.singletonList("q").iterator(), (PrintStream) null))
+                .build()
+                .start("NAME");
+        Assert.assertEquals(9, stops.get());
+    }
+
+    private static FormEngine.Builder newEngine() {
+        return FormEngine.newBuilder()
+                .addForms(new NameForm(), new ConfirmForm());
+    }
+
+    private static class NameForm extends AbstractForm {
+        NameForm() {
+            super("NAME");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Arrays.asList(
+                    new TextElement("Enter a name"),
+                    new InputElement(false, "Name: ", (input, ctx, console) -> {
+                        if ("q".equals(input)) {
+                            return FormAction.exit();
+                        }
+                        ctx.put("name", input);
+                        return FormAction.goTo("CONFIRM");
+                    }));
+        }
+    }
+
+    private static class ConfirmForm extends AbstractForm {
+        ConfirmForm() {
+            super("CONFIRM");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Collections.singletonList(
+                    new InputElement(false, "Save? ", (input, ctx, console) -> {
+                        if ("y".equals(input)) {
+                            ctx.merge("saved", 1, (a, b) -> (Integer) a + (Integer) b);
+                        }
+                        return FormAction.goTo("NAME");
+                    }));
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.AbstractForm;
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.OverflowPolicy;
+import dev.houshce29.cliform.core.Terminal;
+import dev.houshce29.cliform.core.TextElement;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MultiSessionEngineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSessions() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        MultiSessionEngine engine = FormEngine.newBuilder()
+                .setContextValue("greeting", "Hi")
+                .addForm(NameForm.class, () -> {
+                    created.incrementAndGet();
+                    return new NameForm();
+                })
+                .buildMultiSession();
+        Assert.assertEquals(0, created.get());
+        List<CompletableFuture<Map<String, Object>>> sessions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            sessions.add(engine.startSession("NAME",
+                    Console.scripted(Arrays.asList("User " + i, "q").iterator(), null)));
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            Map<String, Object> context = sessions.get(i).get(10, TimeUnit.SECONDS);
+            Assert.assertEquals("User " + i, context.get("name"));
+            Assert.assertEquals("Hi", context.get("greeting"));
+            // Form instances are per session, so their state isn't shared
+            Assert.assertEquals(1, context.get("answers"));
+        }
+        Assert.assertEquals(500, created.get());
+        Assert.assertEquals(0, engine.getActiveSessionCount());
+        engine.close();
+    }
+
+    @Test
+    public void testSessionTranscripts() throws Exception {
+        List<Path> transcripts = Collections.synchronizedList(new ArrayList<>());
+        MultiSessionEngine engine = FormEngine.newBuilder()
+                .addForm(NameForm.class, NameForm::new)
+                .addSessionListener(() -> {
+                    try {
+                        Path file = folder.newFile().toPath();
+                        transcripts.add(file);
+                        return TranscriptRecorder.open(file);
+                    }
+                    catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                })
+                .buildMultiSession();
+        List<CompletableFuture<Map<String, Object>>> sessions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sessions.add(engine.startSession("NAME",
+                    Console.scripted(Arrays.asList("User " + i, "Again " + i, "q").iterator(), null)));
+        }
+        for (CompletableFuture<Map<String, Object>> session : sessions) {
+            session.get(10, TimeUnit.SECONDS);
+        }
+        engine.close();
+        // Each session has a transcript of its own, closed when the session ended
+        Assert.assertEquals(3, transcripts.size());
+        Set<Object> names = new HashSet<>();
+        for (Path transcript : transcripts) {
+            TranscriptReplayer.Result result = TranscriptReplayer.of(FormEngine.newBuilder()
+                    .addForm(NameForm.class, NameForm::new))
+                    .replay(transcript);
+            Assert.assertFalse(result.getDivergences().toString(), result.isDiverged());
+            Assert.assertEquals(Arrays.asList("NAME", "NAME", "NAME"), result.getRun().getFormPath());
+            names.add(result.getRun().getContext().get("name"));
+        }
+        Assert.assertEquals(new HashSet<>(Arrays.asList("Again 0", "Again 1", "Again 2")), names);
+    }
+
+    @Test
+    public void testChannelSession() throws Exception {
+        Pipe input = Pipe.open();
+        Pipe output = Pipe.open();
+        MultiSessionEngine engine = FormEngine.newBuilder()
+                .setApplicationName("App")
+                .addForm(NameForm.class, NameForm::new)
+                .buildMultiSession();
+        CompletableFuture<Map<String, Object>> session = engine.startSession("NAME", input.source(), output.sink());
+        input.sink().write(ByteBuffer.wrap("Alice\nq\n".getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals("Alice", session.get(10, TimeUnit.SECONDS).get("name"));
+        // The session closed its channels when it ended
+        Assert.assertFalse(input.source().isOpen());
+        ByteBuffer bytes = ByteBuffer.allocate(1024);
+        while (output.source().read(bytes) >= 0) {
+            // Read everything written before the channel was closed
+        }
+        String text = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+        // Channel consoles clear the screen with line breaks
+        Assert.assertTrue(text, text.trim().startsWith("App"));
+        Assert.assertTrue(text, text.endsWith("Hello Alice" + System.lineSeparator() + "Name: "));
+        engine.close();
+    }
+
+    @Test
+    public void testSessionFailure() throws Exception {
+        MultiSessionEngine engine = FormEngine.newBuilder()
+                .addForm(NameForm.class, NameForm::new)
+                .buildMultiSession();
+        CompletableFuture<Map<String, Object>> session = engine.startSession("MISSING",
+                Console.scripted(Collections.emptyIterator(), null));
+        try {
+            session.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        }
+        catch (ExecutionException ex) {
+            Assert.assertTrue(ex.getCause() instanceof IllegalArgumentException);
+        }
+        engine.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        CountDownLatch prompted = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        Terminal terminal = new Terminal() {
+            @Override
+            public Terminal write(Object object) {
+                return this;
+            }
+
+            @Override
+            public Terminal newLine() {
+                return this;
+            }
+
+            @Override
+            public Terminal writeLine(Object line) {
+                return this;
+            }
+
+            @Override
+            public String prompt(String message) {
+                prompted.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                    return "";
+                }
+                catch (InterruptedException ex) {
+                    throw new IllegalStateException("Interrupted", ex);
+                }
+            }
+
+            @Override
+            public Terminal clear() {
+                return this;
+            }
+
+            @Override
+            public void close() {
+                closed.countDown();
+            }
+        };
+        MultiSessionEngine engine = FormEngine.newBuilder()
+                .addForm(NameForm.class, NameForm::new)
+                .buildMultiSession();
+        CompletableFuture<Map<String, Object>> session = engine.startSession("NAME", terminal);
+        Assert.assertTrue(prompted.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, engine.getActiveSessionCount());
+        engine.close();
+        try {
+            session.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        }
+        catch (ExecutionException ex) {
+            Assert.assertEquals("Interrupted", ex.getCause().getMessage());
+        }
+        // The terminal is closed by the time the session completes
+        Assert.assertEquals(0, closed.getCount());
+        Assert.assertEquals(0, engine.getActiveSessionCount());
+        try {
+            engine.startSession("NAME", Console.scripted(Collections.emptyIterator(), (PrintStream) null));
+            Assert.fail();
+        }
+        catch (IllegalStateException ex) {
+            Assert.assertEquals("Engine is closed.", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testSessionThreads() throws Exception {
+        Thread[] sessionThread = new Thread[1];
+        MultiSessionEngine engine = FormEngine.newBuilder()
+                .addForms(new AbstractForm("THREAD") {
+                    @Override
+                    public List<Element> create(Map<String, Object> context) {
+                        return Collections.singletonList(new InputElement(false, "> ", (input, ctx, console) -> {
+                            sessionThread[0] = Thread.currentThread();
+                            return FormAction.exit();
+                        }));
+                    }
+                })
+                .buildMultiSession();
+        engine.startSession("THREAD", Console.scripted(Collections.singletonList("q").iterator(), null))
+                .get(10, TimeUnit.SECONDS);
+        Assert.assertTrue(sessionThread[0].getName().startsWith("cliform-session-"));
+        Assert.assertTrue(sessionThread[0].isDaemon());
+        if (engine.isVirtualThreads()) {
+            Assert.assertEquals(true, Thread.class.getMethod("isVirtual").invoke(sessionThread[0]));
+        }
+        engine.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAsyncOutputRejected() {
+        FormEngine.newBuilder()
+                .addForm(NameForm.class, NameForm::new)
+                .setAsyncOutput(16, OverflowPolicy.BLOCK)
+                .buildMultiSession();
+    }
+
+    public static class NameForm extends AbstractForm {
+        private int answers = 0;
+
+        public NameForm() {
+            super("NAME");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Arrays.asList(
+                    new TextElement("Hello " + context.getOrDefault("name", "stranger")),
+                    new InputElement(false, "Name: ", (input, ctx, console) -> {
+                        if ("q".equals(input)) {
+                            return FormAction.exit();
+                        }
+                        answers++;
+                        ctx.put("name", input);
+                        ctx.put("answers", answers);
+                        return FormAction.goTo("NAME");
+                    }));
+        }
+    }
+}
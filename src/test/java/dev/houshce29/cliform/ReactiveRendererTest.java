@@ -0,0 +1,147 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.ReactiveElement;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReactiveRendererTest {
+    private AtomicLong lines;
+    private Console console;
+    private Map<String, Object> context;
+    private ReactiveRenderer renderer;
+
+    @Before
+    public void beforeEach() {
+        lines = new AtomicLong();
+        console = Mockito.mock(Console.class);
+        Mockito.when(console.getLinesWritten()).thenAnswer(invocation -> lines.get());
+        Mockito.when(console.getRows()).thenReturn(24);
+        context = new HashMap<>();
+        context.put("count", 1);
+        renderer = new ReactiveRenderer();
+    }
+
+    @Test
+    public void testRefreshRewritesChangedElement() {
+        render(new CountElement("Count: "));
+        // Something else
+        lines.incrementAndGet();
+        Object[] before = renderer.snapshot(context);
+        context.put("count", 2);
+        Assert.assertEquals(1, renderer.refresh(before, context, console));
+        Mockito.verify(console).rewriteLines(2, "Count: 2");
+    }
+
+    @Test
+    public void testRefreshIgnoresUnchangedValues() {
+        render(new CountElement("Count: "));
+        Object[] before = renderer.snapshot(context);
+        context.put("count", 1);
+        context.put("other", "value");
+        Assert.assertEquals(0, renderer.refresh(before, context, console));
+    }
+
+    @Test
+    public void testRefreshIgnoresChangedLineCount() {
+        render(new CountElement("Count: "));
+        Object[] before = renderer.snapshot(context);
+        context.put("count", "2\n3");
+        Assert.assertEquals(0, renderer.refresh(before, context, console));
+        Mockito.verify(console, Mockito.never()).rewriteLines(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    @Test
+    public void testRefreshTracksLatestText() {
+        render(new CountElement("Count: "));
+        Object[] before = renderer.snapshot(context);
+        context.put("count", 2);
+        Assert.assertEquals(1, renderer.refresh(before, context, console));
+        // Changing back is a change from what's on screen now
+        before = renderer.snapshot(context);
+        context.put("count", 1);
+        Assert.assertEquals(1, renderer.refresh(before, context, console));
+    }
+
+    @Test
+    public void testRefreshSkipsScrolledElement() {
+        render(new CountElement("Count: "));
+        // Pushes the element one line past the top of the screen
+        lines.addAndGet(23);
+        Object[] before = renderer.snapshot(context);
+        context.put("count", 2);
+        Assert.assertEquals(0, renderer.refresh(before, context, console));
+        Mockito.verify(console, Mockito.never()).rewriteLines(Mockito.anyLong(), Mockito.anyString());
+    }
+
+    @Test
+    public void testRefreshTopRow() {
+        render(new CountElement("Count: "));
+        lines.addAndGet(22);
+        Object[] before = renderer.snapshot(context);
+        context.put("count", 2);
+        Assert.assertEquals(1, renderer.refresh(before, context, console));
+        Mockito.verify(console).rewriteLines(23, "Count: 2");
+    }
+
+    @Test
+    public void testRefreshSkippedWhenHeightUnknown() {
+        Mockito.when(console.getRows()).thenReturn(0);
+        render(new CountElement("Count: "));
+        Object[] before = renderer.snapshot(context);
+        context.put("count", 2);
+        Assert.assertEquals(0, renderer.refresh(before, context, console));
+    }
+
+    @Test
+    public void testReset() {
+        render(new CountElement("Count: "));
+        renderer.reset();
+        Assert.assertNull(renderer.snapshot(context));
+        Assert.assertEquals(0, renderer.refresh(null, context, console));
+    }
+
+    private void render(CountElement element) {
+        long line = console.getLinesWritten();
+        element.render(context, console);
+        lines.addAndGet(element.getText().split("\n", -1).length);
+        renderer.track(element, line, console);
+    }
+
+    private static final class CountElement implements ReactiveElement {
+        private final String label;
+        private String text;
+
+        private CountElement(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public void render(Map<String, Object> context, Console console) {
+            text = renderText(context);
+        }
+
+        @Override
+        public Collection<String> getContextKeys() {
+            return Collections.singleton("count");
+        }
+
+        @Override
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String renderText(Map<String, Object> context) {
+            return label + context.get("count");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.FormAction;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TranscriptRecorderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        long before = System.currentTimeMillis();
+        try (TranscriptRecorder recorder = TranscriptRecorder.open(file)) {
+            recorder.onFormStart("NAME", Collections.emptyMap());
+            recorder.onOutput("Enter a name");
+            recorder.onOutput("\n");
+            recorder.onPrompt("Name: ", false);
+            recorder.onInput("Z\u00fcrich \u2603", false);
+            recorder.onAction("NAME", FormAction.goTo("CONFIRM"));
+            recorder.onPrompt("Password: ", true);
+            recorder.onInput("secret", true);
+            recorder.onAction("CONFIRM", FormAction.noop());
+            recorder.onOutput("Bye");
+            Assert.assertEquals(8, recorder.getEventCount());
+        }
+        try (TranscriptReader reader = TranscriptReader.open(file)) {
+            Assert.assertTrue(reader.getStartTime() >= before);
+            Assert.assertEquals(Arrays.asList(
+                    "FORM \"NAME\"",
+                    "OUTPUT \"Enter a name\\n\"",
+                    "PROMPT \"Name: \"",
+                    "INPUT \"Z\u00fcrich \u2603\"",
+                    "ACTION \"FLOW_TO_FORM:CONFIRM\"",
+                    "PROMPT \"Password: \"",
+                    "MASKED_INPUT \"\"",
+                    "ACTION \"NOOP\"",
+                    "OUTPUT \"Bye\""), describe(reader));
+            Assert.assertFalse(reader.isTruncated());
+        }
+    }
+
+    @Test
+    public void testRecordPasswords() throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        try (TranscriptRecorder recorder = TranscriptRecorder.open(file).setRecordPasswords(true)) {
+            recorder.onInput("secret", true);
+        }
+        try (TranscriptReader reader = TranscriptReader.open(file)) {
+            Assert.assertEquals(Collections.singletonList("INPUT \"secret\""), describe(reader));
+        }
+    }
+
+    @Test
+    public void testManyEvents() throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        char[] large = new char[200_000];
+        Arrays.fill(large, 'x');
+        try (TranscriptRecorder recorder = TranscriptRecorder.open(file)) {
+            for (int i = 0; i < 10_000; i++) {
+                recorder.onInput("input " + i, false);
+            }
+            recorder.onOutput(new String(large));
+            recorder.onStop(Collections.emptyMap());
+        }
+        try (TranscriptReader reader = TranscriptReader.open(file)) {
+            long micros = 0;
+            for (int i = 0; i < 10_000; i++) {
+                TranscriptEvent event = reader.next();
+                Assert.assertEquals("input " + i, event.getText());
+                Assert.assertTrue(event.getMicros() >= micros);
+                micros = event.getMicros();
+            }
+            Assert.assertEquals(new String(large), reader.next().getText());
+            Assert.assertEquals(TranscriptEvent.Type.STOP, reader.next().getType());
+            Assert.assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testTruncated() throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        try (TranscriptRecorder recorder = TranscriptRecorder.open(file)) {
+            recorder.onPrompt("Name: ", false);
+            recorder.onInput("Alice", false);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        try (TranscriptReader reader = TranscriptReader.from(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 2)))) {
+            Assert.assertEquals(Collections.singletonList("PROMPT \"Name: \""), describe(reader));
+            Assert.assertTrue(reader.isTruncated());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotATranscript() {
+        TranscriptReader.from(new ByteArrayInputStream("Hello, world".getBytes()));
+    }
+
+    @Test
+    public void testWriteFailure() {
+        TranscriptRecorder recorder = TranscriptRecorder.to(new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 1);
+        // The writer keeps taking events after failing, so recording never blocks
+        for (int i = 0; i < 100; i++) {
+            recorder.onInput("input", false);
+        }
+        try {
+            recorder.close();
+            Assert.fail();
+        }
+        catch (UncheckedIOException ex) {
+            Assert.assertEquals("Disk full", ex.getCause().getMessage());
+        }
+        // Closing again, or recording after closing, does nothing
+        recorder.onInput("input", false);
+        recorder.close();
+    }
+
+    private static List<String> describe(TranscriptReader reader) {
+        List<String> events = new ArrayList<>();
+        reader.forEachRemaining(event -> events.add(event.toString()));
+        return events;
+    }
+}
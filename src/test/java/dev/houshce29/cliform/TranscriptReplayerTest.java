@@ -0,0 +1,141 @@
+package dev.houshce29.cliform;
+
+import dev.houshce29.cliform.core.AbstractForm;
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.InputElement;
+import dev.houshce29.cliform.core.TextElement;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TranscriptReplayerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplay() throws Exception {
+        Path transcript = record("Saved", "Alice", "secret", "Bob", "hunter2", "q");
+        TranscriptReplayer.Result result = TranscriptReplayer.of(newEngine("Saved")).replay(transcript);
+        Assert.assertFalse(result.getDivergences().toString(), result.isDiverged());
+        Assert.assertEquals(Arrays.asList("NAME", "PASSWORD", "NAME", "PASSWORD", "NAME"),
+                result.getRun().getFormPath());
+        Assert.assertEquals("Bob", result.getRun().getContext().get("name"));
+        Assert.assertEquals(5, result.getRun().getInputsRead());
+        // Start, prompt, input and action of each form, the output of the name forms, and the stop
+        Assert.assertEquals(24, result.getEventsCompared());
+    }
+
+    @Test
+    public void testTextDivergence() throws Exception {
+        Path transcript = record("Saved", "Alice", "secret", "q");
+        TranscriptReplayer.Result result = TranscriptReplayer.of(newEngine("Stored")).replay(transcript);
+        Assert.assertEquals(1, result.getDivergences().size());
+        TranscriptReplayer.Divergence divergence = result.getDivergences().get(0);
+        Assert.assertEquals(TranscriptEvent.Type.OUTPUT, divergence.getExpected().getType());
+        Assert.assertEquals("Saved Alice\nEnter a name\n", divergence.getExpected().getText());
+        Assert.assertEquals("Stored Alice\nEnter a name\n", divergence.getActual().getText());
+        // Replay carries on past a difference in text
+        Assert.assertEquals(Arrays.asList("NAME", "PASSWORD", "NAME"), result.getRun().getFormPath());
+    }
+
+    @Test
+    public void testFlowDivergence() throws Exception {
+        Path transcript = record("Saved", "Alice", "secret", "q");
+        FormEngine.Builder builder = FormEngine.newBuilder()
+                .addForms(new NameForm(), new PasswordForm("Saved") {
+                    @Override
+                    public List<Element> create(Map<String, Object> context) {
+                        return Collections.singletonList(
+                                new InputElement(true, "Password: ", (input, ctx, console) -> FormAction.exit()));
+                    }
+                });
+        TranscriptReplayer.Result result = TranscriptReplayer.of(builder).replay(transcript);
+        Assert.assertEquals(2, result.getDivergences().size());
+        Assert.assertEquals("ACTION \"FLOW_TO_FORM:NAME\"", result.getDivergences().get(0).getExpected().toString());
+        Assert.assertEquals("ACTION \"EXIT\"", result.getDivergences().get(0).getActual().toString());
+        TranscriptReplayer.Divergence stop = result.getDivergences().get(1);
+        Assert.assertEquals(TranscriptEvent.Type.FORM, stop.getExpected().getType());
+        Assert.assertEquals(TranscriptEvent.Type.STOP, stop.getActual().getType());
+    }
+
+    @Test
+    public void testTranscriptLongerThanReplay() throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        try (TranscriptRecorder recorder = TranscriptRecorder.open(file)) {
+            HeadlessRunner.of(newEngine("Saved").addListener(recorder))
+                    .run("NAME", Arrays.asList("Alice", "secret", "q").iterator());
+            recorder.onFormStart("NAME", Collections.emptyMap());
+        }
+        TranscriptReplayer.Result result = TranscriptReplayer.of(newEngine("Saved")).replay(file);
+        Assert.assertEquals(1, result.getDivergences().size());
+        Assert.assertEquals("FORM \"NAME\"", result.getDivergences().get(0).getExpected().toString());
+        Assert.assertNull(result.getDivergences().get(0).getActual());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoForm() throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        TranscriptRecorder.open(file).close();
+        TranscriptReplayer.of(newEngine("Saved")).replay(file);
+    }
+
+    private Path record(String savedText, String... script) throws Exception {
+        Path file = folder.newFile("session.clft").toPath();
+        try (TranscriptRecorder recorder = TranscriptRecorder.open(file)) {
+            HeadlessRunner.of(newEngine(savedText).addListener(recorder))
+                    .run("NAME", Arrays.asList(script).iterator());
+        }
+        return file;
+    }
+
+    private static FormEngine.Builder newEngine(String savedText) {
+        return FormEngine.newBuilder()
+                .addForms(new NameForm(), new PasswordForm(savedText));
+    }
+
+    private static class NameForm extends AbstractForm {
+        NameForm() {
+            super("NAME");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Arrays.asList(
+                    new TextElement(context.containsKey("saved") ? context.get("saved").toString() : "New"),
+                    new TextElement("Enter a name"),
+                    new InputElement(false, "Name: ", (input, ctx, console) -> {
+                        if ("q".equals(input)) {
+                            return FormAction.exit();
+                        }
+                        ctx.put("name", input);
+                        return FormAction.goTo("PASSWORD");
+                    }));
+        }
+    }
+
+    private static class PasswordForm extends AbstractForm {
+        private final String savedText;
+
+        PasswordForm(String savedText) {
+            super("PASSWORD");
+            this.savedText = savedText;
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Collections.singletonList(
+                    new InputElement(true, "Password: ", (input, ctx, console) -> {
+                        ctx.put("saved", savedText + " " + ctx.get("name"));
+                        return FormAction.goTo("NAME");
+                    }));
+        }
+    }
+}
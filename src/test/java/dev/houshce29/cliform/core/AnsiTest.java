@@ -0,0 +1,51 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class AnsiTest {
+
+    @Test
+    public void testSupportedTerm() {
+        Assert.assertTrue(Ansi.isSupported(true, env("TERM", "xterm-256color"), "Linux"));
+    }
+
+    @Test
+    public void testDumbTerm() {
+        Assert.assertFalse(Ansi.isSupported(true, env("TERM", "dumb"), "Linux"));
+        Assert.assertFalse(Ansi.isSupported(true, env("TERM", ""), "Linux"));
+    }
+
+    @Test
+    public void testNotInteractive() {
+        Assert.assertFalse(Ansi.isSupported(false, env("TERM", "xterm"), "Linux"));
+    }
+
+    @Test
+    public void testNoTerm() {
+        Assert.assertFalse(Ansi.isSupported(true, Collections.emptyMap(), "Linux"));
+    }
+
+    @Test
+    public void testWindows() {
+        Assert.assertFalse(Ansi.isSupported(true, Collections.emptyMap(), "Windows 10"));
+        Assert.assertTrue(Ansi.isSupported(true, env("WT_SESSION", "id"), "Windows 10"));
+        Assert.assertTrue(Ansi.isSupported(true, env("ConEmuANSI", "ON"), "Windows 10"));
+    }
+
+    @Test
+    public void testCursorUp() {
+        Assert.assertEquals(Ansi.ESC + "[3A", Ansi.cursorUp(3));
+        Assert.assertEquals("", Ansi.cursorUp(0));
+    }
+
+    private static Map<String, String> env(String key, String value) {
+        Map<String, String> env = new HashMap<>();
+        env.put(key, value);
+        return env;
+    }
+}
@@ -0,0 +1,273 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncWriterTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AsyncWriter writer;
+
+    @After
+    public void afterEach() {
+        release.countDown();
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void testWritesInOrder() {
+        writer = new AsyncWriter(TextSink.of(new PrintStream(bytes)), 4, OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            writer.write(i + ",");
+        }
+        writer.flush();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i).append(',');
+        }
+        Assert.assertEquals(expected.toString(), bytes.toString());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        writer = new AsyncWriter(TextSink.of(stalledStream()), 2, OverflowPolicy.DROP_OLDEST);
+        writer.write("a");
+        // Wait for the writer to be stuck writing "a"
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        writer.write("b", true);
+        writer.write("c", true);
+        writer.write("d", true);
+        Assert.assertEquals(1, writer.getDroppedCount());
+        release.countDown();
+        writer.flush();
+        Assert.assertEquals("acd", bytes.toString());
+    }
+
+    @Test
+    public void testDropOldestOnlyDropsDroppable() throws Exception {
+        writer = new AsyncWriter(TextSink.of(stalledStream()), 2, OverflowPolicy.DROP_OLDEST);
+        writer.write("a");
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        writer.write("b");
+        writer.write("c", true);
+        writer.write("d", true);
+        Assert.assertEquals(1, writer.getDroppedCount());
+        release.countDown();
+        writer.flush();
+        Assert.assertEquals("abd", bytes.toString());
+    }
+
+    @Test
+    public void testDropOldestWaitsWhenNothingDroppable() throws Exception {
+        writer = new AsyncWriter(TextSink.of(stalledStream()), 1, OverflowPolicy.DROP_OLDEST);
+        writer.write("a");
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        writer.write("b");
+        Thread blocked = new Thread(() -> writer.write("c", true));
+        blocked.start();
+        blocked.join(100);
+        Assert.assertTrue(blocked.isAlive());
+        release.countDown();
+        blocked.join(5000);
+        Assert.assertFalse(blocked.isAlive());
+        writer.flush();
+        Assert.assertEquals(0, writer.getDroppedCount());
+        Assert.assertEquals("abc", bytes.toString());
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        writer = new AsyncWriter(TextSink.of(stalledStream()), 2, OverflowPolicy.COALESCE);
+        writer.write("a");
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        writer.write("b");
+        writer.write("c");
+        writer.write("d");
+        Assert.assertEquals(0, writer.getDroppedCount());
+        release.countDown();
+        writer.flush();
+        Assert.assertEquals("abcd", bytes.toString());
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        writer = new AsyncWriter(TextSink.of(stalledStream()), 1, OverflowPolicy.BLOCK);
+        writer.write("a");
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        writer.write("b");
+        Thread blocked = new Thread(() -> writer.write("c"));
+        blocked.start();
+        blocked.join(100);
+        Assert.assertTrue(blocked.isAlive());
+        release.countDown();
+        blocked.join(5000);
+        Assert.assertFalse(blocked.isAlive());
+        writer.flush();
+        Assert.assertEquals("abc", bytes.toString());
+    }
+
+    @Test
+    public void testCoalesceMany() throws Exception {
+        writer = new AsyncWriter(TextSink.of(stalledStream()), 1, OverflowPolicy.COALESCE);
+        writer.write("a");
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        StringBuilder expected = new StringBuilder("a");
+        for (int i = 0; i < 10_000; i++) {
+            writer.write("b");
+            expected.append('b');
+        }
+        release.countDown();
+        writer.flush();
+        Assert.assertEquals(expected.toString(), bytes.toString());
+    }
+
+    @Test
+    public void testFailureIsThrownByNextFlush() {
+        UncheckedIOException failure = new UncheckedIOException(new IOException("Broken pipe"));
+        boolean[] fail = {true};
+        writer = new AsyncWriter(new TextSink() {
+            @Override
+            public void write(String text) {
+                if (fail[0]) {
+                    throw failure;
+                }
+                bytes.write(text.getBytes(StandardCharsets.UTF_8), 0, text.length());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4, OverflowPolicy.BLOCK);
+        writer.write("a");
+        try {
+            writer.flush();
+            Assert.fail();
+        }
+        catch (UncheckedIOException ex) {
+            Assert.assertSame(failure, ex);
+        }
+        // Only thrown once
+        fail[0] = false;
+        writer.write("b");
+        writer.flush();
+        Assert.assertEquals("b", bytes.toString());
+    }
+
+    @Test(timeout = 10_000)
+    public void testErrorIsThrownByNextFlush() {
+        InternalError failure = new InternalError("Sink failed");
+        boolean[] fail = {true};
+        writer = new AsyncWriter(new TextSink() {
+            @Override
+            public void write(String text) {
+                if (fail[0]) {
+                    throw failure;
+                }
+                bytes.write(text.getBytes(StandardCharsets.UTF_8), 0, text.length());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4, OverflowPolicy.BLOCK);
+        writer.write("a");
+        try {
+            writer.flush();
+            Assert.fail();
+        }
+        catch (InternalError ex) {
+            Assert.assertSame(failure, ex);
+        }
+        // The thread carries on writing
+        fail[0] = false;
+        writer.write("b");
+        writer.flush();
+        Assert.assertEquals("b", bytes.toString());
+    }
+
+    @Test
+    public void testThreadStopsWhenIdle() throws Exception {
+        Thread[] thread = new Thread[1];
+        writer = new AsyncWriter(new TextSink() {
+            @Override
+            public void write(String text) {
+                thread[0] = Thread.currentThread();
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4, OverflowPolicy.BLOCK);
+        writer.write("a");
+        writer.flush();
+        Assert.assertEquals("cliform-console-writer", thread[0].getName());
+        Thread first = thread[0];
+        first.join(10_000);
+        Assert.assertFalse(first.isAlive());
+        // Writing again starts a new thread
+        writer.write("b");
+        writer.flush();
+        Assert.assertNotSame(first, thread[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriteAfterClose() {
+        writer = new AsyncWriter(TextSink.of(new PrintStream(bytes)), 1, OverflowPolicy.BLOCK);
+        writer.close();
+        writer.write("a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new AsyncWriter(TextSink.of(new PrintStream(bytes)), 0, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @return A stream that holds up the first write until released.
+     */
+    private PrintStream stalledStream() {
+        return new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                bytes.write(b, off, len);
+            }
+        });
+    }
+}
@@ -0,0 +1,159 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+public class ChannelOutputTest {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private int writes = 0;
+
+    @Test
+    public void testWritesOnFlush() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 64);
+        output.write("Hello, ");
+        output.write("world");
+        Assert.assertEquals(0, writes);
+        output.flush();
+        Assert.assertEquals(1, writes);
+        Assert.assertEquals("Hello, world", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWritesWhenBufferFills() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 16);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            text.append("0123456789");
+        }
+        output.write(text.toString());
+        output.flush();
+        Assert.assertEquals(7, writes);
+        Assert.assertEquals(text.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSurrogatePairSplitAcrossWrites() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 16);
+        String pair = "\ud83d\ude00";
+        output.write("a" + pair.charAt(0));
+        output.write(pair.charAt(1) + "b");
+        output.flush();
+        Assert.assertEquals("a" + pair + "b", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEncoded() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 16);
+        String literal = "Static caf\u00e9";
+        output.write("> ");
+        output.writeEncoded(literal.getBytes(StandardCharsets.UTF_8));
+        output.write("!");
+        output.flush();
+        Assert.assertEquals("> " + literal + "!", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEncodedLargerThanBuffer() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 16);
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            literal.append("0123456789");
+        }
+        output.write("a");
+        output.writeEncoded(literal.toString().getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        // What was buffered, then the literal straight from its bytes
+        Assert.assertEquals(2, writes);
+        Assert.assertEquals("a" + literal, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testWriteEncodedAfterHalfSurrogatePair() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 16);
+        String pair = "\ud83d\ude00";
+        output.write("a" + pair.charAt(0));
+        output.write(String.valueOf(pair.charAt(1)));
+        output.writeEncoded("b".getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        Assert.assertEquals("a" + pair + "b", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertTrue(output.isUtf8());
+        Assert.assertFalse(new ChannelOutput(channel(), StandardCharsets.ISO_8859_1, 16).isUtf8());
+    }
+
+    @Test
+    public void testSetBufferSize() {
+        ChannelOutput output = new ChannelOutput(channel(), StandardCharsets.UTF_8, 16);
+        output.write("a");
+        output.setBufferSize(1024);
+        Assert.assertEquals(1, writes);
+        for (int i = 0; i < 50; i++) {
+            output.write("0123456789");
+        }
+        output.flush();
+        Assert.assertEquals(2, writes);
+    }
+
+    @Test
+    public void testNonBlockingChannelRejected() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.sink().configureBlocking(false);
+            new ChannelOutput(pipe.sink(), StandardCharsets.UTF_8, 16);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException ex) {
+            Assert.assertEquals("Output channel must be in blocking mode.", ex.getMessage());
+        }
+        finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    @Test
+    public void testBlockingPipe() throws Exception {
+        Pipe pipe = Pipe.open();
+        try {
+            ChannelOutput output = new ChannelOutput(pipe.sink(), StandardCharsets.UTF_8, 16);
+            output.write("piped");
+            output.flush();
+            ByteBuffer read = ByteBuffer.allocate(16);
+            while (read.position() < 5) {
+                pipe.source().read(read);
+            }
+            Assert.assertEquals("piped", new String(read.array(), 0, read.position(), StandardCharsets.UTF_8));
+        }
+        finally {
+            pipe.sink().close();
+            pipe.source().close();
+        }
+    }
+
+    private WritableByteChannel channel() {
+        WritableByteChannel channel = Channels.newChannel(bytes);
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws java.io.IOException {
+                writes++;
+                return channel.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws java.io.IOException {
+                channel.close();
+            }
+        };
+    }
+}
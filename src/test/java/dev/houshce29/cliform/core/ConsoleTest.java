@@ -1,13 +1,21 @@
 package dev.houshce29.cliform.core;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 
 public class ConsoleTest {
     private PrintStream out;
@@ -48,4 +56,332 @@ public class ConsoleTest {
         Assert.assertEquals(input, output);
         Mockito.verify(out).print((Object) "Prompt: ");
     }
+
+    @Test
+    public void testLinesWritten() {
+        console = new Console(out, new ByteArrayInputStream("answer\n".getBytes()), System.console());
+        console.writeLine("a\nb");
+        console.write("c");
+        console.newLine();
+        console.writeLines(1, 2);
+        console.prompt("Prompt: ");
+        Assert.assertEquals(6, console.getLinesWritten());
+    }
+
+    @Test
+    public void testRewriteLines() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console());
+        console.rewriteLines(3, "a\nb");
+        Mockito.verify(out).print((Object) (Ansi.SAVE_CURSOR + Ansi.cursorUp(3) + "\r"
+                + Ansi.ERASE_LINE + "a\n" + Ansi.ERASE_LINE + "b" + Ansi.RESTORE_CURSOR));
+        Assert.assertEquals(0, console.getLinesWritten());
+    }
+
+    @Test
+    public void testRewindLines() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console());
+        console.writeLines("a", "b", "c");
+        console.rewindLines(2);
+        Mockito.verify(out).print((Object) (Ansi.cursorUp(2) + "\r" + Ansi.ERASE_BELOW));
+        Assert.assertEquals(1, console.getLinesWritten());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRewindTooFar() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console());
+        console.writeLine("a");
+        console.rewindLines(2);
+    }
+
+    @Test
+    public void testFrameBuffer() {
+        console = new Console(out, new ByteArrayInputStream("answer\n".getBytes()), System.console());
+        console.setFrameBufferSize(1024);
+        console.writeLine("a");
+        console.newLine();
+        console.write("b");
+        Mockito.verify(out, Mockito.never()).print(Mockito.any(Object.class));
+        Mockito.verify(out, Mockito.never()).println(Mockito.any(Object.class));
+        console.prompt("Prompt: ");
+        String separator = System.lineSeparator();
+        Mockito.verify(out).print((Object) ("a" + separator + separator + "bPrompt: "));
+        Assert.assertEquals(3, console.getLinesWritten());
+    }
+
+    @Test
+    public void testFrameBufferFlushesWhenFull() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console());
+        console.setFrameBufferSize(4);
+        console.write("ab");
+        Mockito.verify(out, Mockito.never()).print(Mockito.any(Object.class));
+        console.write("cdef");
+        Mockito.verify(out).print((Object) "abcdef");
+        console.write("g");
+        console.close();
+        Mockito.verify(out).print((Object) "g");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeFrameBufferSize() {
+        new Console(out, new ByteArrayInputStream(new byte[0]), System.console()).setFrameBufferSize(-1);
+    }
+
+    @Test
+    public void testAnsiClear() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console(), true);
+        console.writeLine("a");
+        console.clear();
+        Mockito.verify(out).print((Object) (Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN));
+        Assert.assertEquals(0, console.getLinesWritten());
+    }
+
+    @Test
+    public void testAnsiClearIsBuffered() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console(), true);
+        console.setFrameBufferSize(1024);
+        console.clear();
+        console.write("Title");
+        console.flush();
+        Mockito.verify(out).print((Object) (Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN + "Title"));
+    }
+
+    @Test
+    public void testEraseLine() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console(), true);
+        console.eraseLine();
+        Mockito.verify(out).print((Object) ("\r" + Ansi.ERASE_LINE));
+    }
+
+    @Test
+    public void testEraseLineWithoutAnsi() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console());
+        console.eraseLine();
+        console.cursorHome();
+        Mockito.verify(out).print((Object) "\r");
+        Mockito.verifyNoMoreInteractions(out);
+    }
+
+    @Test
+    public void testDifferentialRendering() {
+        Assume.assumeTrue(System.getenv("LINES") == null && System.getenv("COLUMNS") == null);
+        System.setProperty(Screen.ROWS_PROPERTY, "24");
+        System.setProperty(Screen.COLUMNS_PROPERTY, "80");
+        try {
+            console = new Console(out, new ByteArrayInputStream("x\ny\n".getBytes()), System.console(), true);
+            console.setFrameBufferSize(1024).setDifferentialRendering(true);
+        }
+        finally {
+            System.clearProperty(Screen.ROWS_PROPERTY);
+            System.clearProperty(Screen.COLUMNS_PROPERTY);
+        }
+        String separator = System.lineSeparator();
+        // Nothing is known of the screen at first
+        console.clear();
+        console.writeLines("Title", "A", "B");
+        console.prompt("> ");
+        Mockito.verify(out).print((Object) (Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN
+                + "Title" + separator + "A" + separator + "B" + separator + "> "));
+        console.clear();
+        console.writeLines("Title", "A", "C");
+        console.prompt("> ");
+        Mockito.verify(out).print((Object) (Ansi.ESC + "[3;1H" + Ansi.ERASE_LINE + "C"
+                + Ansi.ESC + "[4;1H" + Ansi.ERASE_LINE + "> " + Ansi.ERASE_BELOW));
+    }
+
+    @Test
+    public void testDifferentialRenderingWithUnknownSize() {
+        Assume.assumeTrue(System.getenv("LINES") == null && System.getenv("COLUMNS") == null);
+        console = new Console(out, new ByteArrayInputStream("x\ny\n".getBytes()), System.console(), true);
+        console.setFrameBufferSize(1024).setDifferentialRendering(true);
+        String separator = System.lineSeparator();
+        console.clear();
+        console.writeLines("Title", "A");
+        console.prompt("> ");
+        console.clear();
+        console.writeLines("Title", "B");
+        console.prompt("> ");
+        // Without a size, every frame is drawn in full
+        Mockito.verify(out).print((Object) (Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN
+                + "Title" + separator + "B" + separator + "> "));
+    }
+
+    @Test
+    public void testDifferentialRenderingWithTerminalSize() {
+        Assume.assumeTrue(System.getenv("LINES") == null && System.getenv("COLUMNS") == null);
+        console = new Console(out, new ByteArrayInputStream("x\ny\n".getBytes()), System.console(), true);
+        // Sized after the fact, as with a size that's only known later
+        console.setFrameBufferSize(1024).setDifferentialRendering(true).setTerminalSize(24, 80);
+        console.clear();
+        console.writeLines("Title", "A", "B");
+        console.prompt("> ");
+        console.clear();
+        console.writeLines("Title", "A", "C");
+        console.prompt("> ");
+        Mockito.verify(out).print((Object) (Ansi.ESC + "[3;1H" + Ansi.ERASE_LINE + "C"
+                + Ansi.ESC + "[4;1H" + Ansi.ERASE_LINE + "> " + Ansi.ERASE_BELOW));
+    }
+
+    @Test
+    public void testTerminalSize() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console(), true);
+        console.setTerminalSize(30, 100);
+        Assert.assertEquals(30, console.getRows());
+        console.setTerminalSize(0, 0);
+        Assert.assertEquals(0, console.getRows());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTerminalSize() {
+        new Console(out, new ByteArrayInputStream(new byte[0]), System.console()).setTerminalSize(24, -1);
+    }
+
+    @Test
+    public void testAsyncOutputIsWrittenBeforePrompt() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        console = new Console(new PrintStream(bytes), new ByteArrayInputStream("x\n".getBytes()), System.console());
+        console.setAsyncOutput(8, OverflowPolicy.BLOCK);
+        console.writeLine("a");
+        console.write("b");
+        console.prompt("> ");
+        String separator = System.lineSeparator();
+        Assert.assertEquals("a" + separator + "b> ", bytes.toString());
+        console.close();
+    }
+
+    @Test
+    public void testDropOldestKeepsForm() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream slow = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    Thread.sleep(2);
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                bytes.write(b, off, len);
+            }
+        });
+        console = new Console(slow, new ByteArrayInputStream("x\n".getBytes()), System.console());
+        console.setAsyncOutput(2, OverflowPolicy.DROP_OLDEST);
+        // A form much taller than the buffer
+        for (int i = 0; i < 30; i++) {
+            console.writeLine("line " + i);
+        }
+        console.prompt("> ");
+        // Then a handler that outpaces the terminal
+        for (int i = 0; i < 50; i++) {
+            console.writeLine("progress " + i);
+        }
+        console.flush();
+        String separator = System.lineSeparator();
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            form.append("line ").append(i).append(separator);
+        }
+        form.append("> ");
+        String output = bytes.toString();
+        Assert.assertTrue(output.startsWith(form.toString()));
+        String[] progress = output.substring(form.length()).split(separator);
+        Assert.assertEquals(50 - console.getDroppedWrites(), progress.length);
+        console.close();
+    }
+
+    @Test
+    public void testChannels() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        console = Console.fromChannels(
+                Channels.newChannel(new ByteArrayInputStream("caf\u00e9\r\nnext\n".getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(bytes),
+                StandardCharsets.UTF_8);
+        console.writeLine("Title");
+        Assert.assertEquals(0, bytes.size());
+        Assert.assertEquals("caf\u00e9", console.prompt("> "));
+        Assert.assertEquals("Title" + System.lineSeparator() + "> ",
+                new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        Assert.assertEquals("next", console.prompt(""));
+        console.close();
+    }
+
+    @Test
+    public void testChannelFrameIsBufferedAsBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int[] writes = { 0 };
+        WritableByteChannel channel = Channels.newChannel(bytes);
+        console = Console.fromChannels(
+                Channels.newChannel(new ByteArrayInputStream("x\n".getBytes(StandardCharsets.UTF_8))),
+                new WritableByteChannel() {
+                    @Override
+                    public int write(ByteBuffer src) throws IOException {
+                        writes[0]++;
+                        return channel.write(src);
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return true;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                },
+                StandardCharsets.UTF_8);
+        console.setFrameBufferSize(64 * 1024);
+        Assert.assertTrue(console.isEncodedOutput());
+        byte[][] literals = { "=== ".getBytes(StandardCharsets.UTF_8), " ===".getBytes(StandardCharsets.UTF_8) };
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            console.writeEncodedLine("=== Menu " + i + " ===", literals, new String[] { "Menu " + i });
+            expected.append("=== Menu ").append(i).append(" ===").append(System.lineSeparator());
+        }
+        Assert.assertEquals(1000, console.getLinesWritten());
+        console.prompt("> ");
+        Assert.assertEquals(1, writes[0]);
+        Assert.assertEquals(expected + "> ", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodedLineWrittenAsText() {
+        console = new Console(out, new ByteArrayInputStream(new byte[0]), System.console());
+        console.writeEncodedLine("a1b", new byte[][] { { 'a' }, { 'b' } }, new String[] { "1" });
+        Mockito.verify(out).println((Object) "a1b");
+        Assert.assertFalse(console.isEncodedOutput());
+    }
+
+    @Test
+    public void testObservers() {
+        StringBuilder events = new StringBuilder();
+        ConsoleObserver observer = new ConsoleObserver() {
+            @Override
+            public void onOutput(String text) {
+                events.append("out[").append(text).append(']');
+            }
+
+            @Override
+            public void onPrompt(String message, boolean obscured) {
+                events.append("prompt[").append(message).append(']');
+            }
+
+            @Override
+            public void onInput(String input, boolean obscured) {
+                events.append("in[").append(input).append(',').append(obscured).append(']');
+            }
+        };
+        console = new Console(out, new ByteArrayInputStream("a\nb\nc\n".getBytes()), null, true)
+                .addObserver(observer);
+        console.writeLine("Title").newLine().write(1).cursorHome();
+        console.prompt("> ");
+        console.promptPassword("? ");
+        console.removeObserver(observer).prompt("> ");
+        Assert.assertEquals("out[Title\n]out[\n]out[1]prompt[> ]in[a,false]prompt[? ]in[b,true]",
+                events.toString());
+        Mockito.verify(out, Mockito.times(2)).print((Object) "> ");
+    }
 }
@@ -0,0 +1,70 @@
+package dev.houshce29.cliform.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Scanner;
+
+/**
+ * Rough benchmark of reading answers fed through standard input, as in
+ * automation: many short lines, some ending with \r\n. Compares the
+ * Scanner that prompts used to read with the line reader.
+ *
+ * Not a unit test; run the main method directly. Arguments are the number
+ * of rounds and the number of lines per round.
+ */
+public class LineReaderBenchmark {
+    private static final String[] ANSWERS = { "y", "John Smith", "42", "", "n\r", "123 Main Street, Springfield" };
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        byte[] input = createInput(lines);
+        for (int round = 1; round <= rounds; round++) {
+            long scannerNanos = runScanner(new ByteArrayInputStream(input), lines);
+            long readerNanos = runLineReader(new ByteArrayInputStream(input), lines);
+            System.out.printf("Round %d: scanner %.1f ns/line, line reader %.1f ns/line%n", round,
+                    (double) scannerNanos / lines, (double) readerNanos / lines);
+        }
+    }
+
+    private static long runScanner(InputStream in, int lines) {
+        long length = 0;
+        long start = System.nanoTime();
+        Scanner scanner = new Scanner(in);
+        for (int i = 0; i < lines; i++) {
+            length += scanner.nextLine().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        keep(length);
+        return elapsed;
+    }
+
+    private static long runLineReader(InputStream in, int lines) {
+        long length = 0;
+        long start = System.nanoTime();
+        LineReader reader = new LineReader(Channels.newChannel(in), Charset.defaultCharset(), 8192);
+        for (int i = 0; i < lines; i++) {
+            length += reader.readLine().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        keep(length);
+        return elapsed;
+    }
+
+    private static byte[] createInput(int lines) {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            input.append(ANSWERS[i % ANSWERS.length]).append('\n');
+        }
+        return input.toString().getBytes(Charset.defaultCharset());
+    }
+
+    private static void keep(long length) {
+        // Keep the results alive
+        if (length < 0) {
+            System.out.println(length);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+public class LineReaderTest {
+
+    @Test
+    public void testReadLines() {
+        LineReader reader = reader("first\nsecond\r\n\nlast", StandardCharsets.UTF_8, 16);
+        Assert.assertEquals("first", reader.readLine());
+        Assert.assertEquals("second", reader.readLine());
+        Assert.assertEquals("", reader.readLine());
+        Assert.assertEquals("last", reader.readLine());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testEndOfInput() {
+        LineReader reader = reader("only\n", StandardCharsets.UTF_8, 16);
+        Assert.assertEquals("only", reader.readLine());
+        reader.readLine();
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longLine.append("line ").append(i).append(' ');
+        }
+        LineReader reader = reader(longLine + "\nnext\n", StandardCharsets.UTF_8, 16);
+        Assert.assertEquals(longLine.toString(), reader.readLine());
+        Assert.assertEquals("next", reader.readLine());
+    }
+
+    @Test
+    public void testMultiByteCharactersAcrossReads() {
+        // Every character is two bytes, so some straddle the buffer boundary
+        String text = "\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9\u00e8\u00ea\u00eb\u00e9";
+        LineReader reader = reader(text + "\n" + text, StandardCharsets.UTF_8, 17);
+        Assert.assertEquals(text, reader.readLine());
+        Assert.assertEquals(text, reader.readLine());
+    }
+
+    @Test
+    public void testCharset() {
+        LineReader reader = reader("caf\u00e9\n", StandardCharsets.ISO_8859_1, 16);
+        Assert.assertEquals("caf\u00e9", reader.readLine());
+    }
+
+    @Test
+    public void testMaxLineLength() {
+        LineReader reader = reader("0123456789\nabc\r\n0123\r\n", StandardCharsets.UTF_8, 16);
+        reader.setMaxLineLength(4);
+        Assert.assertEquals("0123", reader.readLine());
+        Assert.assertEquals("abc", reader.readLine());
+        Assert.assertEquals("0123", reader.readLine());
+    }
+
+    @Test
+    public void testMaxLineLengthAcrossReads() {
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            longLine.append('x');
+        }
+        LineReader reader = reader(longLine + "\nnext", StandardCharsets.UTF_8, 16);
+        reader.setMaxLineLength(10);
+        Assert.assertEquals("xxxxxxxxxx", reader.readLine());
+        Assert.assertEquals("next", reader.readLine());
+    }
+
+    @Test
+    public void testCrLfAcrossReads() {
+        // The \r ends one read and the \n starts the next
+        LineReader reader = reader("0123456789abcde\r\nnext\n", StandardCharsets.UTF_8, 16);
+        Assert.assertEquals("0123456789abcde", reader.readLine());
+        Assert.assertEquals("next", reader.readLine());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxLineLength() {
+        reader("", StandardCharsets.UTF_8, 16).setMaxLineLength(0);
+    }
+
+    private static LineReader reader(String text, Charset charset, int bufferSize) {
+        return new LineReader(Channels.newChannel(new ByteArrayInputStream(text.getBytes(charset))),
+                charset, bufferSize);
+    }
+}
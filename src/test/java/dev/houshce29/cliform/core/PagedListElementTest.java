@@ -0,0 +1,143 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PagedListElementTest {
+    private static final Map<String, Object> CONTEXT = Collections.emptyMap();
+    private Console console;
+
+    @Before
+    public void beforeEach() {
+        console = Mockito.mock(Console.class);
+    }
+
+    @Test
+    public void testRenderFirstPage() {
+        PagedListElement element = new PagedListElement(RowSource.of(Arrays.asList("a", "b", "c")), 2);
+        Mockito.when(console.prompt(Mockito.anyString())).thenReturn("q");
+        FormAction action = element.renderWithAction(CONTEXT, console);
+        Assert.assertEquals(FormAction.Type.NOOP, action.getType());
+        Mockito.verify(console).writeLine("a");
+        Mockito.verify(console).writeLine("b");
+        Mockito.verify(console, Mockito.never()).writeLine("c");
+        Mockito.verify(console).writeLine("Rows 1-2 of 3 (page 1 of 2)");
+    }
+
+    @Test
+    public void testNavigateRepromptsWithNewPage() {
+        PagedListElement element = new PagedListElement(RowSource.of(Arrays.asList("a", "b", "c")), 2);
+        Mockito.when(console.prompt(Mockito.anyString())).thenReturn("n", "n", "p", "2", "x");
+        Assert.assertTrue(element.renderWithAction(CONTEXT, console).repeatPrompt());
+        Assert.assertEquals(1, element.getPage());
+        // Already on the last page
+        Assert.assertTrue(element.renderWithAction(CONTEXT, console).repeatPrompt());
+        Assert.assertEquals(1, element.getPage());
+        Assert.assertTrue(element.renderWithAction(CONTEXT, console).repeatPrompt());
+        Assert.assertEquals(0, element.getPage());
+        Assert.assertTrue(element.renderWithAction(CONTEXT, console).repeatPrompt());
+        Assert.assertEquals(1, element.getPage());
+        Assert.assertTrue(element.renderWithAction(CONTEXT, console).repeatPrompt());
+        Assert.assertEquals(1, element.getPage());
+        Mockito.verify(console, Mockito.atLeastOnce()).writeLine("Rows 3-3 of 3 (page 2 of 2)");
+    }
+
+    @Test
+    public void testNavigatePastEnds() {
+        PagedListElement element = new PagedListElement(RowSource.of(Arrays.asList("a", "b", "c")), 2);
+        Mockito.when(console.prompt(Mockito.anyString())).thenReturn("p", "n", "n", "q");
+        element.renderWithAction(CONTEXT, console);
+        element.renderWithAction(CONTEXT, console);
+        Mockito.verify(console).writeLine("Already on the first page.");
+        element.renderWithAction(CONTEXT, console);
+        element.renderWithAction(CONTEXT, console);
+        Mockito.verify(console).writeLine("Already on the last page.");
+    }
+
+    @Test
+    public void testRewritesPageInPlace() {
+        Mockito.when(console.isAnsi()).thenReturn(true);
+        Mockito.when(console.getRows()).thenReturn(24);
+        AtomicLong lines = countLines(5);
+        PagedListElement element = new PagedListElement(RowSource.of(Arrays.asList("a", "b", "c")), 2);
+        element.renderWithAction(CONTEXT, console);
+        Mockito.verify(console, Mockito.never()).rewindLines(Mockito.anyInt());
+        // Two rows, the status line and the answered prompt
+        element.renderWithAction(CONTEXT, console);
+        Mockito.verify(console).rewindLines(4);
+        // One row, the status line and the answered prompt
+        element.renderWithAction(CONTEXT, console);
+        Mockito.verify(console).rewindLines(3);
+        Assert.assertEquals(5 + 4, lines.get());
+    }
+
+    @Test
+    public void testWritesPageBelowWhenScrolledOff() {
+        Mockito.when(console.isAnsi()).thenReturn(true);
+        Mockito.when(console.getRows()).thenReturn(4);
+        countLines(0);
+        PagedListElement element = new PagedListElement(RowSource.of(Arrays.asList("a", "b", "c")), 2);
+        element.renderWithAction(CONTEXT, console);
+        element.renderWithAction(CONTEXT, console);
+        Mockito.verify(console, Mockito.never()).rewindLines(Mockito.anyInt());
+    }
+
+    @Test
+    public void testFetchesOnlyVisibleRows() {
+        AtomicLong fetched = new AtomicLong();
+        RowSource rows = RowSource.of(5_000_000L, index -> {
+            fetched.incrementAndGet();
+            return "Row " + index;
+        });
+        PagedListElement element = new PagedListElement(rows, 10);
+        Mockito.when(console.prompt(Mockito.anyString())).thenReturn("250000", "q");
+        element.renderWithAction(CONTEXT, console);
+        element.renderWithAction(CONTEXT, console);
+        Assert.assertEquals(20, fetched.get());
+        Mockito.verify(console).writeLine("Row 2499999");
+        Mockito.verify(console).writeLine("Rows 2499991-2500000 of 5000000 (page 250000 of 500000)");
+    }
+
+    @Test
+    public void testRenderEmpty() {
+        PagedListElement element = new PagedListElement(RowSource.of(Collections.emptyList()), 5);
+        Mockito.when(console.prompt(Mockito.anyString())).thenReturn("n");
+        element.renderWithAction(CONTEXT, console);
+        Assert.assertEquals(0, element.getPage());
+        Mockito.verify(console).writeLine("No rows.");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPageSize() {
+        new PagedListElement(RowSource.of(Collections.emptyList()), 0);
+    }
+
+    /**
+     * Has the mock console count the lines written and rewound, answering
+     * every prompt with the next page.
+     */
+    private AtomicLong countLines(long written) {
+        AtomicLong lines = new AtomicLong(written);
+        Mockito.when(console.getLinesWritten()).thenAnswer(invocation -> lines.get());
+        Mockito.when(console.writeLine(Mockito.any())).thenAnswer(invocation -> {
+            lines.incrementAndGet();
+            return console;
+        });
+        Mockito.when(console.prompt(Mockito.anyString())).thenAnswer(invocation -> {
+            lines.incrementAndGet();
+            return "n";
+        });
+        Mockito.when(console.rewindLines(Mockito.anyInt())).thenAnswer(invocation -> {
+            lines.addAndGet(-(int) invocation.getArgument(0));
+            return console;
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,92 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class RowSourceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFileLines() throws Exception {
+        Path file = folder.newFile("audit.log").toPath();
+        Files.write(file, "first\r\nsecond\n\nfourth \u00e9".getBytes(StandardCharsets.UTF_8));
+        RowSource rows = RowSource.lines(file);
+        Assert.assertEquals(4, rows.size());
+        Assert.assertEquals("first", rows.get(0));
+        Assert.assertEquals("second", rows.get(1));
+        Assert.assertEquals("", rows.get(2));
+        Assert.assertEquals("fourth \u00e9", rows.get(3));
+    }
+
+    @Test
+    public void testFileLinesAcrossScanBuffers() throws Exception {
+        Path file = folder.newFile("large.log").toPath();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append("Entry number ").append(i).append('\n');
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        RowSource rows = RowSource.lines(file);
+        Assert.assertEquals(20_000, rows.size());
+        Assert.assertEquals("Entry number 12345", rows.get(12_345));
+        Assert.assertEquals("Entry number 19999", rows.get(19_999));
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        RowSource rows = RowSource.lines(folder.newFile("empty.log").toPath());
+        Assert.assertEquals(0, rows.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFileLineOutOfBounds() throws Exception {
+        Path file = folder.newFile("one.log").toPath();
+        Files.write(file, "one".getBytes(StandardCharsets.UTF_8));
+        RowSource.lines(file).get(1);
+    }
+
+    @Test
+    public void testFileLinesPage() throws Exception {
+        Path file = folder.newFile("page.log").toPath();
+        Files.write(file, "a\nb\r\nc\nd".getBytes(StandardCharsets.UTF_8));
+        RowSource rows = RowSource.lines(file);
+        Assert.assertEquals(Arrays.asList("b", "c", "d"), rows.getPage(1, 3));
+        Assert.assertEquals(Collections.emptyList(), rows.getPage(4, 0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testFileLinesPageOutOfBounds() throws Exception {
+        Path file = folder.newFile("short.log").toPath();
+        Files.write(file, "a\nb".getBytes(StandardCharsets.UTF_8));
+        RowSource.lines(file).getPage(1, 2);
+    }
+
+    @Test
+    public void testTooManyLinesRejected() throws Exception {
+        Path file = folder.newFile("long.log").toPath();
+        Files.write(file, "a\nb\nc\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            new FileLineSource(file, 2).size();
+            Assert.fail();
+        }
+        catch (IllegalStateException ex) {
+            Assert.assertEquals("Can't page " + file + "; it has more than 2 lines.", ex.getMessage());
+        }
+        Assert.assertEquals(3, new FileLineSource(file, 3).size());
+    }
+
+    @Test
+    public void testDefaultPage() {
+        RowSource rows = RowSource.of(10, index -> "Row " + index);
+        Assert.assertEquals(Arrays.asList("Row 3", "Row 4"), rows.getPage(3, 2));
+    }
+}
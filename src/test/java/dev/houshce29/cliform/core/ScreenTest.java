@@ -0,0 +1,99 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScreenTest {
+    private static final String CLEAR = Ansi.CURSOR_HOME + Ansi.CLEAR_SCREEN;
+    private Screen screen;
+
+    @Before
+    public void beforeEach() {
+        screen = new Screen(24, 80);
+        screen.reset();
+    }
+
+    @Test
+    public void testFirstFrameIsDrawnInFull() {
+        screen = new Screen(24, 80);
+        screen.newFrame();
+        screen.append("Title\n");
+        Assert.assertEquals(CLEAR + "Title\n", screen.draw("Title\n"));
+    }
+
+    @Test
+    public void testOnlyChangedLinesAreDrawn() {
+        screen.append("Title\nMenu\nA\nB\nPrompt: ");
+        screen.newFrame();
+        screen.append("Title\nMenu\nA\nC\nPrompt: ");
+        Assert.assertEquals(
+                Ansi.ESC + "[4;1H" + Ansi.ERASE_LINE + "C"
+                        + Ansi.ESC + "[5;1H" + Ansi.ERASE_LINE + "Prompt: ",
+                screen.draw("Title\nMenu\nA\nC\nPrompt: "));
+    }
+
+    @Test
+    public void testShorterFrameErasesBelow() {
+        screen.append("Title\nMenu\nA\nB\nC\n");
+        screen.newFrame();
+        screen.append("Title\nMenu\nA\nB\n");
+        Assert.assertEquals(Ansi.ESC + "[5;1H" + Ansi.ERASE_LINE + Ansi.ERASE_BELOW,
+                screen.draw("Title\nMenu\nA\nB\n"));
+    }
+
+    @Test
+    public void testMostlyChangedFrameIsDrawnInFull() {
+        screen.append("Title\nA\nB");
+        screen.newFrame();
+        screen.append("Title\nC\nD");
+        Assert.assertEquals(CLEAR + "Title\nC\nD", screen.draw("Title\nC\nD"));
+    }
+
+    @Test
+    public void testUnknownContentIsDrawnInFull() {
+        screen.append("Title\nA\r\nB\rC\n");
+        screen.newFrame();
+        screen.append("Title\nA\nB\n");
+        Assert.assertEquals(CLEAR + "x", screen.draw("x"));
+    }
+
+    @Test
+    public void testFrameTallerThanScreenIsDrawnInFull() {
+        screen = new Screen(3, 80);
+        screen.reset();
+        screen.append("A\nB\n");
+        screen.newFrame();
+        screen.append("A\nB\nC\n");
+        Assert.assertEquals(CLEAR + "x", screen.draw("x"));
+    }
+
+    @Test
+    public void testWideLineIsDrawnInFull() {
+        screen = new Screen(24, 4);
+        screen.reset();
+        screen.append("A\nB\n");
+        screen.newFrame();
+        screen.append("A\nBBBB\n");
+        Assert.assertEquals(CLEAR + "x", screen.draw("x"));
+    }
+
+    @Test
+    public void testUnknownSizeIsDrawnInFull() {
+        screen = new Screen(0, 0);
+        screen.reset();
+        screen.append("A\nB\n");
+        screen.newFrame();
+        screen.append("A\nC\n");
+        Assert.assertEquals(CLEAR + "x", screen.draw("x"));
+    }
+
+    @Test
+    public void testReplace() {
+        screen.append("Title\nCount: 1\nPrompt: \n");
+        screen.replace(2, "Count: 2");
+        screen.newFrame();
+        screen.append("Title\nCount: 2\nPrompt: \n");
+        Assert.assertEquals(Ansi.ESC + "[4;1H" + Ansi.ERASE_LINE, screen.draw("x"));
+    }
+}
@@ -0,0 +1,144 @@
+package dev.houshce29.cliform.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+
+public class TerminalConsoleTest {
+
+    @Test
+    public void testOfConsole() {
+        Console console = Console.scripted(Collections.emptyIterator(), (PrintStream) null);
+        Assert.assertSame(console, Console.of(console));
+    }
+
+    @Test
+    public void testDelegates() {
+        MemoryTerminal terminal = new MemoryTerminal("Alice", "secret");
+        Console console = Console.of(terminal);
+        console.clear()
+                .writeLine("Title")
+                .newLine()
+                .writeLines("a", "b")
+                .write(1)
+                .cursorHome()
+                .eraseLine();
+        Assert.assertEquals("Alice", console.prompt("Name: "));
+        Assert.assertEquals("secret", console.promptPassword("Password: "));
+        console.flush().close();
+        Assert.assertEquals("<clear>Title\n\na\nb\n1\rName: Password: <flush><close>", terminal.screen.toString());
+        Assert.assertFalse(console.isAnsi());
+        Assert.assertEquals(0, console.getLinesWritten());
+    }
+
+    @Test
+    public void testSettingsIgnored() {
+        MemoryTerminal terminal = new MemoryTerminal();
+        Console.of(terminal)
+                .setFrameBufferSize(16)
+                .setAsyncOutput(4, OverflowPolicy.BLOCK)
+                .setDifferentialRendering(true)
+                .setMaxInputLength(8)
+                .writeLine("Written straight away");
+        Assert.assertEquals("Written straight away\n", terminal.screen.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSetting() {
+        Console.of(new MemoryTerminal()).setFrameBufferSize(-1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRewriteUnsupported() {
+        Console.of(new MemoryTerminal()).rewriteLines(1, "text");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRewindUnsupported() {
+        Console.of(new MemoryTerminal()).rewindLines(1);
+    }
+
+    @Test
+    public void testObservers() {
+        StringBuilder events = new StringBuilder();
+        Console console = Console.of(new MemoryTerminal("Alice", "secret")).addObserver(new ConsoleObserver() {
+            @Override
+            public void onOutput(String text) {
+                events.append("out[").append(text).append(']');
+            }
+
+            @Override
+            public void onPrompt(String message, boolean obscured) {
+                events.append("prompt[").append(message).append(']');
+            }
+
+            @Override
+            public void onInput(String input, boolean obscured) {
+                events.append("in[").append(input).append(',').append(obscured).append(']');
+            }
+        });
+        console.writeLine("Title").newLine().write(1).clear();
+        console.prompt("> ");
+        console.promptPassword("? ");
+        Assert.assertEquals("out[Title\n]out[\n]out[1]prompt[> ]in[Alice,false]prompt[? ]in[secret,true]",
+                events.toString());
+    }
+
+    /**
+     * Terminal that keeps its screen in memory, and answers prompts from a queue.
+     */
+    private static final class MemoryTerminal implements Terminal {
+        private final StringBuilder screen = new StringBuilder();
+        private final Deque<String> inputs;
+
+        private MemoryTerminal(String... inputs) {
+            this.inputs = new ArrayDeque<>(Arrays.asList(inputs));
+        }
+
+        @Override
+        public Terminal write(Object object) {
+            screen.append(object);
+            return this;
+        }
+
+        @Override
+        public Terminal newLine() {
+            screen.append('\n');
+            return this;
+        }
+
+        @Override
+        public Terminal writeLine(Object line) {
+            screen.append(line).append('\n');
+            return this;
+        }
+
+        @Override
+        public String prompt(String message) {
+            screen.append(message);
+            return inputs.pop();
+        }
+
+        @Override
+        public Terminal clear() {
+            screen.append("<clear>");
+            return this;
+        }
+
+        @Override
+        public Terminal flush() {
+            screen.append("<flush>");
+            return this;
+        }
+
+        @Override
+        public void close() {
+            screen.append("<close>");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.ContextKey;
+import dev.houshce29.cliform.FormId;
+import dev.houshce29.cliform.core.AbstractForm;
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.FormAction;
+import dev.houshce29.cliform.core.FormActions;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ArgumentBindersTest {
+    private Map<String, Object> context;
+    private Console console;
+    private TestForm form;
+
+    @Before
+    public void beforeEach() {
+        context = new HashMap<>();
+        console = Mockito.mock(Console.class);
+        form = new TestForm();
+    }
+
+    @Test
+    public void testPlanBasicArgs() {
+        ArgumentBinder[] plan = ArgumentBinders.plan(method("basic"));
+        Assert.assertEquals(3, plan.length);
+        Assert.assertEquals("in", plan[0].bind(form, "in", context, console));
+        Assert.assertSame(context, plan[1].bind(form, "in", context, console));
+        Assert.assertSame(console, plan[2].bind(form, "in", context, console));
+    }
+
+    @Test
+    public void testPlanInjectables() {
+        context.put("age", 30);
+        context.put("name", "houshce29");
+        ArgumentBinder[] plan = ArgumentBinders.plan(method("injected"));
+        Assert.assertEquals("test-form", plan[0].bind(form, "in", context, console));
+        Assert.assertEquals(30, plan[1].bind(form, "in", context, console));
+        Assert.assertEquals("houshce29", plan[2].bind(form, "in", context, console));
+        FormActions actions = (FormActions) plan[3].bind(form, "in", context, console);
+        Assert.assertEquals("test-form", actions.getFormId());
+        FormAction restart = actions.restart();
+        Assert.assertEquals(FormAction.Type.FLOW_TO_FORM, restart.getType());
+        Assert.assertEquals("test-form", restart.getValue());
+    }
+
+    @Test
+    public void testPlanFailsFastOnUnsupportedArgs() {
+        try {
+            ArgumentBinders.plan(method("unsupported"));
+            Assert.fail();
+        }
+        catch (IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("Unsupported argument int of handler unsupported"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlanFormIdMustBeString() {
+        ArgumentBinders.plan(method("badFormId"));
+    }
+
+    @Test
+    public void testContextValue() {
+        context.put("age", 30);
+        Assert.assertEquals(Integer.valueOf(30), ArgumentBinders.contextValue(context, "age", int.class));
+        Assert.assertEquals(Integer.valueOf(30), ArgumentBinders.contextValue(context, "age", Number.class));
+        Assert.assertNull(ArgumentBinders.contextValue(context, "missing", String.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testContextValueWrongType() {
+        context.put("age", "thirty");
+        ArgumentBinders.contextValue(context, "age", int.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testContextValueMissingPrimitive() {
+        ArgumentBinders.contextValue(context, "age", int.class);
+    }
+
+    @Test
+    public void testFormIdOfNonForm() {
+        Assert.assertNull(ArgumentBinders.formId(new Object()));
+    }
+
+    private static Method method(String name) {
+        for (Method method : TestForm.class.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    private static class TestForm extends AbstractForm {
+        TestForm() {
+            super("test-form");
+        }
+
+        @Override
+        public List<Element> create(Map<String, Object> context) {
+            return Collections.emptyList();
+        }
+
+        void basic(String input, Map<String, Object> context, Console console) {
+        }
+
+        void injected(@FormId String id, @ContextKey("age") int age,
+                      @ContextKey("name") String name, FormActions actions) {
+        }
+
+        void unsupported(int value) {
+        }
+
+        void badFormId(@FormId Object id) {
+        }
+    }
+}
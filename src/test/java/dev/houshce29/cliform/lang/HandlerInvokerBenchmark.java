@@ -0,0 +1,84 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.FormAction;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rough benchmark of handler dispatch on a data-entry style form: every
+ * input is stored in the context, and every few inputs flow to another
+ * form. Compares the reflective invoker with the bound one.
+ *
+ * Not a unit test; run the main method directly. Arguments are the number
+ * of rounds and the number of invocations per round.
+ */
+public class HandlerInvokerBenchmark {
+    private static final String[] HANDLERS = { "readName", "readAge", "readAddress", "readNotes" };
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int invocations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        HandlerInvoker[] reflective = new HandlerInvoker[HANDLERS.length];
+        HandlerInvoker[] bound = new HandlerInvoker[HANDLERS.length];
+        for (int i = 0; i < HANDLERS.length; i++) {
+            Method method = findMethod(HANDLERS[i]);
+            reflective[i] = HandlerInvokers.reflective(method, ArgumentBinders.plan(method));
+            bound[i] = HandlerInvokers.bind(method);
+        }
+        DataEntryForm form = new DataEntryForm();
+        Map<String, Object> context = new HashMap<>();
+        for (int round = 1; round <= rounds; round++) {
+            long reflectiveNanos = run(reflective, form, context, invocations);
+            long boundNanos = run(bound, form, context, invocations);
+            System.out.printf("Round %d: reflective %.1f ns/op, bound %.1f ns/op%n", round,
+                    (double) reflectiveNanos / invocations, (double) boundNanos / invocations);
+        }
+    }
+
+    private static long run(HandlerInvoker[] invokers, Object form, Map<String, Object> context, int invocations) {
+        int flows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < invocations; i++) {
+            FormAction action = invokers[i % invokers.length].invoke(form, "input-" + (i & 0xFF), context, null);
+            if (action.isDisruptive()) {
+                flows++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        // Keep the results alive
+        if (flows < 0) {
+            System.out.println(flows);
+        }
+        return elapsed;
+    }
+
+    private static Method findMethod(String name) {
+        for (Method method : DataEntryForm.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    public static class DataEntryForm {
+        public void readName(String input, Map<String, Object> context) {
+            context.put("name", input);
+        }
+
+        public void readAge(String input, Map<String, Object> context) {
+            context.put("age", input.length());
+        }
+
+        public void readAddress(Map<String, Object> context, String input, Console console) {
+            context.put("address", input);
+        }
+
+        public FormAction readNotes(String input) {
+            return input.isEmpty() ? FormAction.noop() : FormAction.goTo("summary");
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.ContextKey;
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.FormAction;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HandlerInvokersTest {
+    private Map<String, Object> context;
+    private Console console;
+    private PublicForm form;
+
+    @Before
+    public void beforeEach() {
+        context = new HashMap<>();
+        console = Mockito.mock(Console.class);
+        form = new PublicForm();
+    }
+
+    @Test
+    public void testLambdaBinding() throws Exception {
+        for (String name : new String[] { "none", "one", "two", "three", "action", "primitive" }) {
+            Method method = method(PublicForm.class, name);
+            Assert.assertNotNull(name, HandlerInvokers.lambda(method, ArgumentBinders.plan(method)));
+        }
+    }
+
+    @Test
+    public void testLambdaBindingNotApplicable() throws Exception {
+        Method method = method(PublicForm.class, "hidden");
+        Assert.assertNull(HandlerInvokers.lambda(method, ArgumentBinders.plan(method)));
+        method = method(PublicForm.class, "utility");
+        Assert.assertNull(HandlerInvokers.lambda(method, ArgumentBinders.plan(method)));
+        method = method(PublicForm.class, "four");
+        Assert.assertNull(HandlerInvokers.lambda(method, ArgumentBinders.plan(method)));
+        method = method(HiddenForm.class, "one");
+        Assert.assertNull(HandlerInvokers.lambda(method, ArgumentBinders.plan(method)));
+    }
+
+    @Test
+    public void testBindArgs() throws Exception {
+        Assert.assertEquals(FormAction.Type.NOOP, invoke("three").getType());
+        Assert.assertEquals("in", form.input);
+        Assert.assertSame(context, form.context);
+        Assert.assertSame(console, form.console);
+    }
+
+    @Test
+    public void testBindReturnValues() throws Exception {
+        FormAction action = invoke("action");
+        Assert.assertEquals(FormAction.Type.FLOW_TO_FORM, action.getType());
+        Assert.assertEquals("in", action.getValue());
+        Assert.assertEquals(FormAction.Type.NOOP, invoke("primitive").getType());
+        Assert.assertEquals(FormAction.Type.NOOP, invoke("none").getType());
+    }
+
+    @Test
+    public void testBindMethodHandleFallback() throws Exception {
+        Assert.assertEquals(FormAction.Type.EXIT, invoke("hidden").getType());
+        Assert.assertEquals(FormAction.Type.EXIT, invoke("utility").getType());
+        invoke("four");
+        Assert.assertEquals("inin", form.input);
+        HiddenForm hidden = new HiddenForm();
+        HandlerInvokers.bind(method(HiddenForm.class, "one")).invoke(hidden, "in", context, console);
+        Assert.assertEquals("in", hidden.input);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBindUnsupportedArgs() {
+        HandlerInvokers.bind(method(PublicForm.class, "unsupported"));
+    }
+
+    @Test
+    public void testLambdaBindingPrimitiveArgs() throws Exception {
+        Method method = method(PublicForm.class, "count");
+        Assert.assertNotNull(HandlerInvokers.lambda(method, ArgumentBinders.plan(method)));
+        context.put("count", 41);
+        Assert.assertEquals(FormAction.Type.NOOP, invoke("count").getType());
+        Assert.assertEquals("42", form.input);
+    }
+
+    @Test
+    public void testHandlerFailureWrapped() throws Exception {
+        for (String name : new String[] { "fail", "hiddenFail" }) {
+            try {
+                invoke(name);
+                Assert.fail();
+            }
+            catch (IllegalStateException ex) {
+                Assert.assertEquals("Failed to invoke " + name + ".", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testReflectiveFailureMatchesBound() throws Exception {
+        Method method = method(PublicForm.class, "fail");
+        HandlerInvoker[] invokers = {
+                HandlerInvokers.bind(method),
+                HandlerInvokers.reflective(method, ArgumentBinders.plan(method))
+        };
+        for (HandlerInvoker invoker : invokers) {
+            try {
+                invoker.invoke(form, "x", context, console);
+                Assert.fail();
+            }
+            catch (IllegalStateException ex) {
+                Assert.assertEquals(RuntimeException.class, ex.getCause().getClass());
+            }
+        }
+    }
+
+    @Test
+    public void testReflectiveMatchesBound() throws Exception {
+        Method method = method(PublicForm.class, "action");
+        FormAction bound = HandlerInvokers.bind(method).invoke(form, "x", context, console);
+        FormAction reflective = HandlerInvokers.reflective(method, ArgumentBinders.plan(method)).invoke(form, "x", context, console);
+        Assert.assertEquals(bound.getType(), reflective.getType());
+        Assert.assertEquals(bound.getValue(), reflective.getValue());
+    }
+
+    private FormAction invoke(String name) throws Exception {
+        return HandlerInvokers.bind(method(PublicForm.class, name)).invoke(form, "in", context, console);
+    }
+
+    private static Method method(Class<?> type, String name) {
+        for (Method method : type.getDeclaredMethods()) {
+            if (method.getName().equals(name)) {
+                method.setAccessible(true);
+                return method;
+            }
+        }
+        throw new IllegalArgumentException(name);
+    }
+
+    public static class PublicForm {
+        private String input;
+        private Map<String, Object> context;
+        private Console console;
+
+        public void none() {
+        }
+
+        public void one(String input) {
+            this.input = input;
+        }
+
+        public void two(Map<String, Object> context, String input) {
+            this.context = context;
+            this.input = input;
+        }
+
+        public void three(String input, Map<String, Object> context, Console console) {
+            this.input = input;
+            this.context = context;
+            this.console = console;
+        }
+
+        public void four(String a, String b, Map<String, Object> context, Console console) {
+            this.input = a + b;
+        }
+
+        public FormAction action(String input) {
+            return FormAction.goTo(input);
+        }
+
+        public boolean primitive() {
+            return true;
+        }
+
+        public void unsupported(int value) {
+        }
+
+        public void count(@ContextKey("count") int count) {
+            this.input = String.valueOf(count + 1);
+        }
+
+        public void fail() {
+            throw new RuntimeException();
+        }
+
+        private void hiddenFail() throws Exception {
+            throw new Exception();
+        }
+
+        private FormAction hidden() {
+            return FormAction.exit();
+        }
+
+        public static FormAction utility(String input) {
+            return FormAction.exit();
+        }
+    }
+
+    static class HiddenForm {
+        private String input;
+
+        void one(String input) {
+            this.input = input;
+        }
+    }
+}
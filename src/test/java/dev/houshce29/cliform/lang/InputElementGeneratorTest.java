@@ -84,6 +84,21 @@ public class InputElementGeneratorTest {
         Assert.assertEquals(FormAction.Type.NOOP, action.getType());
     }
 
+    @Test
+    public void testGenerateBindsSourceOnce() {
+        InputElementGenerator gen = new InputElementGenerator(
+                TestForm.class, "noopHandle", PROMPT, Collections.emptyList(), false);
+        InputElement first = (InputElement) gen.generate(form, context);
+        InputElement second = (InputElement) gen.generate(form, context);
+        Assert.assertSame(first.getHandler(), second.getHandler());
+        TestForm other = Mockito.spy(new TestForm());
+        InputElement third = (InputElement) gen.generate(other, context);
+        Assert.assertNotSame(first.getHandler(), third.getHandler());
+        third.renderWithAction(context, console);
+        Mockito.verify(other).noopHandle();
+        Mockito.verify(form, Mockito.never()).noopHandle();
+    }
+
     @Test
     public void testGenerateWithNonFormActionHandler() {
         InputElementGenerator gen = new InputElementGenerator(
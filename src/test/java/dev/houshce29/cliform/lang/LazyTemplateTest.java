@@ -0,0 +1,97 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Element;
+import dev.houshce29.cliform.core.TextElement;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class LazyTemplateTest {
+    private TemplateParser parser;
+
+    @Before
+    public void beforeEach() {
+        parser = Mockito.spy(new TemplateParser());
+    }
+
+    @Test
+    public void testIterateParsesOnDemand() {
+        LazyTemplate template = newTemplate("Line 1\nLine 2\nLine 3");
+        Iterator<ElementGenerator> iterator = template.iterator();
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals("Line 1", ((TextElementGenerator) iterator.next()).getFormat());
+        Mockito.verify(parser, Mockito.times(1)).parseLine(Mockito.any(), Mockito.anyInt(), Mockito.anyString());
+        Assert.assertFalse(template.isFullyParsed());
+    }
+
+    @Test
+    public void testSizeParsesEverything() {
+        LazyTemplate template = newTemplate("Line 1\nLine 2\nLine 3");
+        Assert.assertEquals(3, template.size());
+        Assert.assertTrue(template.isFullyParsed());
+        Mockito.verify(parser).parseLine(Object.class, 3, "Line 3");
+    }
+
+    @Test
+    public void testGenerateElementsOnDemand() {
+        LazyTemplate template = newTemplate("Hello, ${name}!\nBye, ${name}!");
+        Map<String, Object> context = new HashMap<>();
+        context.put("name", "first");
+        List<Element> elements = template.generate(null, context);
+        Iterator<Element> iterator = elements.iterator();
+        Assert.assertEquals("Hello, first!", ((TextElement) iterator.next()).getText());
+        // Lines are generated as they're iterated
+        context.put("name", "second");
+        Assert.assertEquals("Bye, second!", ((TextElement) iterator.next()).getText());
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testIterateAgainUsesParsedLines() {
+        LazyTemplate template = newTemplate("Line 1\nLine 2");
+        template.forEach(generator -> { });
+        template.forEach(generator -> { });
+        Mockito.verify(parser, Mockito.times(2)).parseLine(Mockito.any(), Mockito.anyInt(), Mockito.anyString());
+    }
+
+    @Test
+    public void testSyntaxErrorOnReachingLine() {
+        LazyTemplate template = newTemplate("Fine\nMy name is ${name");
+        Iterator<ElementGenerator> iterator = template.iterator();
+        iterator.next();
+        try {
+            iterator.hasNext();
+            Assert.fail();
+        }
+        catch (IllegalStateException ex) {
+            Assert.assertFalse(template.isFullyParsed());
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        newTemplate("Line 1").get(1);
+    }
+
+    @Test
+    public void testParseLoopAsOneGenerator() {
+        LazyTemplate template = newTemplate("Before\n%for item in ${items}\n- ${item}\n%end\nAfter");
+        Iterator<ElementGenerator> iterator = template.iterator();
+        iterator.next();
+        Assert.assertTrue(iterator.next() instanceof LoopElementGenerator);
+        Assert.assertFalse(template.isFullyParsed());
+        Assert.assertEquals(3, template.size());
+    }
+
+    private LazyTemplate newTemplate(String text) {
+        return new LazyTemplate(Object.class, new BufferedReader(new StringReader(text)), parser);
+    }
+}
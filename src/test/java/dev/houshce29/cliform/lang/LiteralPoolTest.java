@@ -0,0 +1,55 @@
+package dev.houshce29.cliform.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+
+public class LiteralPoolTest {
+
+    @Test
+    public void testTextShared() {
+        TextElementGenerator first = LiteralPool.getInstance().text(plan("=== Shared banner ==="));
+        TextElementGenerator second = LiteralPool.getInstance().text(plan("=== Shared banner ==="));
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, LiteralPool.getInstance().text(plan("=== Other banner ===")));
+    }
+
+    @Test
+    public void testTextElementShared() {
+        TextElementGenerator generator = LiteralPool.getInstance().text(plan("Static line"));
+        Assert.assertSame(generator.generate(null, Collections.emptyMap()),
+                generator.generate(null, Collections.singletonMap("key", "value")));
+    }
+
+    @Test
+    public void testParsedLinesShared() {
+        TemplateParser parser = new TemplateParser();
+        Assert.assertSame(parser.parseLine(Object.class, 1, "-----"),
+                parser.parseLine(String.class, 7, "-----"));
+    }
+
+    @Test
+    public void testUnusedLinesDropped() throws Exception {
+        String text = "Unused line " + System.nanoTime();
+        WeakReference<TextElementGenerator> pooled = new WeakReference<>(LiteralPool.getInstance().text(plan(text)));
+        // Nothing but the pool refers to the generator any more
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (pooled.get() != null) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(LiteralPool.getInstance().text(plan(text)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTextNotStatic() {
+        LiteralPool.getInstance().text(SegmentPlan.builder().slot("name").build());
+    }
+
+    private static SegmentPlan plan(String text) {
+        return SegmentPlan.builder().literal(text).build();
+    }
+}
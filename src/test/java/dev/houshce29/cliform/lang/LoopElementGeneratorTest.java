@@ -0,0 +1,134 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.core.Console;
+import dev.houshce29.cliform.core.Element;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+public class LoopElementGeneratorTest {
+    private TemplateParser parser;
+    private Map<String, Object> context;
+    private Console console;
+
+    @Before
+    public void beforeEach() {
+        parser = new TemplateParser();
+        context = new HashMap<>();
+        console = Mockito.mock(Console.class);
+    }
+
+    @Test
+    public void testRenderIterable() {
+        context.put("items", Arrays.asList("apples", "pears"));
+        context.put("unit", "kg");
+        render("%for item in ${items}", "- ${item} (${unit})", "%end");
+        InOrder order = Mockito.inOrder(console);
+        order.verify(console).writeLine("- apples (kg)");
+        order.verify(console).writeLine("- pears (kg)");
+        order.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void testRenderStreamAndClose() {
+        AtomicBoolean closed = new AtomicBoolean();
+        context.put("items", Stream.of(1, 2, 3).onClose(() -> closed.set(true)));
+        render("%for n in $items", "#$n", "%end");
+        Mockito.verify(console).writeLine("#1");
+        Mockito.verify(console).writeLine("#3");
+        org.junit.Assert.assertTrue(closed.get());
+    }
+
+    @Test
+    public void testRenderArray() {
+        context.put("items", new String[] { "a", "b" });
+        render("%for x in ${items}", "${x}", "%end");
+        Mockito.verify(console).writeLine("a");
+        Mockito.verify(console).writeLine("b");
+    }
+
+    @Test
+    public void testRenderMapItemFields() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("sku", "A-1");
+        row.put("qty", 7);
+        context.put("rows", Collections.singletonList(row));
+        render("%for row in ${rows}", "${row.sku}: ${row.qty} ${row.missing}", "%end");
+        Mockito.verify(console).writeLine("A-1: 7 row.missing");
+    }
+
+    @Test
+    public void testRenderNestedLoops() {
+        Map<String, Object> fruit = new HashMap<>();
+        fruit.put("name", "fruit");
+        fruit.put("items", Arrays.asList("apple", "pear"));
+        Map<String, Object> veg = new HashMap<>();
+        veg.put("name", "veg");
+        veg.put("items", Collections.singletonList("kale"));
+        context.put("groups", Arrays.asList(fruit, veg));
+        render("%for group in ${groups}",
+                "${group.name}:",
+                "  %for item in ${group.items}",
+                "  - ${item}",
+                "  %end",
+                "%end");
+        InOrder order = Mockito.inOrder(console);
+        order.verify(console).writeLine("fruit:");
+        order.verify(console).writeLine("  - apple");
+        order.verify(console).writeLine("  - pear");
+        order.verify(console).writeLine("veg:");
+        order.verify(console).writeLine("  - kale");
+    }
+
+    @Test
+    public void testRenderCoalescedBodyLines() {
+        context.put("items", Arrays.asList("a", "b"));
+        render("%for item in ${items}", "Item ${item}", "-----", "%end");
+        String separator = System.lineSeparator();
+        Mockito.verify(console).writeLine("Item a" + separator + "-----");
+        Mockito.verify(console).writeLine("Item b" + separator + "-----");
+        Mockito.verifyNoMoreInteractions(console);
+    }
+
+    @Test
+    public void testRenderMissingSource() {
+        render("%for item in ${items}", "${item}", "%end");
+        Mockito.verifyZeroInteractions(console);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRenderNotIterable() {
+        context.put("items", 42);
+        render("%for item in ${items}", "${item}", "%end");
+    }
+
+    @Test
+    public void testRenderLargeCollectionLineByLine() {
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            items.add(i);
+        }
+        context.put("items", items);
+        render("%for i in ${items}", "Row $i", "%end");
+        Mockito.verify(console, Mockito.times(50_000)).writeLine(Mockito.anyString());
+        Mockito.verify(console).writeLine("Row 49999");
+    }
+
+    private void render(String... lines) {
+        List<ElementGenerator> generators = parser.parse(Object.class, Arrays.asList(lines));
+        for (ElementGenerator generator : generators) {
+            Element element = generator.generate(null, context);
+            element.render(context, console);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.houshce29.cliform.lang;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SegmentPlanTest {
+
+    @Test
+    public void testJoin() {
+        SegmentPlan plan = SegmentPlan.join(Arrays.asList(
+                SegmentPlan.fromFormat("Hi %s!", Collections.singletonList("name")),
+                SegmentPlan.fromFormat("Static", Collections.emptyList()),
+                SegmentPlan.fromFormat("%s%s", Arrays.asList("a", "b"))), "\n");
+        Assert.assertEquals(Arrays.asList("name", "a", "b"), plan.getSlots());
+        Map<String, Object> context = new HashMap<>();
+        context.put("name", "Bob");
+        context.put("a", 1);
+        context.put("b", 2);
+        Assert.assertEquals("Hi Bob!\nStatic\n12", plan.render(context));
+    }
+
+    @Test
+    public void testRenderStatic() {
+        SegmentPlan plan = SegmentPlan.builder()
+                .literal("100% static")
+                .build();
+        Assert.assertTrue(plan.isStatic());
+        Assert.assertEquals("100% static", plan.render(Collections.emptyMap()));
+    }
+
+    @Test
+    public void testRenderWithSlots() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("name", "houshce29");
+        context.put("quantity", 60);
+        SegmentPlan plan = SegmentPlan.builder()
+                .slot("name")
+                .literal(" has ")
+                .slot("quantity")
+                .literal(' ')
+                .slot("description")
+                .build();
+        Assert.assertFalse(plan.isStatic());
+        Assert.assertEquals(Arrays.asList("name", "quantity", "description"), plan.getSlots());
+        Assert.assertEquals("houshce29 has 60 description", plan.render(context));
+    }
+
+    @Test
+    public void testRenderIntoBuilder() {
+        SegmentPlan plan = SegmentPlan.builder()
+                .literal("Hello, ")
+                .slot("name")
+                .build();
+        StringBuilder out = new StringBuilder(">> ");
+        plan.render(Collections.singletonMap("name", "world"), out);
+        Assert.assertEquals(">> Hello, world", out.toString());
+    }
+
+    @Test
+    public void testToFormat() {
+        SegmentPlan plan = SegmentPlan.builder()
+                .literal("Tax: ")
+                .slot("tax")
+                .literal("%")
+                .build();
+        Assert.assertEquals("Tax: %s%%", plan.toFormat());
+    }
+
+    @Test
+    public void testFromFormat() {
+        SegmentPlan plan = SegmentPlan.fromFormat("%s is 100%% %s", Arrays.asList("a", "b"));
+        Assert.assertEquals(Arrays.asList("a", "b"), plan.getSlots());
+        Assert.assertEquals("a is 100% b", plan.render(Collections.emptyMap()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromFormatUnsupportedConversion() {
+        SegmentPlan.fromFormat("%d", Collections.singletonList("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromFormatMissingArgs() {
+        SegmentPlan.fromFormat("%s and %s", Collections.singletonList("a"));
+    }
+}
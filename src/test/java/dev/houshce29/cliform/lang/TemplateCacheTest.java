@@ -0,0 +1,178 @@
+package dev.houshce29.cliform.lang;
+
+import dev.houshce29.cliform.Template;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+
+public class TemplateCacheTest {
+    private TemplateParser parser;
+    private TemplateCache cache;
+
+    @Before
+    public void beforeEach() {
+        parser = Mockito.spy(new TemplateParser());
+        cache = new TemplateCache(parser);
+    }
+
+    @Test
+    public void testGetParsesOnce() {
+        List<ElementGenerator> first = cache.get(HardCoded.class);
+        List<ElementGenerator> second = cache.get(HardCoded.class);
+        Assert.assertSame(first, second);
+        // A variable line and a static line are coalesced separately
+        Assert.assertEquals(2, first.size());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getHitCount());
+        Mockito.verify(parser, Mockito.times(1)).parse(HardCoded.class);
+    }
+
+    @Test
+    public void testEvict() {
+        cache.get(HardCoded.class);
+        cache.evict(HardCoded.class);
+        Assert.assertEquals(0, cache.size());
+        cache.get(HardCoded.class);
+        Assert.assertEquals(2, cache.getMissCount());
+        Mockito.verify(parser, Mockito.times(2)).parse(HardCoded.class);
+    }
+
+    @Test
+    public void testCachedClassCanBeUnloaded() throws Exception {
+        // The spied parser would remember the class it was called with
+        cache = new TemplateCache(new TemplateParser());
+        WeakReference<ClassLoader> loader = cacheFromOwnLoader();
+        Assert.assertEquals(1, cache.size());
+        // Nothing but the cache saw the class, so its loader can go
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (loader.get() != null) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictAll() {
+        cache.get(HardCoded.class);
+        cache.evictAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetUnmodifiable() {
+        cache.get(HardCoded.class).clear();
+    }
+
+    @Test
+    public void testGetFailureNotCached() {
+        try {
+            cache.get(Object.class);
+            Assert.fail();
+        }
+        catch (IllegalArgumentException ex) {
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void testPrecompile() {
+        cache.precompile(Arrays.asList(HardCoded.class, Other.class, HardCoded.class));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(2, cache.getMissCount());
+        cache.get(HardCoded.class);
+        cache.get(Other.class);
+        Assert.assertEquals(2, cache.getHitCount());
+        Mockito.verify(parser, Mockito.times(1)).parse(HardCoded.class);
+    }
+
+    @Test
+    public void testPrecompileReportsAllErrors() {
+        try {
+            cache.precompile(Arrays.asList(Broken.class, HardCoded.class, Object.class));
+            Assert.fail();
+        }
+        catch (IllegalStateException ex) {
+            Assert.assertTrue(ex.getMessage().startsWith("Failed to compile 2 templates:"));
+            Assert.assertTrue(ex.getMessage().contains(Broken.class.getName() + ": Incomplete variable block"));
+            Assert.assertTrue(ex.getMessage().contains("java.lang.Object: "));
+            Assert.assertEquals(2, ex.getSuppressed().length);
+            // Templates that compiled are still cached
+            Assert.assertEquals(1, cache.size());
+        }
+    }
+
+    @Template({
+            "Hello, ${name}!",
+            "Bye."
+    })
+    public static class HardCoded {
+    }
+
+    private WeakReference<ClassLoader> cacheFromOwnLoader() throws Exception {
+        ClassLoader loader = new FormLoader(Handled.class);
+        Class<?> form = loader.loadClass(Handled.class.getName());
+        Assert.assertNotSame(Handled.class, form);
+        Assert.assertEquals(2, cache.get(form).size());
+        return new WeakReference<>(loader);
+    }
+
+    @Template({
+            "Name? [readName]",
+            "Bye."
+    })
+    public static class Handled {
+        public void readName(String input) { }
+    }
+
+    /**
+     * Defines its own copy of a form class, so that it can be unloaded.
+     */
+    private static final class FormLoader extends ClassLoader {
+        private final String name;
+        private final byte[] bytes;
+
+        private FormLoader(Class<?> form) throws IOException {
+            super(form.getClassLoader());
+            this.name = form.getName();
+            String resource = name.replace('.', '/') + ".class";
+            try (InputStream in = form.getClassLoader().getResourceAsStream(resource)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                }
+                this.bytes = out.toByteArray();
+            }
+        }
+
+        @Override
+        protected Class<?> loadClass(String className, boolean resolve) throws ClassNotFoundException {
+            if (!className.equals(name)) {
+                return super.loadClass(className, resolve);
+            }
+            synchronized (getClassLoadingLock(className)) {
+                Class<?> loaded = findLoadedClass(className);
+                return loaded != null ? loaded : defineClass(className, bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    @Template("Other")
+    public static class Other {
+    }
+
+    @Template("Hello, ${name")
+    public static class Broken {
+    }
+}
@@ -8,6 +8,7 @@ import org.mockito.Mockito;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 public class TemplateParserTest {
     private TemplateParser parser;
@@ -49,6 +50,15 @@ public class TemplateParserTest {
                 "What is your name? [readName]"));
     }
 
+    @Test
+    public void testParseTemplateResourceLazily() {
+        List<ElementGenerator> generators = parser.parse(LazyResource.class,
+                LazyResource.class.getAnnotation(Template.class));
+        Assert.assertEquals(LazyTemplate.class, generators.getClass());
+        Assert.assertEquals(3, generators.size());
+        Mockito.verify(parser, Mockito.never()).parse(Mockito.any(), Mockito.anyList());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testParseNoTemplateDef() {
         parser.parse(BadTemplate.class, BadTemplate.class.getAnnotation(Template.class));
@@ -148,6 +158,62 @@ public class TemplateParserTest {
         parser.parseLine(MyForm.class, 1, "Password: [read");
     }
 
+    @Test
+    public void testParseLoop() {
+        List<ElementGenerator> generators = parser.parse(MyForm.class, Arrays.asList(
+                "Items:",
+                "%for item in ${items}",
+                "- ${item}",
+                "%end",
+                "Total: $total"));
+        Assert.assertEquals(3, generators.size());
+        LoopElementGenerator loop = (LoopElementGenerator) generators.get(1);
+        Assert.assertEquals("item", loop.getVariable());
+        Assert.assertEquals("items", loop.getSourceKey());
+        Assert.assertEquals(1, loop.getBody().size());
+        Assert.assertEquals("- %s", ((TextElementGenerator) loop.getBody().get(0)).getFormat());
+    }
+
+    @Test
+    public void testParseLoopLikeText() {
+        List<ElementGenerator> generators = parser.parse(MyForm.class, Arrays.asList(
+                "%format", "${%}for item in ${items}", "%ending"));
+        Assert.assertEquals(3, generators.size());
+        Assert.assertTrue(generators.stream().allMatch(gen -> gen instanceof TextElementGenerator));
+    }
+
+    @Test
+    public void testParseEscapedDirectives() {
+        List<ElementGenerator> generators = parser.parse(MyForm.class, Arrays.asList(
+                "%%for item in ${items}", "  %%end", "%%end of text", "%% done"));
+        Assert.assertEquals(4, generators.size());
+        Assert.assertEquals("%%for item in %s", ((TextElementGenerator) generators.get(0)).getFormat());
+        Assert.assertEquals("  %%end", ((TextElementGenerator) generators.get(1)).getFormat());
+        // Only lines that would otherwise be directives are unescaped
+        Assert.assertEquals("%%%%end of text", ((TextElementGenerator) generators.get(2)).getFormat());
+        Assert.assertEquals("%%%% done", ((TextElementGenerator) generators.get(3)).getFormat());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseMalformedLoop() {
+        parser.parse(MyForm.class, Arrays.asList("%for items", "%end"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseIncompleteLoop() {
+        parser.parse(MyForm.class, Arrays.asList("%for item in ${items}", "${item}"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseUnexpectedLoopEnd() {
+        parser.parse(MyForm.class, Arrays.asList("Text", "%end"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParseInputInsideLoop() {
+        parser.parse(MyForm.class, Arrays.asList("%for item in ${items}", "Input: [readInput]", "%end"));
+    }
+
     @Template({
             "Hello, world!",
             "My name is ${name}.",
@@ -160,6 +226,11 @@ public class TemplateParserTest {
     public static class FromResource {
     }
 
+    @Template(resource = "template.txt", lazy = true)
+    public static class LazyResource {
+        public void readName(String input) { }
+    }
+
     @Template
     public static class BadTemplate {
     }
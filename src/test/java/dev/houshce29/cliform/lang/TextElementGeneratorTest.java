@@ -2,6 +2,7 @@ package dev.houshce29.cliform.lang;
 
 import dev.houshce29.cliform.core.Console;
 import dev.houshce29.cliform.core.Element;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -9,6 +10,7 @@ import org.mockito.Mockito;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class TextElementGeneratorTest {
@@ -27,6 +29,19 @@ public class TextElementGeneratorTest {
         Mockito.verify(console).writeLine("Hello, world!");
     }
 
+    @Test
+    public void testEncodedRender() {
+        Mockito.when(console.isEncodedOutput()).thenReturn(true);
+        Map<String, Object> context = new HashMap<>();
+        context.put("name", "Bob");
+        TextElementGenerator generator = TextElementGenerator.of(SegmentPlan.fromFormat("Hi %s!", Arrays.asList("name")));
+        generator.generate(null, context).render(context, console);
+        // Only the value is left to encode
+        SegmentPlan plan = generator.getPlan();
+        Mockito.verify(console).writeEncodedLine("Hi Bob!", plan.getEncodedLiterals(), new String[] { "Bob" });
+        Assert.assertSame(plan.getEncodedLiterals(), plan.getEncodedLiterals());
+    }
+
     @Test
     public void testGenerateWithArgs() {
         Map<String, Object> context = new HashMap<>();
@@ -39,4 +54,64 @@ public class TextElementGeneratorTest {
         element.render(context, console);
         Mockito.verify(console).writeLine("houshce29 has 60 chickens. Wow! That's a lot!");
     }
+
+    @Test
+    public void testCoalesceTextRuns() {
+        TemplateParser parser = new TemplateParser();
+        List<ElementGenerator> generators = TextElementGenerator.coalesce(parser.parse(Form.class, Arrays.asList(
+                "=== Title ===",
+                "",
+                "Hello, ${name}!",
+                "Input: [read]",
+                "Footer 1",
+                "Footer 2")));
+        Assert.assertEquals(4, generators.size());
+        Assert.assertTrue(generators.get(2) instanceof InputElementGenerator);
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("name", "Bob");
+        String separator = System.lineSeparator();
+        generators.get(0).generate(null, context).render(context, console);
+        Mockito.verify(console).writeLine("=== Title ===" + separator);
+        generators.get(1).generate(null, context).render(context, console);
+        Mockito.verify(console).writeLine("Hello, Bob!");
+        Element footer = generators.get(3).generate(null, context);
+        // A static run is pre-rendered once
+        Assert.assertSame(footer, generators.get(3).generate(null, context));
+        footer.render(context, console);
+        Mockito.verify(console).writeLine("Footer 1" + separator + "Footer 2");
+    }
+
+    @Test
+    public void testCoalesceKeepsStaticRunsPooled() {
+        TemplateParser parser = new TemplateParser();
+        List<ElementGenerator> generators = TextElementGenerator.coalesce(parser.parse(Form.class, Arrays.asList(
+                "Banner",
+                "Subtitle",
+                "Hello, ${name}!",
+                "Goodbye, ${name}!",
+                "Footer")));
+        Assert.assertEquals(3, generators.size());
+        String separator = System.lineSeparator();
+        TextElementGenerator banner = (TextElementGenerator) generators.get(0);
+        TextElementGenerator greeting = (TextElementGenerator) generators.get(1);
+        TextElementGenerator footer = (TextElementGenerator) generators.get(2);
+        Assert.assertTrue(banner.getPlan().isStatic());
+        Assert.assertFalse(greeting.getPlan().isStatic());
+        Assert.assertTrue(footer.getPlan().isStatic());
+        // The static runs are the pooled instances
+        Assert.assertSame(banner, TextElementGenerator.of(SegmentPlan.fromFormat(
+                "Banner" + separator + "Subtitle", Collections.emptyList())));
+        Assert.assertSame(footer, TextElementGenerator.of(SegmentPlan.fromFormat("Footer", Collections.emptyList())));
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("name", "Bob");
+        greeting.generate(null, context).render(context, console);
+        Mockito.verify(console).writeLine("Hello, Bob!" + separator + "Goodbye, Bob!");
+    }
+
+    public static class Form {
+        public void read(String input) {
+        }
+    }
 }
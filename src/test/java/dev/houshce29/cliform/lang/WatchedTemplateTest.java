@@ -0,0 +1,152 @@
+package dev.houshce29.cliform.lang;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class WatchedTemplateTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    private TemplateParser parser;
+    private Path file;
+    private WatchedTemplate template;
+
+    @Before
+    public void beforeEach() throws Exception {
+        parser = Mockito.spy(new TemplateParser());
+        file = folder.newFile("template.txt").toPath();
+        write("Header", "Hello, ${name}!", "Footer");
+        template = new WatchedTemplate(Object.class, file, parser);
+    }
+
+    @After
+    public void afterEach() {
+        template.close();
+    }
+
+    @Test
+    public void testInitialParse() {
+        Assert.assertEquals(3, template.size());
+        Assert.assertEquals("Hello, %s!", ((TextElementGenerator) template.get(1)).getFormat());
+    }
+
+    @Test
+    public void testReloadOnlyChangedLines() throws Exception {
+        List<ElementGenerator> before = template.snapshot();
+        write("Header", "Goodbye, ${name}!", "Footer");
+        Assert.assertEquals(1, template.reload());
+        Assert.assertSame(before.get(0), template.get(0));
+        Assert.assertNotSame(before.get(1), template.get(1));
+        Assert.assertSame(before.get(2), template.get(2));
+        Assert.assertEquals("Goodbye, %s!", ((TextElementGenerator) template.get(1)).getFormat());
+    }
+
+    @Test
+    public void testReloadInsertedLines() throws Exception {
+        List<ElementGenerator> before = template.snapshot();
+        write("Header", "Hello, ${name}!", "New 1", "New 2", "Footer");
+        Assert.assertEquals(2, template.reload());
+        Assert.assertEquals(5, template.size());
+        Assert.assertSame(before.get(1), template.get(1));
+        Assert.assertSame(before.get(2), template.get(4));
+        Mockito.verify(parser).parseLine(Object.class, 3, "New 1");
+        Mockito.verify(parser).parseLine(Object.class, 4, "New 2");
+    }
+
+    @Test
+    public void testReloadWithLoop() throws Exception {
+        write("Header", "%for item in ${items}", "- ${item}", "%end", "Footer");
+        Assert.assertEquals(5, template.reload());
+        Assert.assertEquals(3, template.size());
+        Assert.assertTrue(template.get(1) instanceof LoopElementGenerator);
+        write("Header", "Footer");
+        template.reload();
+        Assert.assertEquals(2, template.size());
+        Assert.assertNull(template.getLastError());
+    }
+
+    @Test
+    public void testReloadRemovedLines() throws Exception {
+        write("Header", "Footer");
+        Assert.assertEquals(0, template.reload());
+        Assert.assertEquals(2, template.size());
+        Assert.assertNull(template.getLastError());
+    }
+
+    @Test
+    public void testReloadFailureKeepsPreviousVersion() throws Exception {
+        List<ElementGenerator> before = template.snapshot();
+        write("Header", "Hello, ${name", "Footer");
+        Assert.assertEquals(0, template.reload());
+        Assert.assertTrue(template.getLastError() instanceof IllegalStateException);
+        Assert.assertEquals(before, template.snapshot());
+    }
+
+    @Test
+    public void testIteratorUsesSnapshot() throws Exception {
+        Iterator<ElementGenerator> iterator = template.iterator();
+        write("Other");
+        template.reload();
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        Assert.assertEquals(3, count);
+        Assert.assertEquals(1, template.size());
+    }
+
+    @Test
+    public void testWatchFileChanges() throws Exception {
+        template.start();
+        write("Header", "Changed", "Footer");
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (template.size() != 3 || !"Changed".equals(((TextElementGenerator) template.get(1)).getFormat())) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+        Assert.assertEquals("Changed", ((TextElementGenerator) template.get(1)).getFormat());
+    }
+
+    @Test
+    public void testWatchSurvivesFailingListener() throws Exception {
+        Runnable failing = () -> {
+            throw new InternalError("Truncated");
+        };
+        TemplateWatcher.getInstance().watch(file, failing);
+        try {
+            template.start();
+            write("Header", "First", "Footer");
+            awaitLine("First");
+            // The watcher thread is still alive after the failure
+            write("Header", "Second", "Footer");
+            awaitLine("Second");
+        }
+        finally {
+            TemplateWatcher.getInstance().unwatch(file, failing);
+        }
+    }
+
+    private void awaitLine(String format) throws Exception {
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (template.size() != 3 || !format.equals(((TextElementGenerator) template.get(1)).getFormat())) {
+            Assert.assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private void write(String... lines) throws Exception {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+}